@@ -0,0 +1,50 @@
+package com.example.oopproject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Seeded synthetic vitals shared by the benchmarks, so runs are comparable across commits.
+// Readings are one minute apart and roughly one in ten falls outside the normal thresholds.
+final class BenchmarkData {
+    static final String PATIENT_ID = "P-BENCH";
+    static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final DateTimeFormatter CSV_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private BenchmarkData() {}
+
+    static List<VitalSign> vitals(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<VitalSign> vitals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean abnormal = random.nextInt(10) == 0;
+            vitals.add(new VitalSign(PATIENT_ID,
+                    abnormal ? 110 + random.nextDouble() * 40 : 60 + random.nextDouble() * 40,
+                    90 + random.nextDouble() * 50,
+                    36.1 + random.nextDouble() * 1.1,
+                    abnormal ? 85 + random.nextDouble() * 10 : 95 + random.nextDouble() * 5,
+                    START.plusMinutes(i)));
+        }
+        return vitals;
+    }
+
+    // Writes rows in the upload format: heart_rate,oxygen_level,blood_pressure,temperature,timestamp
+    static File csv(int rows, long seed) throws IOException {
+        File file = File.createTempFile("rpms-bench-", ".csv");
+        file.deleteOnExit();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("heart_rate,oxygen_level,blood_pressure,temperature,timestamp\n");
+            for (VitalSign vital : vitals(rows, seed)) {
+                writer.write(String.format("%.1f,%.1f,%.1f,%.2f,%s%n", vital.getHeartRate(), vital.getOxygenLevel(),
+                        vital.getBloodPressure(), vital.getBodyTemperature(), vital.getTimestamp().format(CSV_TIMESTAMP)));
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.oopproject;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The data work behind a trend chart: choosing a resolution, rolling raw readings up into buckets and
+// downsampling a series to the chart width. Building the JavaFX nodes themselves needs the FX toolkit
+// and is left out.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChartSeriesBenchmark {
+    private static final int CHART_WIDTH = 800;
+    private static final int MAX_POINTS = 1000; // HealthTrendsVisualizer's limit before it switches to rollups
+
+    @Param({"10000", "1000000"})
+    public int points;
+
+    private List<VitalSign> vitals;
+    private double[] xs;
+    private double[] ys;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        vitals = BenchmarkData.vitals(points, 3);
+        xs = new double[points];
+        ys = new double[points];
+        for (int i = 0; i < points; i++) {
+            xs[i] = vitals.get(i).getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            ys[i] = vitals.get(i).getHeartRate();
+        }
+    }
+
+    @Benchmark
+    public int[] downsample() {
+        return Downsampling.largestTriangleThreeBuckets(xs, ys, 0, points, CHART_WIDTH);
+    }
+
+    @Benchmark
+    public List<VitalRollup> rollUp() {
+        String resolution = VitalRollup.chooseResolution(points, vitals.get(0).getTimestamp(),
+                vitals.get(points - 1).getTimestamp(), MAX_POINTS);
+        return VitalRollup.rollUp(vitals, resolution != null ? resolution : VitalRollup.HOUR);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.oopproject;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// FileHandling.parseCSV over uploads of increasing size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParseBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int rows;
+
+    private final FileHandling fileHandling = new FileHandling();
+    private File file;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = BenchmarkData.csv(rows, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<VitalSign> parseCSV() {
+        return fileHandling.parseCSV(file.getPath(), BenchmarkData.PATIENT_ID);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.oopproject;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// DataBase throughput and latency against the embedded H2 database (-Drpms.db=embedded), so it runs on any
+// machine without MySQL. The trial seeds PATIENTS synthetic patients with HISTORY readings each; insert scores
+// are per reading, query scores are sampled per call so the JSON results carry latency percentiles.
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Drpms.db=embedded")
+public class DataBaseBenchmark {
+    static final int PATIENTS = 200;
+    static final int HISTORY = 500;
+    static final int BATCH = 100;
+
+    private DataBase db;
+    private final List<String> patientIds = new ArrayList<>();
+    private List<VitalSign> batch;
+    private int next;
+    private LocalDateTime clock = BenchmarkData.START.plusYears(1);
+
+    @Setup(Level.Trial)
+    public void seed() {
+        db = DataBase.getInstance();
+        if (!db.isConnected()) throw new IllegalStateException("Embedded database is not available; is H2 on the class path?");
+        Doctor doctor = new Doctor("D-BENCH", "Bench Doctor", "555-0100", "doctor@example.com", "secret", "Female",
+                "Cardiology", LocalDate.of(2020, 1, 1));
+        db.addDoctor(doctor);
+        for (int p = 0; p < PATIENTS; p++) {
+            String id = "P-" + p;
+            Patient patient = new Patient(id, "Patient " + p, "555-" + p, id + "@example.com", "secret", "Male",
+                    LocalDate.of(1960, 1, 1).plusDays(p * 53L));
+            db.addPatient(patient);
+            db.addAppointment(new Appointment(0, BenchmarkData.START.plusDays(p % 30).withHour(9 + p % 8), patient, doctor));
+            List<VitalSign> history = new ArrayList<>(HISTORY);
+            for (VitalSign vital : BenchmarkData.vitals(HISTORY, p)) {
+                history.add(new VitalSign(id, vital.getHeartRate(), vital.getBloodPressure(), vital.getBodyTemperature(),
+                        vital.getOxygenLevel(), vital.getTimestamp()));
+            }
+            db.addVitalSigns(history);
+            patientIds.add(id);
+        }
+        batch = BenchmarkData.vitals(BATCH, 99);
+    }
+
+    private String nextPatient() {
+        next = (next + 1) % PATIENTS;
+        return patientIds.get(next);
+    }
+
+    // Readings get increasing timestamps, as a live feed would produce
+    private VitalSign reading(VitalSign template, String patientId) {
+        clock = clock.plusSeconds(1);
+        return new VitalSign(patientId, template.getHeartRate(), template.getBloodPressure(),
+                template.getBodyTemperature(), template.getOxygenLevel(), clock);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void insertVitalSign() {
+        db.addVitalSign(reading(batch.get(next % BATCH), nextPatient()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public boolean insertVitalSignBatch() {
+        String patientId = nextPatient();
+        List<VitalSign> readings = new ArrayList<>(BATCH);
+        for (VitalSign template : batch) readings.add(reading(template, patientId));
+        return db.addVitalSigns(readings);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public User getUser() {
+        return db.getUser(nextPatient());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<VitalSign> getRecentVitalSigns() {
+        return db.getRecentVitalSigns(nextPatient(), 100);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<VitalRollup> getDailyRollups() {
+        return db.getVitalRollups(nextPatient(), VitalRollup.DAY, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, List<VitalSign>> getVitalSignsForCohort() {
+        return db.getVitalSignsForPatients(patientIds.subList(0, 50));
+    }
+}
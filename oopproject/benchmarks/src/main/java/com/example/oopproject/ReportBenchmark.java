@@ -0,0 +1,49 @@
+package com.example.oopproject;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ReportGenerator.renderReport over preloaded patient data, so the score is rendering alone (statistics,
+// rollup trend summary and text layout) without database latency
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int readings;
+
+    private final ReportGenerator reportGenerator = new ReportGenerator();
+    private List<VitalSign> vitals;
+    private List<Feedback> feedbacks;
+    private List<Prescription> prescriptions;
+
+    @Setup(Level.Trial)
+    public void load() {
+        vitals = BenchmarkData.vitals(readings, 11);
+        feedbacks = new ArrayList<>();
+        prescriptions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            feedbacks.add(new Feedback(i, BenchmarkData.PATIENT_ID, "D-BENCH", LocalDate.of(2025, 1, 1).plusDays(i),
+                    "Follow-up note " + i + ": continue current treatment and monitor vitals."));
+            prescriptions.add(new Prescription(i, BenchmarkData.PATIENT_ID, "Medication " + i, "10 mg", "Twice daily"));
+        }
+    }
+
+    @Benchmark
+    public String renderReport() {
+        StringWriter out = new StringWriter(readings * 96);
+        try (PrintWriter writer = new PrintWriter(out)) {
+            reportGenerator.renderReport(BenchmarkData.PATIENT_ID, vitals, feedbacks, prescriptions, writer);
+        }
+        return out.toString();
+    }
+}
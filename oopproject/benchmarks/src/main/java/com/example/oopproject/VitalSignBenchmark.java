@@ -0,0 +1,57 @@
+package com.example.oopproject;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-reading costs on the upload and ingestion paths: threshold checks, severity classification and construction.
+// Each invocation processes a batch of BATCH readings, so scores are per batch.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VitalSignBenchmark {
+    static final int BATCH = 4096;
+
+    private VitalSign[] vitals;
+    private double[] values;
+    private LocalDateTime timestamp;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        List<VitalSign> generated = BenchmarkData.vitals(BATCH, 7);
+        vitals = generated.toArray(new VitalSign[0]);
+        values = new double[BATCH];
+        for (int i = 0; i < BATCH; i++) values[i] = vitals[i].getHeartRate();
+        timestamp = BenchmarkData.START;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int isWithinThreshold() {
+        int normal = 0;
+        for (VitalSign vital : vitals) {
+            if (EmergencyAlert.isWithinThreshold(vital)) normal++;
+        }
+        return normal;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void getSeverity(Blackhole blackhole) {
+        for (VitalSign vital : vitals) blackhole.consume(vital.getSeverity());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void construct(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(new VitalSign(BenchmarkData.PATIENT_ID, values[i], 120, 36.8, 97, timestamp));
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.oopproject;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+// End-to-end load driver for one RPMS node. A synthetic ward from PopulationGenerator is seeded into the
+// database, then virtual users run against the DataBase, ChatServer and AlertService APIs at fixed rates:
+// devices upload the ward's event stream (readings in batches, plus its appointment bookings and chat
+// messages), clinicians view vitals, trends and chats, reply and approve appointments, patients press the
+// panic button and a scheduler runs reminder sweeps. Notifications go to a simulated mail transport with a
+// fixed delay instead of SMTP.
+//
+// Each device user uploads on its own write connection, like the ingestion server's writers. Every other
+// operation goes through the DataBase's single shared connection, as it does in the app, so their
+// throughput is bounded by that one connection and the report says so; it does not measure a pooled node.
+//
+// Users are paced open-loop and latency is measured from each operation's intended start, so a node that
+// falls behind shows queueing delay instead of quietly lowering the offered load. Latencies go into one
+// HdrHistogram recorder per operation; the report has throughput, errors and percentiles per operation and
+// the full distributions are written next to it as .hgrm files. Options are key=value arguments:
+//   mvn package exec:exec@load-test -Dload.args="devices=32 clinicians=64 seconds=300"
+// The harness compiles but has never been run against a database, so its first results need checking.
+public final class WardLoadTest {
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("patients", "2000");
+        DEFAULTS.put("doctors", "40");
+        DEFAULTS.put("history", "1");            // hours of readings seeded before the run
+        DEFAULTS.put("devices", "16");           // device gateway users
+        DEFAULTS.put("uploads", "5");            // uploads per second per device user
+        DEFAULTS.put("batch", "20");             // readings per upload
+        DEFAULTS.put("clinicians", "32");        // clinician users
+        DEFAULTS.put("views", "2");              // operations per second per clinician
+        DEFAULTS.put("panics", "6");             // panic-button presses per minute across the ward
+        DEFAULTS.put("sweep", "30");             // seconds between reminder sweeps
+        DEFAULTS.put("notify", "50");            // simulated mail delivery time in milliseconds
+        DEFAULTS.put("warmup", "10");            // seconds before recording starts
+        DEFAULTS.put("seconds", "60");           // seconds recorded
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("out", "target/load-test");
+    }
+
+    private final Map<String, String> options;
+    private final PopulationGenerator ward;
+    private final LocalDateTime wardFrom;
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final BlockingQueue<PopulationGenerator.Event> stream = new ArrayBlockingQueue<>(10_000);
+    private final List<Thread> users = new ArrayList<>();
+    private final List<Connection> deviceConnections = new ArrayList<>();
+    private final SimulatedEmail email;
+    private DataBase db;
+    private ChatServer chatServer;
+    private ReminderService reminders;
+    private volatile boolean running = true;
+
+    private WardLoadTest(Map<String, String> options) {
+        this.options = options;
+        this.ward = new PopulationGenerator(number("patients"), number("doctors"), 1, 0.5, 4, number("seed"));
+        this.wardFrom = LocalDateTime.now().minusHours(number("history"));
+        this.email = new SimulatedEmail(number("notify"));
+        for (String name : new String[]{"upload-vitals", "book-appointment", "send-message", "view-vitals", "view-trends",
+                "open-chat", "reply", "review-appointments", "panic-button", "reminder-sweep"}) {
+            operations.put(name, new Operation(name));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                System.err.println("Unknown option: " + arg + "\nOptions (with defaults): " + DEFAULTS);
+                System.exit(2);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        System.exit(new WardLoadTest(options).run());
+    }
+
+    private int number(String option) {
+        return Integer.parseInt(options.get(option));
+    }
+
+    private int run() throws Exception {
+        db = DataBase.getInstance();
+        if (!db.isConnected()) {
+            System.err.println("Database connection failed.");
+            return 1;
+        }
+        chatServer = new ChatServer(db);
+        reminders = new ReminderService(email);
+
+        long seedStart = System.nanoTime();
+        Duration history = Duration.ofHours(number("history"));
+        long seeded = ward.seed(db, wardFrom, history);
+        System.out.printf("Seeded %d patients, %d doctors and %d events in %.1f s%n", number("patients"), number("doctors"),
+                seeded, (System.nanoTime() - seedStart) / 1e9);
+
+        startUsers();
+        Thread.sleep(number("warmup") * 1000L);
+        for (Operation operation : operations.values()) operation.reset();
+        long start = System.nanoTime();
+        long end = start + number("seconds") * 1_000_000_000L;
+        for (long now = start; now < end; now = System.nanoTime()) {
+            Thread.sleep(Math.min(10_000, (end - now) / 1_000_000));
+            progress(System.nanoTime() - start);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for (Thread user : users) user.interrupt();
+        for (Thread user : users) user.join(5000);
+        for (Connection conn : deviceConnections) conn.close();
+        return report(elapsed);
+    }
+
+    private void startUsers() throws SQLException {
+        // The ward's live event stream, produced ahead of the device users that upload it
+        Thread producer = new Thread(() -> {
+            try {
+                ward.generate(LocalDateTime.now(), Duration.ofDays(365), event -> {
+                    try {
+                        stream.put(event);
+                    } catch (InterruptedException e) {
+                        throw new CancellationException();
+                    }
+                });
+            } catch (CancellationException e) {
+                // Stopped at the end of the run
+            }
+        }, "ward-stream");
+        producer.setDaemon(true);
+        producer.start();
+        users.add(producer);
+
+        int batch = number("batch");
+        for (int d = 0; d < number("devices"); d++) {
+            Connection conn = db.openWriteConnection();
+            deviceConnections.add(conn);
+            paced("device-" + d, number("uploads"), intended -> uploadBatch(intended, batch, conn));
+        }
+        int doctors = number("doctors");
+        int patients = number("patients");
+        for (int c = 0; c < number("clinicians"); c++) {
+            int doctor = c % doctors;
+            SplittableRandom random = new SplittableRandom(number("seed") + c);
+            paced("clinician-" + c, number("views"), intended -> {
+                int patient = doctor + doctors * random.nextInt(Math.max(1, (patients - doctor + doctors - 1) / doctors));
+                clinicianStep(intended, random.nextInt(100), doctor, patient);
+            });
+        }
+        SplittableRandom panicRandom = new SplittableRandom(number("seed"));
+        paced("panic-button", number("panics") / 60.0, intended -> {
+            int patient = panicRandom.nextInt(patients);
+            Doctor doctor = ward.getDoctor(patient);
+            PanicButton button = new PanicButton(ward.getPatients(wardFrom).get(patient), doctor,
+                    new AlertService(email, List.of(doctor.getEmail())));
+            time(operations.get("panic-button"), intended, () -> {
+                button.pressPanicButton();
+                return true;
+            });
+        });
+        paced("reminder-sweep", 1.0 / number("sweep"), intended -> time(operations.get("reminder-sweep"), intended, () -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (Appointment appointment : db.getApprovedAppointmentsBetween(now, now.plusDays(1))) {
+                reminders.sendAppointmentReminder(appointment);
+            }
+            for (List<Prescription> prescriptions : db.getPrescriptionsForPatients(db.getAdmittedPatientIds()).values()) {
+                for (Prescription prescription : prescriptions) reminders.sendMedicationReminder(prescription);
+            }
+            return true;
+        }));
+    }
+
+    // Uploads the next batch of readings from the stream on the device's connection, storing the bookings and
+    // messages met on the way through the shared connection
+    private void uploadBatch(long intended, int batch, Connection conn) {
+        List<VitalSign> readings = new ArrayList<>(batch);
+        try {
+            while (readings.size() < batch) {
+                PopulationGenerator.Event event = stream.take();
+                switch (event.getType()) {
+                    case PopulationGenerator.Event.VITAL:
+                        readings.add(event.getVital());
+                        break;
+                    case PopulationGenerator.Event.APPOINTMENT:
+                        time(operations.get("book-appointment"), System.nanoTime(), () -> {
+                            Appointment appointment = new Appointment(0, event.getAppointmentTime(),
+                                    patient(event.getPatientId()), doctor(event.getDoctorId()));
+                            db.addAppointment(appointment);
+                            return appointment.getAppointmentID() > 0;
+                        });
+                        break;
+                    default:
+                        time(operations.get("send-message"), System.nanoTime(), () -> {
+                            chatServer.sendMessage(event.getSenderId(), event.getReceiverId(), event.getText());
+                            return true;
+                        });
+                        break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        time(operations.get("upload-vitals"), intended, () -> db.addVitalSigns(readings, conn));
+    }
+
+    private void clinicianStep(long intended, int roll, int doctorIndex, int patientIndex) {
+        Doctor doctor = ward.getDoctors().get(doctorIndex);
+        String patientId = PopulationGenerator.patientId(patientIndex);
+        if (roll < 35) {
+            time(operations.get("view-vitals"), intended, () -> db.getRecentVitalSigns(patientId, 100) != null);
+        } else if (roll < 60) {
+            time(operations.get("view-trends"), intended,
+                    () -> db.getVitalRollups(patientId, VitalRollup.HOUR, LocalDateTime.now().minusDays(1)) != null);
+        } else if (roll < 80) {
+            time(operations.get("open-chat"), intended, () -> chatServer.getMessagesBetween(doctor.getUserID(), patientId) != null);
+        } else if (roll < 90) {
+            time(operations.get("reply"), intended, () -> {
+                chatServer.sendMessage(doctor.getUserID(), patientId, "Thanks, I have reviewed your latest readings.");
+                return true;
+            });
+        } else {
+            time(operations.get("review-appointments"), intended, () -> {
+                Map<Long, String> actions = new LinkedHashMap<>();
+                for (Appointment appointment : db.getPendingAppointmentsForDoctor(doctor.getUserID())) {
+                    actions.put(appointment.getAppointmentID(), "approve");
+                }
+                return actions.isEmpty() || doctor.manageAppointments(actions) >= 0;
+            });
+        }
+    }
+
+    private Patient patient(String patientId) {
+        return ward.getPatients(wardFrom).get(Integer.parseInt(patientId.substring(2)) - 1);
+    }
+
+    private Doctor doctor(String doctorId) {
+        return ward.getDoctors().get(Integer.parseInt(doctorId.substring(2)) - 1);
+    }
+
+    // Starts a user that runs step at a fixed rate, passing the time each step was due to start; a rate of 0 disables it
+    private void paced(String name, double perSecond, LongConsumer step) {
+        if (perSecond <= 0) return;
+        long interval = (long) (1_000_000_000L / perSecond);
+        long offset = new SplittableRandom(name.hashCode()).nextLong(interval);
+        Thread user = new Thread(() -> {
+            long next = System.nanoTime() + offset;
+            while (running) {
+                for (long now = System.nanoTime(); now < next && running; now = System.nanoTime()) {
+                    LockSupport.parkNanos(next - now);
+                }
+                if (!running) break;
+                step.accept(next);
+                next += interval;
+            }
+        }, name);
+        user.setDaemon(true);
+        user.start();
+        users.add(user);
+    }
+
+    private interface Task {
+        boolean run() throws Exception;
+    }
+
+    private void time(Operation operation, long intended, Task task) {
+        boolean ok;
+        try {
+            ok = task.run();
+        } catch (Exception e) {
+            ok = false;
+        }
+        operation.record(System.nanoTime() - intended, ok);
+    }
+
+    private void progress(long elapsedNanos) {
+        StringBuilder line = new StringBuilder(String.format("[%4ds]", elapsedNanos / 1_000_000_000L));
+        for (Operation operation : operations.values()) {
+            Histogram interval = operation.sample();
+            if (interval.getTotalCount() == 0) continue;
+            line.append(String.format(" %s %d p99=%.1fms", operation.name, interval.getTotalCount(),
+                    interval.getValueAtPercentile(99) / 1e6));
+        }
+        System.out.println(line);
+    }
+
+    private int report(double elapsed) throws IOException {
+        File out = new File(options.get("out"));
+        if (!out.isDirectory() && !out.mkdirs()) throw new IOException("Cannot create directory " + out);
+        StringBuilder report = new StringBuilder("RPMS ward load test\nOptions: " + options + "\n");
+        report.append(String.format("Recorded %.1f s; %d notifications sent%n", elapsed, email.sent.get()));
+        report.append(String.format("upload-vitals used %d device connections; every other operation shared one "
+                + "database connection, so its throughput is bounded by that connection%n%n", deviceConnections.size()));
+        report.append(String.format("%-20s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "ops/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        long errors = 0;
+        for (Operation operation : operations.values()) {
+            operation.sample();
+            Histogram histogram = operation.total;
+            if (histogram.getTotalCount() == 0) continue;
+            errors += operation.errors.get();
+            report.append(String.format("%-20s %10d %10.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation.name,
+                    histogram.getTotalCount(), histogram.getTotalCount() / elapsed, operation.errors.get(),
+                    histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+                    histogram.getMaxValue() / 1e6));
+            try (PrintStream hgrm = new PrintStream(new FileOutputStream(new File(out, operation.name + ".hgrm")))) {
+                histogram.outputPercentileDistribution(hgrm, 1e6);
+            }
+        }
+        System.out.println();
+        System.out.print(report);
+        try (PrintStream file = new PrintStream(new FileOutputStream(new File(out, "report.txt")))) {
+            file.print(report);
+        }
+        System.out.println("Report and latency distributions (ms) written to " + out);
+        return errors == 0 ? 0 : 1;
+    }
+
+    // One kind of operation: a lock-free recorder written by the users, drained into the run total
+    private static final class Operation {
+        final String name;
+        final Recorder recorder = new Recorder(3);
+        final Histogram total = new Histogram(3);
+        final AtomicLong errors = new AtomicLong();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean ok) {
+            recorder.recordValue(nanos);
+            if (!ok) errors.incrementAndGet();
+        }
+
+        // Moves what was recorded since the last call into the total and returns it
+        synchronized Histogram sample() {
+            Histogram interval = recorder.getIntervalHistogram();
+            total.add(interval);
+            return interval;
+        }
+
+        synchronized void reset() {
+            recorder.getIntervalHistogram();
+            total.reset();
+            errors.set(0);
+        }
+    }
+
+    // Mail transport stand-in: every send takes a fixed time and is counted, nothing leaves the machine
+    private static final class SimulatedEmail extends EmailNotification {
+        final AtomicLong sent = new AtomicLong();
+        private final long delayMillis;
+
+        SimulatedEmail(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void sendNotification(String message, String recipient, String username, String password) throws NotificationException {
+            if (recipient == null || recipient.isEmpty()) throw new NotificationException("Invalid recipient for email.");
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NotificationException("Interrupted while sending email.");
+            }
+            sent.incrementAndGet();
+        }
+    }
+}
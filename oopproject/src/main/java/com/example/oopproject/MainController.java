@@ -2,14 +2,17 @@
 package com.example.oopproject;
 
 // Import statements for JavaFX, file handling, date/time, and project-specific classes
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.chart.LineChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import java.io.File;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -54,11 +57,13 @@ public class MainController {
     @FXML private TextArea adminOutputArea; // Output area for admin actions
 
     // System components and state variables
-    private DataBase db; // Database instance for data operations
+    private DataBase db; // Database instance for data operations, set once the background connect completes
+    // Services below are created on first use through their getters, so they cost nothing at startup
     private ChatServer chatServer; // Chat server for messaging
     private EmailNotification emailNotification; // Service for email notifications
     private SMSNotification smsNotification; // Service for SMS notifications
     private ReminderService reminderService; // Service for sending reminders
+    private VitalAlertDispatcher alertDispatcher; // Sends abnormal vital alerts in the background
     private FileHandling fileHandling; // Utility for handling CSV files
     private ReportGenerator reportGenerator; // Utility for generating health reports
     private HealthTrendsVisualizer trendsVisualizer; // Utility for visualizing vital trends
@@ -69,19 +74,15 @@ public class MainController {
     @FXML
     public void initialize() {
         try {
-            // Initialize database and verify connection
-            db = DataBase.getInstance();
-            if (!db.isConnected()) {
-                throw new RuntimeException("Database connection is closed.");
-            }
-            // Initialize system services
-            chatServer = new ChatServer(db);
-            emailNotification = new EmailNotification();
-            smsNotification = new SMSNotification();
-            reminderService = new ReminderService(emailNotification);
-            fileHandling = new FileHandling();
-            reportGenerator = new ReportGenerator();
-            trendsVisualizer = new HealthTrendsVisualizer();
+            // Connect to the database in the background so the login screen shows without waiting for it
+            DataBase.connectInBackground().thenAccept(database -> Platform.runLater(() -> {
+                db = database;
+                if (db.isConnected()) {
+                    System.out.println("Database initialized successfully.");
+                } else {
+                    loginErrorLabel.setText("Database unavailable. Please try again later.");
+                }
+            }));
 
             // Initialize normal ranges for vital signs thresholds
             normalRanges = new HashMap<>();
@@ -92,12 +93,65 @@ public class MainController {
 
             // Set up role selection listener to toggle registration fields
             roleCombo.setOnAction(e -> updateRegisterFields());
-            System.out.println("Database initialized successfully.");
         } catch (Exception e) {
             System.err.println("Initialization failed: " + e.getMessage());
         }
     }
 
+    // Lazily created services; the controller only touches them on the FX thread
+    private ChatServer chatServer() {
+        if (chatServer == null) chatServer = new ChatServer(db);
+        return chatServer;
+    }
+
+    private EmailNotification emailNotification() {
+        if (emailNotification == null) emailNotification = new EmailNotification();
+        return emailNotification;
+    }
+
+    private SMSNotification smsNotification() {
+        if (smsNotification == null) smsNotification = new SMSNotification();
+        return smsNotification;
+    }
+
+    private ReminderService reminderService() {
+        if (reminderService == null) reminderService = new ReminderService(emailNotification());
+        return reminderService;
+    }
+
+    private VitalAlertDispatcher alertDispatcher() {
+        if (alertDispatcher == null) alertDispatcher = new VitalAlertDispatcher(db, emailNotification());
+        return alertDispatcher;
+    }
+
+    private FileHandling fileHandling() {
+        if (fileHandling == null) fileHandling = new FileHandling();
+        return fileHandling;
+    }
+
+    private ReportGenerator reportGenerator() {
+        if (reportGenerator == null) reportGenerator = new ReportGenerator();
+        return reportGenerator;
+    }
+
+    private HealthTrendsVisualizer trendsVisualizer() {
+        if (trendsVisualizer == null) trendsVisualizer = new HealthTrendsVisualizer();
+        return trendsVisualizer;
+    }
+
+    // Reports on the given label whether the database is still connecting or unavailable
+    private boolean isDatabaseReady(Label errorLabel) {
+        if (db == null) {
+            errorLabel.setText("Connecting to the database, please try again in a moment.");
+            return false;
+        }
+        if (!db.isConnected()) {
+            errorLabel.setText("Database unavailable. Please try again later.");
+            return false;
+        }
+        return true;
+    }
+
     // Updates visibility of registration fields based on selected role
     private void updateRegisterFields() {
         String role = roleCombo.getValue();
@@ -120,6 +174,7 @@ public class MainController {
                 loginErrorLabel.setText("User ID and password are required.");
                 return;
             }
+            if (!isDatabaseReady(loginErrorLabel)) return;
             // Retrieve user from database and verify credentials
             currentUser = db.getUser(userId);
             if (currentUser != null && currentUser.getPassword().equals(password)) {
@@ -177,6 +232,7 @@ public class MainController {
                 registerErrorLabel.setText("Please select a role.");
                 return;
             }
+            if (!isDatabaseReady(registerErrorLabel)) return;
             // Retrieve and validate common fields
             String userId = regUserIdField.getText().trim();
             String name = regNameField.getText().trim();
@@ -242,12 +298,12 @@ public class MainController {
             patientPane.setVisible(true);
             patientPane.setManaged(true);
             patientWelcomeLabel.setText("Welcome, " + currentUser.getName());
-            ((Patient) currentUser).setChatClient(new ChatClient(currentUser, chatServer));
+            ((Patient) currentUser).setChatClient(new ChatClient(currentUser, chatServer()));
         } else if (currentUser instanceof Doctor) {
             doctorPane.setVisible(true);
             doctorPane.setManaged(true);
             doctorWelcomeLabel.setText("Welcome, Dr. " + currentUser.getName());
-            ((Doctor) currentUser).setChatClient(new ChatClient(currentUser, chatServer));
+            ((Doctor) currentUser).setChatClient(new ChatClient(currentUser, chatServer()));
         } else if (currentUser instanceof Administrator) {
             adminPane.setVisible(true);
             adminPane.setManaged(true);
@@ -292,49 +348,50 @@ public class MainController {
         File file = fileChooser.showOpenDialog(mainContainer.getScene().getWindow());
         if (file != null) {
             // Parse CSV file for vital signs
-            List<VitalSign> vitals = fileHandling.parseCSV(file.getPath(), currentUser.getUserID());
+            List<VitalSign> vitals = fileHandling().parseCSV(file.getPath(), currentUser.getUserID());
             if (vitals.isEmpty()) {
                 patientOutputArea.appendText("No valid data to upload.\n");
                 return;
             }
 
-            List<VitalSign> normalVitals = new ArrayList<>();
-            List<VitalSign> abnormalVitals = new ArrayList<>();
+            // Store every reading, with its severity, in one batch
+            if (!db.addVitalSigns(vitals)) {
+                patientOutputArea.appendText("Failed to upload vitals.\n");
+                return;
+            }
 
-            // Categorize vitals as normal or abnormal based on thresholds
+            // Alert the patient's doctors about abnormal readings in the background
+            List<VitalSign> abnormalVitals = new ArrayList<>();
+            int criticalCount = 0;
             for (VitalSign vital : vitals) {
-                if (isWithinThreshold(vital)) {
-                    normalVitals.add(vital);
-                } else {
+                if (!isWithinThreshold(vital)) {
                     abnormalVitals.add(vital);
+                    if (EmergencyAlert.SEVERITY_CRITICAL.equals(vital.getSeverity())) criticalCount++;
                 }
             }
+            patientOutputArea.appendText("Uploaded " + vitals.size() + " vitals successfully (" +
+                    abnormalVitals.size() + " abnormal, " + criticalCount + " critical).\n");
+            String patientId = currentUser.getUserID();
+            alertDispatcher().dispatch(abnormalVitals).thenAccept(outcomes -> {
+                VitalAlertDispatcher.Outcome outcome = outcomes.get(patientId);
+                if (outcome != null) Platform.runLater(() -> patientOutputArea.appendText(describeAlert(outcome)));
+            });
+        }
+    }
 
-            // Store normal vitals in the database
-            for (VitalSign normalVital : normalVitals) {
-                db.addVitalSign(normalVital);
-            }
-
-            // Notify doctor about abnormal vitals via email
-            if (!abnormalVitals.isEmpty()) {
-                try {
-                    StringBuilder message = new StringBuilder("Abnormal vitals detected for patient " + currentUser.getUserID() + ":\n");
-                    for (VitalSign abnormal : abnormalVitals) {
-                        message.append(String.format("Date: %s, HR: %.2f, BP: %.2f, Temp: %.2f, O2: %.2f\n",
-                                abnormal.getCheckupDate(), abnormal.getHeartRate(), abnormal.getBloodPressure(),
-                                abnormal.getBodyTemperature(), abnormal.getOxygenLevel()));
-                    }
-                    // Note: This sends to the patient's email; intended recipient should be a doctor
-                    User doctor = db.getUser(currentUser.getUserID());
-                    emailNotification.sendNotification(message.toString(), doctor.getEmail());
-                    patientOutputArea.appendText("Notified doctor about " + abnormalVitals.size() + " abnormal vitals.\n");
-                } catch (NotificationException e) {
-                    patientOutputArea.appendText("Error notifying doctor: " + e.getMessage() + "\n");
-                }
-            }
-
-            patientOutputArea.appendText("Uploaded " + normalVitals.size() + " normal vitals successfully. " +
-                    abnormalVitals.size() + " abnormal vitals were not stored.\n");
+    // Tells the patient what happened to the alert about their abnormal vitals
+    private static String describeAlert(VitalAlertDispatcher.Outcome outcome) {
+        switch (outcome) {
+            case SENT:
+                return "Your doctor has been alerted about the abnormal vitals.\n";
+            case DEFERRED:
+                return "Your doctor was alerted recently; these readings will be sent in the next alert within " +
+                        VitalAlertDispatcher.COOLDOWN.toMinutes() + " minutes.\n";
+            case FAILED:
+                return "The alert to your doctor could not be sent yet and will be retried. " +
+                        "If you feel unwell, use the panic button.\n";
+            default:
+                return "No doctor could be alerted about these readings. If you feel unwell, use the panic button.\n";
         }
     }
 
@@ -395,9 +452,19 @@ public class MainController {
                 LocalDateTime time = LocalDateTime.parse(timeInput, formatter);
                 User doctor = db.getUser(doctorId);
                 if (doctor instanceof Doctor) {
-                    ((Patient) currentUser).requestAppointment(time, (Doctor) doctor);
-                    Appointment reminderAppointment = new Appointment(0, time, (Patient) currentUser, (Doctor) doctor);
-                    reminderService.sendAppointmentReminder(reminderAppointment);
+                    Appointment appointment = ((Patient) currentUser).requestAppointment(time, (Doctor) doctor);
+                    if (appointment == null) {
+                        patientOutputArea.appendText("That time is not available.\n");
+                        List<LocalDateTime> slots = AppointmentSlotEngine.getInstance().findAvailableSlots(doctorId, time.toLocalDate());
+                        if (slots.isEmpty()) {
+                            patientOutputArea.appendText("No free slots with this doctor on " + time.toLocalDate() + ".\n");
+                        } else {
+                            patientOutputArea.appendText("Free slots on " + time.toLocalDate() + ":\n");
+                            slots.stream().limit(8).forEach(slot -> patientOutputArea.appendText("  " + slot.format(formatter) + "\n"));
+                        }
+                        return;
+                    }
+                    reminderService().sendAppointmentReminder(appointment);
                     patientOutputArea.appendText("Appointment requested successfully!\n");
                 } else {
                     patientOutputArea.appendText("Doctor not found.\n");
@@ -410,6 +477,41 @@ public class MainController {
         });
     }
 
+    // Opens a dialog to search free appointment slots across all doctors of a specialization
+    @FXML
+    private void showFindAppointmentSlots() {
+        Dialog<String> dialog = new Dialog<>();
+        dialog.setTitle("Find Available Slots");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        VBox content = new VBox(10);
+        TextField specializationField = new TextField();
+        specializationField.setPromptText("Specialization (e.g., Cardiology)");
+        TextField dateField = new TextField();
+        dateField.setPromptText("Date (YYYY-MM-DD)");
+        content.getChildren().addAll(new Label("Specialization:"), specializationField, new Label("Date:"), dateField);
+        dialog.getDialogPane().setContent(content);
+        dialog.setResultConverter(btn -> btn == ButtonType.OK ? specializationField.getText() + ";" + dateField.getText() : null);
+        dialog.showAndWait().ifPresent(result -> {
+            String[] parts = result.split(";");
+            if (parts.length < 2 || parts[0].trim().isEmpty()) {
+                patientOutputArea.appendText("Invalid input. Please provide both specialization and date.\n");
+                return;
+            }
+            try {
+                LocalDate date = LocalDate.parse(parts[1].trim(), DateTimeFormatter.ISO_LOCAL_DATE);
+                List<AppointmentSlotEngine.SlotOffer> offers = AppointmentSlotEngine.getInstance().findAvailableSlots(parts[0].trim(), date, 20);
+                patientOutputArea.clear();
+                if (offers.isEmpty()) {
+                    patientOutputArea.appendText("No free slots found.\n");
+                } else {
+                    offers.forEach(offer -> patientOutputArea.appendText(offer.toString() + "\n"));
+                }
+            } catch (DateTimeParseException e) {
+                patientOutputArea.appendText("Invalid date format. Use YYYY-MM-DD.\n");
+            }
+        });
+    }
+
     // Opens a dialog to start a video consultation with a doctor
     @FXML
     private void showStartVideoConsultation() {
@@ -428,6 +530,12 @@ public class MainController {
             User doctor = db.getUser(doctorId.trim());
             if (doctor instanceof Doctor) {
                 LocalDateTime scheduledTime = LocalDateTime.now();
+                DoctorSchedule schedule = db.getDoctorSchedule(doctorId.trim());
+                if (!schedule.isFree(scheduledTime, scheduledTime.plus(DoctorSchedule.DEFAULT_SLOT))) {
+                    patientOutputArea.appendText("Doctor is currently busy. Next available slot: " +
+                            schedule.nextAvailableSlot(scheduledTime, DoctorSchedule.DEFAULT_SLOT).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) + "\n");
+                    return;
+                }
                 String meetingLink = "https://meet.google.com/landing";
                 VideoCall videoCall = new VideoCall(0, doctorId, currentUser.getUserID(), scheduledTime, meetingLink);
                 db.addVideoConsultation(videoCall);
@@ -481,8 +589,8 @@ public class MainController {
             patientOutputArea.setText("Error: No user logged in.\n");
             return;
         }
-        if (chatServer == null) {
-            patientOutputArea.setText("Error: Chat server not initialized.\n");
+        if (db == null || !db.isConnected()) {
+            patientOutputArea.setText("Error: Database not connected.\n");
             return;
         }
         Dialog<String> dialog = new Dialog<>();
@@ -499,7 +607,7 @@ public class MainController {
             }
             patientOutputArea.clear();
             try {
-                List<String> messages = chatServer.getMessagesBetween(currentUser.getUserID(), otherUserId.trim());
+                List<String> messages = chatServer().getMessagesBetween(currentUser.getUserID(), otherUserId.trim());
                 if (messages.isEmpty()) {
                     patientOutputArea.appendText("No messages found.\n");
                 } else {
@@ -573,7 +681,7 @@ public class MainController {
             }
             String filePath = file.getAbsolutePath();
             System.out.println("Attempting to save report to: " + filePath); // Debug log
-            reportGenerator.generateAndSaveReport(currentUser.getUserID(), db, filePath);
+            reportGenerator().generateAndSaveReport(currentUser.getUserID(), db, filePath);
             patientOutputArea.appendText("Report saved to: " + filePath + "\n");
         } catch (Exception e) {
             patientOutputArea.appendText("Error generating report: " + e.getMessage() + "\n");
@@ -585,7 +693,7 @@ public class MainController {
     // Displays a chart of vital sign trends for the logged-in patient
     @FXML
     private void showVitalTrends() {
-        LineChart<Number, Number> chart = trendsVisualizer.generateVitalTrendsChart(currentUser.getUserID(), db);
+        LineChart<Number, Number> chart = trendsVisualizer().generateVitalTrendsChart(currentUser.getUserID(), db);
         if (chart == null) {
             patientOutputArea.appendText("Error generating vital trends chart.\n");
             return;
@@ -628,7 +736,7 @@ public class MainController {
             User doctor = db.getUser(doctorId);
             if (doctor instanceof Doctor) {
                 try {
-                    ((Patient) currentUser).sendRealTimeSMS((Doctor) doctor, message, smsNotification);
+                    ((Patient) currentUser).sendRealTimeSMS((Doctor) doctor, message, smsNotification());
                     patientOutputArea.appendText("SMS sent to " + doctor.getContactInfo() + "\n");
                 } catch (NotificationException e) {
                     patientOutputArea.appendText("Error sending SMS: " + e.getMessage() + "\n");
@@ -674,14 +782,30 @@ public class MainController {
         dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
         TextField patientIdField = new TextField();
         patientIdField.setPromptText("Patient ID");
-        dialog.getDialogPane().setContent(new VBox(10, new Label("Patient ID:"), patientIdField));
-        dialog.setResultConverter(btn -> btn == ButtonType.OK ? patientIdField.getText() : null);
-        dialog.showAndWait().ifPresent(patientId -> {
-            if (patientId == null || patientId.trim().isEmpty()) {
+        ComboBox<String> modeCombo = new ComboBox<>();
+        modeCombo.getItems().addAll("History", "Live Monitor");
+        modeCombo.setValue("History");
+        dialog.getDialogPane().setContent(new VBox(10, new Label("Patient ID:"), patientIdField,
+                new Label("Mode:"), modeCombo));
+        dialog.setResultConverter(btn -> btn == ButtonType.OK ? patientIdField.getText() + ";" + modeCombo.getValue() : null);
+        dialog.showAndWait().ifPresent(result -> {
+            String[] parts = result.split(";", -1);
+            String patientId = parts[0];
+            if (patientId.trim().isEmpty()) {
                 doctorOutputArea.appendText("Patient ID is required.\n");
                 return;
             }
-            LineChart<Number, Number> chart = trendsVisualizer.generateVitalTrendsChart(patientId.trim(), db);
+            if ("Live Monitor".equals(parts[1])) {
+                LiveVitalsChart liveChart = trendsVisualizer().generateLiveVitalTrendsChart(patientId.trim(), db);
+                Stage chartStage = new Stage();
+                chartStage.setTitle("Live Vital Signs for Patient " + patientId);
+                chartStage.setScene(new Scene(liveChart.getChart(), 800, 600));
+                chartStage.setOnHidden(e -> liveChart.close());
+                chartStage.show();
+                doctorOutputArea.appendText("Live vitals monitor opened for patient " + patientId + ".\n");
+                return;
+            }
+            LineChart<Number, Number> chart = trendsVisualizer().generateVitalTrendsChart(patientId.trim(), db);
             if (chart == null) {
                 doctorOutputArea.appendText("Error generating vital trends chart for patient " + patientId + ".\n");
                 return;
@@ -768,12 +892,12 @@ public class MainController {
             }
             Prescription prescription = new Prescription(0, patientId, medication, dosage, schedule);
             ((Doctor) currentUser).prescribeMedication(prescription);
-            reminderService.sendMedicationReminder(prescription);
+            reminderService().sendMedicationReminder(prescription);
             doctorOutputArea.appendText("Prescription added.\n");
         });
     }
 
-    // Opens a dialog to manage pending appointments
+    // Opens a dialog to approve or cancel several pending appointments at once
     @FXML
     private void showManageAppointments() {
         List<Appointment> pending = db.getPendingAppointmentsForDoctor(currentUser.getUserID());
@@ -782,39 +906,44 @@ public class MainController {
             doctorOutputArea.appendText("No pending appointments.\n");
             return;
         }
-        pending.forEach(app -> doctorOutputArea.appendText(app.toString() + "\n"));
         Dialog<String> dialog = new Dialog<>();
         dialog.setTitle("Manage Appointments");
         dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
         VBox content = new VBox(10);
-        TextField appointmentIdField = new TextField();
-        appointmentIdField.setPromptText("Appointment ID");
+        ListView<String> appointmentList = new ListView<>();
+        appointmentList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        appointmentList.setPrefHeight(250);
+        Map<String, Long> appointmentIds = new LinkedHashMap<>();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        for (Appointment app : pending) {
+            String item = "#" + app.getAppointmentID() + "  " + app.getAppointmentTime().format(formatter) + "  " + app.getPatient().getName();
+            appointmentIds.put(item, app.getAppointmentID());
+            appointmentList.getItems().add(item);
+        }
         ComboBox<String> actionCombo = new ComboBox<>();
         actionCombo.getItems().addAll("Approve", "Cancel");
         actionCombo.setPromptText("Select Action");
-        content.getChildren().addAll(new Label("Appointment ID:"), appointmentIdField, new Label("Action:"), actionCombo);
+        content.getChildren().addAll(new Label("Pending appointments (Ctrl/Shift-click to select several):"), appointmentList,
+                new Label("Action:"), actionCombo);
         dialog.getDialogPane().setContent(content);
-        dialog.setResultConverter(btn -> btn == ButtonType.OK ? appointmentIdField.getText() + ";" + actionCombo.getValue() : null);
-        dialog.showAndWait().ifPresent(result -> {
-            String[] parts = result.split(";");
-            if (parts.length < 2) {
-                doctorOutputArea.appendText("Invalid input. Please provide both Appointment ID and action.\n");
+        dialog.setResultConverter(btn -> btn == ButtonType.OK ? (actionCombo.getValue() != null ? actionCombo.getValue() : "") : null);
+        dialog.showAndWait().ifPresent(action -> {
+            if (action.isEmpty()) {
+                doctorOutputArea.appendText("Please select an action.\n");
                 return;
             }
-            String appointmentIdStr = parts[0].trim();
-            String action = parts[1].trim();
-            if (appointmentIdStr.isEmpty() || action.isEmpty()) {
-                doctorOutputArea.appendText("Appointment ID and action are required.\n");
+            List<String> selected = new ArrayList<>(appointmentList.getSelectionModel().getSelectedItems());
+            if (selected.isEmpty()) {
+                doctorOutputArea.appendText("Please select at least one appointment.\n");
                 return;
             }
+            Map<Long, String> actions = new LinkedHashMap<>();
+            for (String item : selected) actions.put(appointmentIds.get(item), action.toLowerCase());
             try {
-                long appointmentId = Long.parseLong(appointmentIdStr);
-                ((Doctor) currentUser).manageAppointment(appointmentId, action.toLowerCase());
-                doctorOutputArea.appendText("Appointment " + action.toLowerCase() + "d.\n");
-            } catch (NumberFormatException e) {
-                doctorOutputArea.appendText("Invalid Appointment ID. Please enter a valid number.\n");
+                int updated = ((Doctor) currentUser).manageAppointments(actions);
+                doctorOutputArea.appendText(updated + " appointment(s) " + action.toLowerCase() + "d.\n");
             } catch (Exception e) {
-                doctorOutputArea.appendText("Error managing appointment: " + e.getMessage() + "\n");
+                doctorOutputArea.appendText("Error managing appointments: " + e.getMessage() + "\n");
             }
         });
     }
@@ -890,8 +1019,8 @@ public class MainController {
             doctorOutputArea.setText("Error: No user logged in.\n");
             return;
         }
-        if (chatServer == null) {
-            doctorOutputArea.setText("Error: Chat server not initialized.\n");
+        if (db == null || !db.isConnected()) {
+            doctorOutputArea.setText("Error: Database not connected.\n");
             return;
         }
         Dialog<String> dialog = new Dialog<>();
@@ -908,7 +1037,7 @@ public class MainController {
             }
             doctorOutputArea.clear();
             try {
-                List<String> messages = chatServer.getMessagesBetween(currentUser.getUserID(), otherUserId.trim());
+                List<String> messages = chatServer().getMessagesBetween(currentUser.getUserID(), otherUserId.trim());
                 if (messages.isEmpty()) {
                     doctorOutputArea.appendText("No messages found.\n");
                 } else {
@@ -920,6 +1049,118 @@ public class MainController {
         });
     }
 
+    // Displays the doctor's conversation list with unread counts
+    @FXML
+    private void handleDoctorInbox() {
+        if (currentUser == null) {
+            doctorOutputArea.setText("Error: No user logged in.\n");
+            return;
+        }
+        doctorOutputArea.clear();
+        List<ChatInbox.ConversationSummary> conversations = chatServer().getConversations(currentUser.getUserID());
+        if (conversations.isEmpty()) {
+            doctorOutputArea.appendText("No conversations yet.\n");
+        } else {
+            conversations.forEach(c -> doctorOutputArea.appendText(c.toString() + "\n"));
+        }
+    }
+
+    // Opens a dialog for a doctor to search their chat conversations
+    @FXML
+    private void showDoctorSearchChats() {
+        if (currentUser == null) {
+            doctorOutputArea.setText("Error: No user logged in.\n");
+            return;
+        }
+        Dialog<String> dialog = new Dialog<>();
+        dialog.setTitle("Search Chats");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        TextField queryField = new TextField();
+        queryField.setPromptText("e.g. \"dose changed\" or insulin*");
+        dialog.getDialogPane().setContent(new VBox(10, new Label("Search terms:"), queryField));
+        dialog.setResultConverter(btn -> btn == ButtonType.OK ? queryField.getText() : null);
+        dialog.showAndWait().ifPresent(query -> {
+            if (query == null || query.trim().isEmpty()) {
+                doctorOutputArea.appendText("Search terms are required.\n");
+                return;
+            }
+            doctorOutputArea.clear();
+            List<String> results = chatServer().searchMessages(currentUser.getUserID(), query.trim());
+            if (results.isEmpty()) {
+                doctorOutputArea.appendText("No matching messages found.\n");
+            } else {
+                results.forEach(msg -> doctorOutputArea.appendText(msg + "\n"));
+            }
+        });
+    }
+
+    // Generates reports for all of the doctor's patients, or all admitted patients, into a folder or zip file
+    @FXML
+    private void showCohortReports() {
+        if (currentUser == null) {
+            doctorOutputArea.setText("Error: No user logged in.\n");
+            return;
+        }
+        Dialog<String> dialog = new Dialog<>();
+        dialog.setTitle("Cohort Reports");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        ComboBox<String> scopeCombo = new ComboBox<>();
+        scopeCombo.getItems().addAll("My Patients", "All Admitted Patients");
+        scopeCombo.setValue("My Patients");
+        ComboBox<String> outputCombo = new ComboBox<>();
+        outputCombo.getItems().addAll("Folder", "Zip Archive");
+        outputCombo.setValue("Folder");
+        dialog.getDialogPane().setContent(new VBox(10,
+                new Label("Patients:"), scopeCombo,
+                new Label("Save As:"), outputCombo));
+        dialog.setResultConverter(btn -> btn == ButtonType.OK ? scopeCombo.getValue() + ";" + outputCombo.getValue() : null);
+        dialog.showAndWait().ifPresent(result -> {
+            String[] parts = result.split(";");
+            List<String> patientIds = "All Admitted Patients".equals(parts[0])
+                    ? db.getAdmittedPatientIds()
+                    : db.getPatientIdsForDoctor(currentUser.getUserID());
+            if (patientIds.isEmpty()) {
+                doctorOutputArea.appendText("No patients found for cohort reports.\n");
+                return;
+            }
+            File output;
+            if ("Zip Archive".equals(parts[1])) {
+                FileChooser fileChooser = new FileChooser();
+                fileChooser.setTitle("Save Cohort Reports");
+                fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip Files", "*.zip"));
+                fileChooser.setInitialFileName("cohort_reports_" + LocalDate.now() + ".zip");
+                fileChooser.setInitialDirectory(new File(System.getProperty("user.home")));
+                output = fileChooser.showSaveDialog(mainContainer.getScene().getWindow());
+            } else {
+                DirectoryChooser directoryChooser = new DirectoryChooser();
+                directoryChooser.setTitle("Choose Report Folder");
+                directoryChooser.setInitialDirectory(new File(System.getProperty("user.home")));
+                output = directoryChooser.showDialog(mainContainer.getScene().getWindow());
+            }
+            if (output == null) {
+                doctorOutputArea.appendText("Cohort report generation cancelled.\n");
+                return;
+            }
+            doctorOutputArea.appendText("Generating " + patientIds.size() + " reports...\n");
+            int step = Math.max(1, patientIds.size() / 10);
+            CohortReportJob job = new CohortReportJob(db, reportGenerator(), Runtime.getRuntime().availableProcessors());
+            Thread worker = new Thread(() -> {
+                try {
+                    CohortReportJob.Result summary = job.run(patientIds, output, (done, total) -> {
+                        if (done % step == 0 || done.equals(total)) {
+                            Platform.runLater(() -> doctorOutputArea.appendText("Progress: " + done + "/" + total + "\n"));
+                        }
+                    });
+                    Platform.runLater(() -> doctorOutputArea.appendText("Cohort reports saved to " + output.getAbsolutePath() + ": " + summary + "\n"));
+                } catch (IOException e) {
+                    Platform.runLater(() -> doctorOutputArea.appendText("Error generating cohort reports: " + e.getMessage() + "\n"));
+                }
+            }, "cohort-report-job");
+            worker.setDaemon(true);
+            worker.start();
+        });
+    }
+
     // Opens a dialog for a doctor to generate a health report for a patient
     @FXML
     private void showGeneratePatientReport() {
@@ -928,13 +1169,20 @@ public class MainController {
         dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
         TextField patientIdField = new TextField();
         patientIdField.setPromptText("Patient ID");
-        dialog.getDialogPane().setContent(new VBox(10, new Label("Patient ID:"), patientIdField));
-        dialog.setResultConverter(btn -> btn == ButtonType.OK ? patientIdField.getText() : null);
-        dialog.showAndWait().ifPresent(patientId -> {
-            if (patientId == null || patientId.trim().isEmpty()) {
+        ComboBox<String> windowCombo = new ComboBox<>();
+        windowCombo.getItems().addAll("Full History", "Last 7 Days", "Last 30 Days", "Last 90 Days");
+        windowCombo.setValue("Full History");
+        dialog.getDialogPane().setContent(new VBox(10, new Label("Patient ID:"), patientIdField,
+                new Label("Statistics Period:"), windowCombo));
+        dialog.setResultConverter(btn -> btn == ButtonType.OK ? patientIdField.getText() + ";" + windowCombo.getValue() : null);
+        dialog.showAndWait().ifPresent(result -> {
+            String[] parts = result.split(";", -1);
+            String patientId = parts[0];
+            if (patientId.trim().isEmpty()) {
                 doctorOutputArea.appendText("Patient ID is required.\n");
                 return;
             }
+            int windowDays = parts[1].startsWith("Last ") ? Integer.parseInt(parts[1].replaceAll("\\D", "")) : 0;
             User patient = db.getUser(patientId.trim());
             if (!(patient instanceof Patient)) {
                 doctorOutputArea.appendText("Patient not found.\n");
@@ -962,7 +1210,7 @@ public class MainController {
                 }
                 String filePath = file.getAbsolutePath();
                 System.out.println("Attempting to save report to: " + filePath); // Debug log
-                reportGenerator.generateAndSaveReport(patientId.trim(), db, filePath);
+                reportGenerator().generateAndSaveReport(patientId.trim(), db, filePath, windowDays);
                 doctorOutputArea.appendText("Report saved to: " + filePath + "\n");
             } catch (Exception e) {
                 doctorOutputArea.appendText("Error generating report: " + e.getMessage() + "\n");
@@ -1155,6 +1403,33 @@ public class MainController {
         });
     }
 
+    // Opens a dialog to archive chat messages older than a given number of days
+    @FXML
+    private void showArchiveMessages() {
+        Dialog<String> dialog = new Dialog<>();
+        dialog.setTitle("Archive Old Messages");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        TextField daysField = new TextField();
+        daysField.setPromptText("Days (e.g., 90)");
+        dialog.getDialogPane().setContent(new VBox(10, new Label("Archive messages older than (days):"), daysField));
+        dialog.setResultConverter(btn -> btn == ButtonType.OK ? daysField.getText() : null);
+        dialog.showAndWait().ifPresent(days -> {
+            try {
+                int archived = db.archiveMessagesOlderThan(Integer.parseInt(days.trim()));
+                adminOutputArea.appendText("Archived " + archived + " messages.\n");
+            } catch (NumberFormatException e) {
+                adminOutputArea.appendText("Invalid number of days. Please enter a whole number.\n");
+            }
+        });
+    }
+
+    // Rebuilds the pre-aggregated vitals of every patient, e.g. after a bulk import
+    @FXML
+    private void handleCompactVitalRollups() {
+        int rebuilt = db.compactVitalRollups(null);
+        adminOutputArea.appendText("Rebuilt vital rollups for " + rebuilt + " patients.\n");
+    }
+
     // Displays system logs in the admin dashboard
     @FXML
     private void handleViewSystemLogs() {
@@ -0,0 +1,261 @@
+// Package declaration for the Remote Patient Monitoring System (RPMS) project
+package com.example.oopproject;
+
+// Import statements for file handling, date/time, concurrency, and project-specific classes
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+import com.sun.net.httpserver.HttpServer;
+
+import static com.example.oopproject.EmergencyAlert.isWithinThreshold;
+
+// Headless entry point for batch jobs. Unlike RPMSMain it does not extend Application, so the
+// Java launcher never starts the FX toolkit and jobs can run from cron on servers without a display:
+//   java -cp <classpath> com.example.oopproject.RPMSCommandLine <command> [arguments]
+// With -Drpms.metrics.port=<port> the job's metrics are served while it runs, as in the application.
+public class RPMSCommandLine {
+    private static final String USAGE = String.join("\n",
+            "Usage: RPMSCommandLine <command> [arguments]",
+            "Commands:",
+            "  import-vitals <patientId> <file.csv>   Store the readings in a vitals CSV and alert on abnormal ones",
+            "  report <patientId> <output> [days]     Generate a patient health report",
+            "  cohort-report <output.zip|dir> [doctorId]",
+            "                                         Generate reports for a doctor's patients, or all admitted patients",
+            "  reminders [hours]                      Send reminders for approved appointments in the next hours (default 24)",
+            "                                         and medication reminders for admitted patients",
+            "  evaluate-alerts [hours]                Alert doctors about abnormal vitals from the last hours (default 24)",
+            "                                         that no alert has been sent for yet",
+            "  ingest [port]                          Run the device ingestion endpoint until stopped (default port "
+                    + VitalIngestionServer.DEFAULT_PORT + ")",
+            "                                         on loopback; remote devices need -Drpms.ingest.bind=<address> and",
+            "                                         -Drpms.ingest.token=<token>, sent first as \"AUTH <token>\"",
+            "  generate-population <dir> [key=value ...]",
+            "                                         Write a synthetic cohort: roster.csv and events.csv, plus vitals/*.csv",
+            "                                         with csv=true; seed the database with db=true. Keys: patients (1000),",
+            "                                         doctors (patients/50), rate (readings per minute, 1), hours (24),",
+            "                                         appointments (per patient per day, 0.05), messages (0.5), seed (42)");
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    // Runs one command and returns the process exit code: 0 on success, 1 on failure, 2 on bad usage
+    static int run(String[] args) {
+        if (args.length == 0 || "help".equals(args[0]) || "--help".equals(args[0])) {
+            System.out.println(USAGE);
+            return args.length == 0 ? 2 : 0;
+        }
+        String command = args[0];
+        String[] params = Arrays.copyOfRange(args, 1, args.length);
+        HttpServer metricsServer = Metrics.startConfiguredHttpServer();
+        try {
+            switch (command) {
+                case "import-vitals":
+                    return params.length == 2 ? importVitals(params[0], params[1]) : usage();
+                case "report":
+                    return params.length == 2 || params.length == 3
+                            ? report(params[0], params[1], params.length == 3 ? Integer.parseInt(params[2]) : 0) : usage();
+                case "cohort-report":
+                    return params.length == 1 || params.length == 2
+                            ? cohortReport(params[0], params.length == 2 ? params[1] : null) : usage();
+                case "reminders":
+                    return params.length <= 1 ? reminders(params.length == 1 ? Integer.parseInt(params[0]) : 24) : usage();
+                case "evaluate-alerts":
+                    return params.length <= 1 ? evaluateAlerts(params.length == 1 ? Integer.parseInt(params[0]) : 24) : usage();
+                case "ingest":
+                    return params.length <= 1
+                            ? ingest(params.length == 1 ? Integer.parseInt(params[0]) : VitalIngestionServer.DEFAULT_PORT) : usage();
+                case "generate-population":
+                    return params.length >= 1 ? generatePopulation(params[0], Arrays.copyOfRange(params, 1, params.length)) : usage();
+                default:
+                    System.err.println("Unknown command: " + command);
+                    return usage();
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            return usage();
+        } finally {
+            if (metricsServer != null) metricsServer.stop(0);
+        }
+    }
+
+    private static int usage() {
+        System.err.println(USAGE);
+        return 2;
+    }
+
+    private static DataBase connect() {
+        DataBase db = DataBase.getInstance();
+        if (!db.isConnected()) {
+            System.err.println("Database connection failed.");
+            return null;
+        }
+        return db;
+    }
+
+    private static int importVitals(String patientId, String filePath) {
+        DataBase db = connect();
+        if (db == null) return 1;
+        List<VitalSign> vitals = new FileHandling().parseCSV(filePath, patientId);
+        if (vitals.isEmpty()) {
+            System.err.println("No valid data to import from " + filePath);
+            return 1;
+        }
+        if (!db.addVitalSigns(vitals)) return 1;
+        List<VitalSign> abnormal = new ArrayList<>();
+        for (VitalSign vital : vitals) {
+            if (!isWithinThreshold(vital)) abnormal.add(vital);
+        }
+        try (VitalAlertDispatcher dispatcher = new VitalAlertDispatcher(db, new EmailNotification())) {
+            dispatcher.dispatch(abnormal);
+        }
+        System.out.println("Imported " + vitals.size() + " vitals for patient " + patientId + " (" + abnormal.size() + " abnormal).");
+        return 0;
+    }
+
+    private static int report(String patientId, String output, int days) {
+        DataBase db = connect();
+        if (db == null) return 1;
+        if (!(db.getUser(patientId) instanceof Patient)) {
+            System.err.println("Patient not found: " + patientId);
+            return 1;
+        }
+        new ReportGenerator().generateAndSaveReport(patientId, db, output, days);
+        if (!new File(output).isFile()) return 1;
+        System.out.println("Report saved to " + output);
+        return 0;
+    }
+
+    private static int cohortReport(String output, String doctorId) {
+        DataBase db = connect();
+        if (db == null) return 1;
+        List<String> patientIds = doctorId != null ? db.getPatientIdsForDoctor(doctorId) : db.getAdmittedPatientIds();
+        if (patientIds.isEmpty()) {
+            System.err.println("No patients to report on.");
+            return 1;
+        }
+        CohortReportJob job = new CohortReportJob(db, new ReportGenerator(), Runtime.getRuntime().availableProcessors());
+        int step = Math.max(1, patientIds.size() / 10);
+        try {
+            CohortReportJob.Result result = job.run(patientIds, new File(output), (done, total) -> {
+                if (done % step == 0 || done.equals(total)) System.out.println("Generated " + done + " of " + total + " reports");
+            });
+            System.out.println(result);
+            return result.getFailures() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Error generating cohort reports: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int reminders(int hours) {
+        DataBase db = connect();
+        if (db == null) return 1;
+        ReminderService reminderService = new ReminderService(new EmailNotification());
+        LocalDateTime now = LocalDateTime.now();
+        List<Appointment> appointments = db.getApprovedAppointmentsBetween(now, now.plusHours(hours));
+        for (Appointment appointment : appointments) reminderService.sendAppointmentReminder(appointment);
+        int medications = 0;
+        for (List<Prescription> prescriptions : db.getPrescriptionsForPatients(db.getAdmittedPatientIds()).values()) {
+            for (Prescription prescription : prescriptions) {
+                reminderService.sendMedicationReminder(prescription);
+                medications++;
+            }
+        }
+        System.out.println("Sent " + appointments.size() + " appointment reminders and " + medications + " medication reminders.");
+        return 0;
+    }
+
+    private static int evaluateAlerts(int hours) {
+        DataBase db = connect();
+        if (db == null) return 1;
+        List<VitalSign> flagged = db.getFlaggedVitalSigns(LocalDateTime.now().minusHours(hours));
+        Set<String> patients = new HashSet<>();
+        for (VitalSign vital : flagged) patients.add(vital.getPatientID());
+        try (VitalAlertDispatcher dispatcher = new VitalAlertDispatcher(db, new EmailNotification())) {
+            dispatcher.dispatch(flagged);
+        }
+        System.out.println("Evaluated " + flagged.size() + " unalerted abnormal vitals for " + patients.size() + " patients.");
+        return 0;
+    }
+
+    private static int ingest(int port) {
+        DataBase db = connect();
+        if (db == null) return 1;
+        VitalAlertDispatcher dispatcher = new VitalAlertDispatcher(db, new EmailNotification());
+        VitalIngestionServer server = new VitalIngestionServer(port, db, dispatcher);
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.err.println("Error starting vital ingestion server: " + e.getMessage());
+            dispatcher.close();
+            return 1;
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            dispatcher.close();
+            stopped.countDown();
+        }, "vital-ingest-shutdown"));
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static int generatePopulation(String directory, String[] options) {
+        Map<String, String> values = new HashMap<>();
+        for (String option : options) {
+            int separator = option.indexOf('=');
+            if (separator <= 0) return usage();
+            values.put(option.substring(0, separator), option.substring(separator + 1));
+        }
+        int patients = Integer.parseInt(values.getOrDefault("patients", "1000"));
+        int doctors = Integer.parseInt(values.getOrDefault("doctors", String.valueOf(Math.max(1, patients / 50))));
+        Duration span = Duration.ofMinutes(Math.round(Double.parseDouble(values.getOrDefault("hours", "24")) * 60));
+        PopulationGenerator generator = new PopulationGenerator(patients, doctors,
+                Double.parseDouble(values.getOrDefault("rate", "1")),
+                Double.parseDouble(values.getOrDefault("appointments", "0.05")),
+                Double.parseDouble(values.getOrDefault("messages", "0.5")),
+                Long.parseLong(values.getOrDefault("seed", "42")));
+        LocalDateTime from = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minus(span);
+
+        File dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.err.println("Cannot create directory " + directory);
+            return 1;
+        }
+        long events;
+        try {
+            generator.writeRoster(new File(dir, "roster.csv"), from);
+            events = generator.writeEventStream(new File(dir, "events.csv"), from, span);
+            System.out.println("Wrote " + patients + " patients, " + doctors + " doctors and " + events + " events to " + directory);
+            if (Boolean.parseBoolean(values.get("csv"))) {
+                long readings = generator.writeVitalsCsv(new File(dir, "vitals"), from, span);
+                System.out.println("Wrote " + readings + " readings to " + new File(dir, "vitals"));
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing population: " + e.getMessage());
+            return 1;
+        }
+        if (Boolean.parseBoolean(values.get("db"))) {
+            DataBase db = connect();
+            if (db == null) return 1;
+            long stored = generator.seed(db, from, span);
+            System.out.println("Stored " + stored + " events in the database.");
+            // The generator is deterministic, so the seed covers the same events as the stream written above
+            if (stored < events) {
+                System.err.println((events - stored) + " of " + events + " events were not stored.");
+                return 1;
+            }
+        }
+        return 0;
+    }
+}
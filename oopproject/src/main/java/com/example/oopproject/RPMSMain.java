@@ -1,32 +1,101 @@
 package com.example.oopproject;
 
+import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.*;
 import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import com.sun.net.httpserver.HttpServer;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import java.io.File;
 
 import jakarta.mail.*;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.chart.NumberAxis;
+import javafx.util.StringConverter;
 
 /**
  * Interface defining operations for user management in the Remote Patient Monitoring System (RPMS).
@@ -193,15 +262,14 @@ class Patient extends User {
 
     /**
      * Requests an appointment with a specified doctor at a given time.
+     * The appointment is only booked if the doctor is free for the whole appointment during working hours.
      *
      * @param time   The date and time of the requested appointment.
      * @param doctor The doctor with whom the appointment is requested.
+     * @return The pending appointment, or null if the requested time is not available.
      */
-    public void requestAppointment(LocalDateTime time, Doctor doctor) {
-        DataBase db = DataBase.getInstance();
-        Appointment appointment = new Appointment(0, time, this, doctor);
-        appointment.setAppointmentStatus("Pending");
-        db.addAppointment(appointment);
+    public Appointment requestAppointment(LocalDateTime time, Doctor doctor) {
+        return AppointmentSlotEngine.getInstance().book(this, doctor, time);
     }
 
     /** @return The patient's chat client instance. */
@@ -344,6 +412,22 @@ class Doctor extends User {
         else if (action.equalsIgnoreCase("cancel")) db.updateAppointmentStatus(appointmentId, "Canceled");
     }
 
+    /**
+     * Manages several of this doctor's appointments at once in a single database transaction. IDs of other
+     * doctors' appointments are ignored.
+     *
+     * @param actions A map from appointment ID to the action to perform ("approve" or "cancel").
+     * @return The number of appointments updated.
+     */
+    public int manageAppointments(Map<Long, String> actions) {
+        Map<Long, String> statuses = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> entry : actions.entrySet()) {
+            if (entry.getValue().equalsIgnoreCase("approve")) statuses.put(entry.getKey(), "Approved");
+            else if (entry.getValue().equalsIgnoreCase("cancel")) statuses.put(entry.getKey(), "Canceled");
+        }
+        return DataBase.getInstance().updateAppointmentStatuses(getUserID(), statuses);
+    }
+
     /**
      * Receives an alert message and displays it.
      *
@@ -519,9 +603,10 @@ class VitalSign {
     private double bodyTemperature;
     private double oxygenLevel;
     private LocalDate checkupDate;
+    private LocalDateTime timestamp;
 
     /**
-     * Constructs a new VitalSign with the specified health metrics.
+     * Constructs a new VitalSign with the specified health metrics, recorded at the start of the checkup date.
      *
      * @param patientID      The ID of the patient.
      * @param heartRate      The patient's heart rate (beats per minute).
@@ -531,12 +616,28 @@ class VitalSign {
      * @param checkupDate    The date of the checkup.
      */
     public VitalSign(String patientID, double heartRate, double bloodPressure, double bodyTemperature, double oxygenLevel, LocalDate checkupDate) {
+        this(patientID, heartRate, bloodPressure, bodyTemperature, oxygenLevel,
+                checkupDate != null ? checkupDate.atStartOfDay() : null);
+    }
+
+    /**
+     * Constructs a new VitalSign with the specified health metrics and the exact time they were recorded.
+     *
+     * @param patientID      The ID of the patient.
+     * @param heartRate      The patient's heart rate (beats per minute).
+     * @param bloodPressure  The patient's blood pressure (mmHg).
+     * @param bodyTemperature The patient's body temperature (Celsius).
+     * @param oxygenLevel    The patient's oxygen saturation level (%).
+     * @param timestamp      The time the readings were taken.
+     */
+    public VitalSign(String patientID, double heartRate, double bloodPressure, double bodyTemperature, double oxygenLevel, LocalDateTime timestamp) {
         this.patientID = patientID;
         this.heartRate = heartRate;
         this.bloodPressure = bloodPressure;
         this.bodyTemperature = bodyTemperature;
         this.oxygenLevel = oxygenLevel;
-        this.checkupDate = checkupDate;
+        this.timestamp = timestamp;
+        this.checkupDate = timestamp != null ? timestamp.toLocalDate() : null;
     }
 
     /** @return The ID of the patient. */
@@ -557,6 +658,12 @@ class VitalSign {
     /** @return The date of the checkup. */
     public LocalDate getCheckupDate() { return checkupDate; }
 
+    /** @return The time the readings were taken. */
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    /** @return The severity of the readings, as classified by {@link EmergencyAlert#getSeverity(VitalSign)}. */
+    public String getSeverity() { return EmergencyAlert.getSeverity(this); }
+
     /**
      * Returns a string representation of the vital signs.
      *
@@ -565,7 +672,8 @@ class VitalSign {
     @Override
     public String toString() {
         return String.format("Patient: %s\nHeart Rate: %.2f\nBlood Pressure: %.2f\nTemperature: %.2f\nOxygen Level: %.2f\nDate: %s\n",
-                patientID, heartRate, bloodPressure, bodyTemperature, oxygenLevel, checkupDate);
+                patientID, heartRate, bloodPressure, bodyTemperature, oxygenLevel,
+                timestamp != null ? timestamp.format(ChatSearchIndex.TIMESTAMP_FORMAT) : checkupDate);
     }
 }
 
@@ -711,50 +819,114 @@ class ChatServer {
      * @param senderID   The ID of the sender.
      * @param receiverID The ID of the receiver.
      * @param message    The message content.
+     * @return True if the message was stored.
      */
-    public void sendMessage(String senderID, String receiverID, String message) {
-        db.addMessage(senderID, receiverID, message);
+    public boolean sendMessage(String senderID, String receiverID, String message) {
+        return db.addMessage(senderID, receiverID, message);
     }
 
     /**
-     * Retrieves messages between two users from the database.
+     * Retrieves messages between two users from the database and marks the conversation as read for the first user.
      *
      * @param user1 The ID of the first user.
      * @param user2 The ID of the second user.
      * @return A list of message strings between the two users.
      */
     public List<String> getMessages(String user1, String user2) {
-        return db.getMessagesBetween(user1, user2);
+        return readConversation(user1, user2, false);
+    }
+
+    /**
+     * Retrieves the conversation list of a user from the in-memory inbox.
+     *
+     * @param userId The ID of the user.
+     * @return The user's conversation summaries, most recent first.
+     */
+    public List<ChatInbox.ConversationSummary> getConversations(String userId) {
+        return db.getChatInbox().getConversations(userId);
     }
 
     /**
-     * Retrieves messages between two users, including timestamps.
+     * Retrieves messages between two users, including timestamps, and marks the conversation as read for the first user.
      *
      * @param userId1 The ID of the first user.
      * @param userId2 The ID of the second user.
      * @return A list of formatted message strings with timestamps.
      */
     public List<String> getMessagesBetween(String userId1, String userId2) {
+        return readConversation(userId1, userId2, true);
+    }
+
+    /**
+     * Marks a conversation as read for the first user and returns its archived messages followed by those still
+     * in the messages table. Rows that are also in the archive, left behind if archiving stopped between writing
+     * a segment and deleting the rows, are skipped.
+     *
+     * @param userId1        The ID of the first user.
+     * @param userId2        The ID of the second user.
+     * @param withTimestamps True to prefix each message with its timestamp.
+     * @return A list of formatted message strings, oldest first.
+     */
+    private List<String> readConversation(String userId1, String userId2, boolean withTimestamps) {
+        db.getChatInbox().markRead(userId1, userId2);
         List<String> messages = new ArrayList<>();
+        Set<Long> archivedIds = new HashSet<>();
+        for (MessageArchive.ArchivedMessage m : getArchivedMessages(userId1, userId2)) {
+            archivedIds.add(m.getMessageID());
+            String prefix = withTimestamps ? "[" + m.getTimestamp().format(ChatSearchIndex.TIMESTAMP_FORMAT) + "] " : "";
+            messages.add(prefix + m.getSenderID() + ": " + m.getMessage());
+        }
         String query = "SELECT * FROM messages WHERE (sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?) ORDER BY timestamp";
-        try (Connection conn = db.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        // The shared connection must stay open, so only the statement is closed here
+        Connection conn = db.getConnection();
+        if (conn == null) return messages;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, userId1);
             stmt.setString(2, userId2);
             stmt.setString(3, userId2);
             stmt.setString(4, userId1);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
+                if (archivedIds.contains(rs.getLong("message_id"))) continue;
                 String senderId = rs.getString("sender_id");
                 String message = rs.getString("message");
-                String timestamp = rs.getString("timestamp");
-                messages.add("[" + timestamp + "] " + senderId + ": " + message);
+                String prefix = withTimestamps ? "[" + rs.getString("timestamp") + "] " : "";
+                messages.add(prefix + senderId + ": " + message);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return messages;
     }
+
+    /**
+     * Reads the archived part of a conversation, which is older than anything left in the messages table.
+     *
+     * @param user1 The ID of the first user.
+     * @param user2 The ID of the second user.
+     * @return The archived messages, oldest first, or an empty list if the archive cannot be read.
+     */
+    private List<MessageArchive.ArchivedMessage> getArchivedMessages(String user1, String user2) {
+        MessageArchive archive = db.getMessageArchive();
+        if (archive == null) return new ArrayList<>();
+        try {
+            return archive.readConversation(user1, user2);
+        } catch (IOException e) {
+            System.out.println("Error reading archived messages: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Searches the conversations of a user for matching messages.
+     *
+     * @param userId The ID of the user whose conversations are searched.
+     * @param query  The search query (terms, prefix terms ending in '*', or quoted phrases).
+     * @return A list of formatted message strings with timestamps, newest first.
+     */
+    public List<String> searchMessages(String userId, String query) {
+        return db.searchMessages(userId, query);
+    }
 }
 
 /**
@@ -823,6 +995,582 @@ class ChatClient {
     }
 }
 
+/**
+ * In-memory per-user conversation list for the RPMS chat.
+ * Keeps the last message, its timestamp and the unread count of every conversation,
+ * so an inbox can be shown without scanning the messages table.
+ */
+class ChatInbox {
+    /**
+     * Summary of one conversation as seen by one user.
+     */
+    static class ConversationSummary {
+        private final String otherUserID;
+        private String lastSenderID;
+        private String lastMessage;
+        private LocalDateTime lastTimestamp;
+        private int unreadCount;
+
+        ConversationSummary(String otherUserID) {
+            this.otherUserID = otherUserID;
+        }
+
+        ConversationSummary(ConversationSummary other) {
+            this.otherUserID = other.otherUserID;
+            this.lastSenderID = other.lastSenderID;
+            this.lastMessage = other.lastMessage;
+            this.lastTimestamp = other.lastTimestamp;
+            this.unreadCount = other.unreadCount;
+        }
+
+        /** @return The ID of the other participant. */
+        public String getOtherUserID() { return otherUserID; }
+
+        /** @return The ID of the sender of the last message. */
+        public String getLastSenderID() { return lastSenderID; }
+
+        /** @return The content of the last message. */
+        public String getLastMessage() { return lastMessage; }
+
+        /** @return The time of the last message. */
+        public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+
+        /** @return The number of messages not yet read by the user. */
+        public int getUnreadCount() { return unreadCount; }
+
+        /**
+         * Returns a string representation of the conversation summary.
+         *
+         * @return A formatted string with the other user, unread count and last message.
+         */
+        @Override
+        public String toString() {
+            return String.format("%s (%d unread) [%s] %s: %s", otherUserID, unreadCount,
+                    lastTimestamp.format(ChatSearchIndex.TIMESTAMP_FORMAT), lastSenderID, lastMessage);
+        }
+    }
+
+    private final Map<String, Map<String, ConversationSummary>> conversations = new HashMap<>();
+
+    /**
+     * Records a message in the conversation lists of both participants.
+     *
+     * @param senderID    The ID of the sender.
+     * @param receiverID  The ID of the receiver.
+     * @param message     The message content.
+     * @param timestamp   The time the message was sent.
+     * @param countUnread Whether the message should count as unread for the receiver.
+     */
+    public synchronized void recordMessage(String senderID, String receiverID, String message, LocalDateTime timestamp, boolean countUnread) {
+        if (senderID == null || receiverID == null) return;
+        LocalDateTime time = timestamp != null ? timestamp : LocalDateTime.now();
+        update(senderID, receiverID, senderID, message, time);
+        ConversationSummary received = update(receiverID, senderID, senderID, message, time);
+        if (countUnread && !senderID.equals(receiverID)) received.unreadCount++;
+    }
+
+    /**
+     * Marks a conversation as read for a user.
+     *
+     * @param userID      The ID of the user reading the conversation.
+     * @param otherUserID The ID of the other participant.
+     */
+    public synchronized void markRead(String userID, String otherUserID) {
+        Map<String, ConversationSummary> inbox = conversations.get(userID);
+        if (inbox == null) return;
+        ConversationSummary summary = inbox.get(otherUserID);
+        if (summary != null) summary.unreadCount = 0;
+    }
+
+    /**
+     * Retrieves the conversation list of a user.
+     *
+     * @param userID The ID of the user.
+     * @return Copies of the user's conversation summaries, most recent first.
+     */
+    public synchronized List<ConversationSummary> getConversations(String userID) {
+        List<ConversationSummary> result = new ArrayList<>();
+        Map<String, ConversationSummary> inbox = conversations.get(userID);
+        if (inbox == null) return result;
+        for (ConversationSummary summary : inbox.values()) result.add(new ConversationSummary(summary));
+        result.sort((a, b) -> b.lastTimestamp.compareTo(a.lastTimestamp));
+        return result;
+    }
+
+    /**
+     * Retrieves the total number of unread messages of a user.
+     *
+     * @param userID The ID of the user.
+     * @return The number of unread messages across all conversations.
+     */
+    public synchronized int getTotalUnread(String userID) {
+        int total = 0;
+        Map<String, ConversationSummary> inbox = conversations.get(userID);
+        if (inbox == null) return total;
+        for (ConversationSummary summary : inbox.values()) total += summary.unreadCount;
+        return total;
+    }
+
+    private ConversationSummary update(String ownerID, String otherUserID, String senderID, String message, LocalDateTime time) {
+        ConversationSummary summary = conversations.computeIfAbsent(ownerID, k -> new HashMap<>())
+                .computeIfAbsent(otherUserID, ConversationSummary::new);
+        if (summary.lastTimestamp == null || !time.isBefore(summary.lastTimestamp)) {
+            summary.lastSenderID = senderID;
+            summary.lastMessage = message;
+            summary.lastTimestamp = time;
+        }
+        return summary;
+    }
+}
+
+/**
+ * In-memory inverted index over chat messages in the RPMS.
+ * Every message is indexed under both of its participants, so a search only ever touches the
+ * conversations of the user performing it. Supports plain terms, prefix terms ("dose*") and
+ * quoted phrases ("\"dose changed\""); all clauses of a query must match.
+ */
+class ChatSearchIndex {
+    static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * A single indexed chat message.
+     */
+    private static class IndexedMessage {
+        private final long messageID;
+        private final String senderID;
+        private final String message;
+        private final LocalDateTime timestamp;
+
+        IndexedMessage(long messageID, String senderID, String message, LocalDateTime timestamp) {
+            this.messageID = messageID;
+            this.senderID = senderID;
+            this.message = message;
+            this.timestamp = timestamp;
+        }
+    }
+
+    // user ID -> term -> (message ID -> token positions), terms sorted for prefix lookups
+    private final Map<String, TreeMap<String, Map<Long, List<Integer>>>> userIndex = new HashMap<>();
+    private final Map<Long, IndexedMessage> messages = new HashMap<>();
+    private long nextLocalID = -1;
+
+    /**
+     * Adds a message to the index under both participants. A message whose database ID is already indexed
+     * is ignored, so a message committed while the index was being built is not indexed twice.
+     *
+     * @param messageID  The database ID of the message, or 0 if unknown.
+     * @param senderID   The ID of the sender.
+     * @param receiverID The ID of the receiver.
+     * @param message    The message content.
+     * @param timestamp  The time the message was sent.
+     */
+    public synchronized void addMessage(long messageID, String senderID, String receiverID, String message, LocalDateTime timestamp) {
+        if (senderID == null || receiverID == null || message == null) return;
+        if (messageID > 0 && messages.containsKey(messageID)) return;
+        long id = messageID > 0 ? messageID : nextLocalID--;
+        messages.put(id, new IndexedMessage(id, senderID, message, timestamp != null ? timestamp : LocalDateTime.now()));
+        List<String> tokens = tokenize(message);
+        indexTokens(senderID, id, tokens);
+        if (!receiverID.equals(senderID)) indexTokens(receiverID, id, tokens);
+    }
+
+    /**
+     * Searches the conversations of a user.
+     *
+     * @param userID The ID of the user whose conversations are searched.
+     * @param query  The query, e.g. {@code "dose changed" insulin*}.
+     * @return Matching messages formatted as "[timestamp] sender: message", newest first.
+     */
+    public synchronized List<String> search(String userID, String query) {
+        List<String> results = new ArrayList<>();
+        TreeMap<String, Map<Long, List<Integer>>> terms = userIndex.get(userID);
+        if (terms == null || query == null) return results;
+
+        Set<Long> matches = null;
+        for (String clause : parseClauses(query)) {
+            Set<Long> clauseMatches;
+            if (clause.startsWith("\"")) clauseMatches = matchPhrase(terms, tokenize(clause));
+            else if (clause.endsWith("*")) clauseMatches = matchPrefix(terms, clause.substring(0, clause.length() - 1).toLowerCase());
+            else clauseMatches = matchTerm(terms, clause.toLowerCase());
+            if (matches == null) matches = clauseMatches;
+            else matches.retainAll(clauseMatches);
+            if (matches.isEmpty()) return results;
+        }
+        if (matches == null) return results;
+
+        List<IndexedMessage> hits = new ArrayList<>();
+        for (Long id : matches) hits.add(messages.get(id));
+        hits.sort((a, b) -> b.timestamp.compareTo(a.timestamp));
+        for (IndexedMessage hit : hits) {
+            results.add("[" + hit.timestamp.format(TIMESTAMP_FORMAT) + "] " + hit.senderID + ": " + hit.message);
+        }
+        return results;
+    }
+
+    /** @return The number of messages held in the index. */
+    public synchronized int size() { return messages.size(); }
+
+    private void indexTokens(String userID, long messageID, List<String> tokens) {
+        TreeMap<String, Map<Long, List<Integer>>> terms = userIndex.computeIfAbsent(userID, k -> new TreeMap<>());
+        for (int pos = 0; pos < tokens.size(); pos++) {
+            terms.computeIfAbsent(tokens.get(pos), k -> new HashMap<>())
+                    .computeIfAbsent(messageID, k -> new ArrayList<>())
+                    .add(pos);
+        }
+    }
+
+    private Set<Long> matchTerm(TreeMap<String, Map<Long, List<Integer>>> terms, String term) {
+        Map<Long, List<Integer>> postings = terms.get(term);
+        return postings != null ? new HashSet<>(postings.keySet()) : new HashSet<>();
+    }
+
+    private Set<Long> matchPrefix(TreeMap<String, Map<Long, List<Integer>>> terms, String prefix) {
+        Set<Long> result = new HashSet<>();
+        if (prefix.isEmpty()) return result;
+        for (Map<Long, List<Integer>> postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            result.addAll(postings.keySet());
+        }
+        return result;
+    }
+
+    private Set<Long> matchPhrase(TreeMap<String, Map<Long, List<Integer>>> terms, List<String> phrase) {
+        Set<Long> result = new HashSet<>();
+        if (phrase.isEmpty()) return result;
+        List<Map<Long, List<Integer>>> postings = new ArrayList<>();
+        for (String token : phrase) {
+            Map<Long, List<Integer>> p = terms.get(token);
+            if (p == null) return result;
+            postings.add(p);
+        }
+        for (Map.Entry<Long, List<Integer>> first : postings.get(0).entrySet()) {
+            long id = first.getKey();
+            for (int start : first.getValue()) {
+                boolean found = true;
+                for (int i = 1; i < postings.size() && found; i++) {
+                    List<Integer> positions = postings.get(i).get(id);
+                    found = positions != null && positions.contains(start + i);
+                }
+                if (found) {
+                    result.add(id);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<String> parseClauses(String query) {
+        List<String> clauses = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) end = query.length();
+                clauses.add(query.substring(i, end));
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))) end++;
+                String word = query.substring(i, end);
+                List<String> tokens = tokenize(word);
+                for (int t = 0; t < tokens.size(); t++) {
+                    boolean prefix = word.endsWith("*") && t == tokens.size() - 1;
+                    clauses.add(prefix ? tokens.get(t) + "*" : tokens.get(t));
+                }
+                i = end;
+            }
+        }
+        return clauses;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+}
+
+/**
+ * Append-only archive for old chat messages in the RPMS.
+ * Each archive run writes one segment file in which every conversation is stored as its own
+ * GZIP-compressed block. An index file maps each conversation to the (segment, offset, length)
+ * of its blocks, so reading one conversation only decompresses that conversation's data.
+ */
+class MessageArchive {
+    /**
+     * A chat message held in the archive.
+     */
+    static class ArchivedMessage {
+        private final long messageID;
+        private final String senderID;
+        private final String receiverID;
+        private final String message;
+        private final LocalDateTime timestamp;
+
+        ArchivedMessage(long messageID, String senderID, String receiverID, String message, LocalDateTime timestamp) {
+            this.messageID = messageID;
+            this.senderID = senderID;
+            this.receiverID = receiverID;
+            this.message = message;
+            this.timestamp = timestamp;
+        }
+
+        /** @return The database ID of the message. */
+        public long getMessageID() { return messageID; }
+
+        /** @return The ID of the sender. */
+        public String getSenderID() { return senderID; }
+
+        /** @return The ID of the receiver. */
+        public String getReceiverID() { return receiverID; }
+
+        /** @return The message content. */
+        public String getMessage() { return message; }
+
+        /** @return The time the message was sent. */
+        public LocalDateTime getTimestamp() { return timestamp; }
+    }
+
+    /**
+     * Location of one compressed conversation block inside a segment file.
+     */
+    private static class BlockRef {
+        private final String segment;
+        private final long offset;
+        private final int length;
+
+        BlockRef(String segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final String INDEX_FILE = "index.txt";
+
+    private final File directory;
+    private final Map<String, List<BlockRef>> conversationIndex = new LinkedHashMap<>();
+
+    /**
+     * Opens (or creates) an archive in the specified directory and loads its index.
+     *
+     * @param directory The directory holding the segment and index files.
+     * @throws IOException If the directory cannot be created or the index cannot be read.
+     */
+    public MessageArchive(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create archive directory " + directory.getAbsolutePath());
+        }
+        File indexFile = new File(directory, INDEX_FILE);
+        if (!indexFile.exists()) return;
+        try (BufferedReader br = new BufferedReader(new FileReader(indexFile, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 4) continue;
+                conversationIndex.computeIfAbsent(fields[0], k -> new ArrayList<>())
+                        .add(new BlockRef(fields[1], Long.parseLong(fields[2]), Integer.parseInt(fields[3])));
+            }
+        }
+    }
+
+    /**
+     * Returns the key identifying the conversation between two users, independent of order.
+     *
+     * @param user1 The ID of the first user.
+     * @param user2 The ID of the second user.
+     * @return The conversation key.
+     */
+    static String conversationKey(String user1, String user2) {
+        return user1.compareTo(user2) <= 0 ? user1 + "|" + user2 : user2 + "|" + user1;
+    }
+
+    /**
+     * Appends a batch of messages to the archive as a new segment file.
+     * The segment is synced to disk before the index is updated.
+     *
+     * @param batch The messages to archive.
+     * @throws IOException If the segment or index cannot be written.
+     */
+    public synchronized void append(List<ArchivedMessage> batch) throws IOException {
+        if (batch == null || batch.isEmpty()) return;
+        Map<String, List<ArchivedMessage>> byConversation = new LinkedHashMap<>();
+        for (ArchivedMessage m : batch) {
+            byConversation.computeIfAbsent(conversationKey(m.senderID, m.receiverID), k -> new ArrayList<>()).add(m);
+        }
+
+        long stamp = System.currentTimeMillis();
+        File segmentFile = new File(directory, "segment-" + stamp + ".seg");
+        while (segmentFile.exists()) segmentFile = new File(directory, "segment-" + (++stamp) + ".seg");
+
+        Map<String, BlockRef> written = new LinkedHashMap<>();
+        try (FileOutputStream out = new FileOutputStream(segmentFile)) {
+            long offset = 0;
+            for (Map.Entry<String, List<ArchivedMessage>> entry : byConversation.entrySet()) {
+                byte[] block = compress(entry.getValue());
+                out.write(block);
+                written.put(entry.getKey(), new BlockRef(segmentFile.getName(), offset, block.length));
+                offset += block.length;
+            }
+            out.getFD().sync();
+        }
+
+        try (FileOutputStream indexOut = new FileOutputStream(new File(directory, INDEX_FILE), true);
+             PrintWriter indexWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(indexOut, StandardCharsets.UTF_8)))) {
+            for (Map.Entry<String, BlockRef> entry : written.entrySet()) {
+                indexWriter.println(indexLine(entry.getKey(), entry.getValue()));
+            }
+            indexWriter.flush();
+            if (indexWriter.checkError()) throw new IOException("Cannot write archive index");
+            indexOut.getFD().sync();
+        }
+        for (Map.Entry<String, BlockRef> entry : written.entrySet()) {
+            conversationIndex.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry.getValue());
+        }
+    }
+
+    /**
+     * Removes every archived conversation of a user, e.g. after the user has been deleted. The conversations
+     * are dropped from the index, which is rewritten and synced first; their blocks are then overwritten with
+     * zeros, and segment files that no remaining conversation uses are deleted.
+     *
+     * @param userId The ID of the user.
+     * @return The number of conversations removed.
+     * @throws IOException If the index or a segment cannot be rewritten.
+     */
+    public synchronized int removeUser(String userId) throws IOException {
+        List<BlockRef> removed = new ArrayList<>();
+        int conversations = 0;
+        Iterator<Map.Entry<String, List<BlockRef>>> entries = conversationIndex.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, List<BlockRef>> entry = entries.next();
+            if (entry.getKey().startsWith(userId + "|") || entry.getKey().endsWith("|" + userId)) {
+                removed.addAll(entry.getValue());
+                entries.remove();
+                conversations++;
+            }
+        }
+        if (removed.isEmpty()) return 0;
+        rewriteIndex();
+
+        Set<String> inUse = new HashSet<>();
+        for (List<BlockRef> refs : conversationIndex.values()) {
+            for (BlockRef ref : refs) inUse.add(ref.segment);
+        }
+        for (BlockRef ref : removed) {
+            File segment = new File(directory, ref.segment);
+            if (!inUse.contains(ref.segment)) {
+                Files.deleteIfExists(segment.toPath());
+                continue;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+                file.seek(ref.offset);
+                file.write(new byte[ref.length]);
+                file.getFD().sync();
+            }
+        }
+        return conversations;
+    }
+
+    // Replaces the index file with the in-memory index through a synced temporary file, so a crash leaves
+    // either the old or the new index
+    private void rewriteIndex() throws IOException {
+        File temp = new File(directory, INDEX_FILE + ".tmp");
+        try (FileOutputStream indexOut = new FileOutputStream(temp);
+             PrintWriter indexWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(indexOut, StandardCharsets.UTF_8)))) {
+            for (Map.Entry<String, List<BlockRef>> entry : conversationIndex.entrySet()) {
+                for (BlockRef ref : entry.getValue()) indexWriter.println(indexLine(entry.getKey(), ref));
+            }
+            indexWriter.flush();
+            if (indexWriter.checkError()) throw new IOException("Cannot write archive index");
+            indexOut.getFD().sync();
+        }
+        Files.move(temp.toPath(), new File(directory, INDEX_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String indexLine(String conversation, BlockRef ref) {
+        return conversation + "\t" + ref.segment + "\t" + ref.offset + "\t" + ref.length;
+    }
+
+    /**
+     * Reads the archived history of the conversation between two users.
+     *
+     * @param user1 The ID of the first user.
+     * @param user2 The ID of the second user.
+     * @return The archived messages of the conversation, oldest first.
+     * @throws IOException If a segment cannot be read.
+     */
+    public synchronized List<ArchivedMessage> readConversation(String user1, String user2) throws IOException {
+        List<ArchivedMessage> result = new ArrayList<>();
+        List<BlockRef> refs = conversationIndex.get(conversationKey(user1, user2));
+        if (refs == null) return result;
+        for (BlockRef ref : refs) result.addAll(readBlock(ref));
+        result.sort(Comparator.comparing(ArchivedMessage::getTimestamp));
+        return result;
+    }
+
+    /**
+     * Visits every archived message, conversation by conversation.
+     *
+     * @param consumer The action to perform for each message.
+     * @throws IOException If a segment cannot be read.
+     */
+    public synchronized void forEachMessage(Consumer<ArchivedMessage> consumer) throws IOException {
+        for (List<BlockRef> refs : conversationIndex.values()) {
+            for (BlockRef ref : refs) readBlock(ref).forEach(consumer);
+        }
+    }
+
+    /** @return True if no conversations have been archived. */
+    public synchronized boolean isEmpty() { return conversationIndex.isEmpty(); }
+
+    private List<ArchivedMessage> readBlock(BlockRef ref) throws IOException {
+        byte[] block = new byte[ref.length];
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, ref.segment), "r")) {
+            file.seek(ref.offset);
+            file.readFully(block);
+        }
+        List<ArchivedMessage> messages = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(block)))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                String sender = in.readUTF();
+                String receiver = in.readUTF();
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), java.time.ZoneOffset.UTC);
+                messages.add(new ArchivedMessage(id, sender, receiver, new String(text, StandardCharsets.UTF_8), timestamp));
+            }
+        }
+        return messages;
+    }
+
+    private static byte[] compress(List<ArchivedMessage> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(messages.size());
+            for (ArchivedMessage m : messages) {
+                out.writeLong(m.messageID);
+                out.writeUTF(m.senderID);
+                out.writeUTF(m.receiverID);
+                byte[] text = (m.message != null ? m.message : "").getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+                out.writeLong(m.timestamp.toEpochSecond(java.time.ZoneOffset.UTC));
+                out.writeInt(m.timestamp.getNano());
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
+
 /**
  * Interface for video call services in the RPMS.
  * Defines methods for generating meeting links and starting video calls.
@@ -910,25 +1658,382 @@ class VideoCall implements VideoCallService {
 }
 
 /**
- * Interface for triggering alerts in the RPMS.
- * Defines a method for sending alert notifications.
+ * In-memory calendar of a doctor's appointments and video consultations in the RPMS.
+ * Bookings are kept in a map ordered by start time; because no booking is longer than the
+ * longest one seen so far, an overlap query only has to look at bookings starting within that
+ * distance before the queried interval, which keeps conflict checks at O(log n + k).
  */
-interface Alertable {
+class DoctorSchedule {
+    /** Length assumed for appointments and video consultations, which carry only a start time. */
+    static final Duration DEFAULT_SLOT = Duration.ofMinutes(30);
+
     /**
-     * Triggers an alert with the specified message.
-     *
-     * @param message The alert message.
-     * @throws NotificationException If the alert fails to send.
+     * A booked interval in a doctor's calendar.
      */
-    void triggerAlert(String message) throws NotificationException;
-}
+    static class Booking {
+        private final String type;
+        private final long id;
+        private final String patientID;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        Booking(String type, long id, String patientID, LocalDateTime start, LocalDateTime end) {
+            this.type = type;
+            this.id = id;
+            this.patientID = patientID;
+            this.start = start;
+            this.end = end;
+        }
+
+        /** @return The kind of booking (e.g., Appointment, Video Call). */
+        public String getType() { return type; }
+
+        /** @return The database ID of the appointment or video call. */
+        public long getId() { return id; }
+
+        /** @return The ID of the patient. */
+        public String getPatientID() { return patientID; }
+
+        /** @return The start of the booking. */
+        public LocalDateTime getStart() { return start; }
+
+        /** @return The end of the booking. */
+        public LocalDateTime getEnd() { return end; }
+
+        /**
+         * Returns a string representation of the booking.
+         *
+         * @return A formatted string with booking details.
+         */
+        @Override
+        public String toString() {
+            return String.format("%s %d with patient %s: %s - %s", type, id, patientID, start, end);
+        }
+    }
+
+    private final String doctorID;
+    private final TreeMap<LocalDateTime, List<Booking>> bookings = new TreeMap<>();
+    private Duration longestBooking = Duration.ZERO;
+    private long version;
 
-/**
- * Custom exception for notification-related errors in the RPMS.
- */
-class NotificationException extends Exception {
     /**
-     * Constructs a new NotificationException with the specified message.
+     * Constructs an empty schedule for a doctor.
+     *
+     * @param doctorID The ID of the doctor.
+     */
+    public DoctorSchedule(String doctorID) {
+        this.doctorID = doctorID;
+    }
+
+    /** @return The ID of the doctor. */
+    public String getDoctorID() { return doctorID; }
+
+    /** @return A counter that changes every time a booking is added or removed. */
+    public synchronized long getVersion() { return version; }
+
+    /**
+     * Adds a booking only if it does not overlap an existing one. The check and the add are atomic, so
+     * bookings elsewhere in the schedule never make it fail.
+     *
+     * @param booking The booking to add.
+     * @return True if the booking was added, false if its interval is taken.
+     */
+    public synchronized boolean tryAddBooking(Booking booking) {
+        if (!isFree(booking.start, booking.end)) return false;
+        addBooking(booking);
+        return true;
+    }
+
+    /**
+     * Adds a booking to the schedule.
+     *
+     * @param booking The booking to add.
+     */
+    public synchronized void addBooking(Booking booking) {
+        if (booking == null || !booking.end.isAfter(booking.start)) return;
+        bookings.computeIfAbsent(booking.start, k -> new ArrayList<>()).add(booking);
+        Duration length = Duration.between(booking.start, booking.end);
+        if (length.compareTo(longestBooking) > 0) longestBooking = length;
+        version++;
+    }
+
+    /**
+     * Removes a booking from the schedule.
+     *
+     * @param type The kind of booking.
+     * @param id   The database ID of the booking.
+     * @return True if a booking was removed, false otherwise.
+     */
+    public synchronized boolean removeBooking(String type, long id) {
+        Iterator<Map.Entry<LocalDateTime, List<Booking>>> it = bookings.entrySet().iterator();
+        while (it.hasNext()) {
+            List<Booking> atStart = it.next().getValue();
+            if (atStart.removeIf(b -> b.type.equals(type) && b.id == id)) {
+                if (atStart.isEmpty()) it.remove();
+                version++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the bookings that overlap an interval.
+     *
+     * @param start The start of the interval (inclusive).
+     * @param end   The end of the interval (exclusive).
+     * @return The overlapping bookings, ordered by start time.
+     */
+    public synchronized List<Booking> getOverlapping(LocalDateTime start, LocalDateTime end) {
+        List<Booking> overlapping = new ArrayList<>();
+        if (!end.isAfter(start)) return overlapping;
+        for (List<Booking> atStart : bookings.subMap(start.minus(longestBooking), false, end, false).values()) {
+            for (Booking b : atStart) {
+                if (b.end.isAfter(start)) overlapping.add(b);
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Checks whether the doctor is free for a whole interval.
+     *
+     * @param start The start of the interval (inclusive).
+     * @param end   The end of the interval (exclusive).
+     * @return True if no booking overlaps the interval, false otherwise.
+     */
+    public synchronized boolean isFree(LocalDateTime start, LocalDateTime end) {
+        return getOverlapping(start, end).isEmpty();
+    }
+
+    /**
+     * Finds the earliest free slot of the requested length at or after a given time.
+     *
+     * @param from   The earliest acceptable start time.
+     * @param length The required length of the slot.
+     * @return The start of the earliest free slot.
+     */
+    public synchronized LocalDateTime nextAvailableSlot(LocalDateTime from, Duration length) {
+        LocalDateTime candidate = from;
+        while (true) {
+            List<Booking> conflicts = getOverlapping(candidate, candidate.plus(length));
+            if (conflicts.isEmpty()) return candidate;
+            for (Booking b : conflicts) {
+                if (b.end.isAfter(candidate)) candidate = b.end;
+            }
+        }
+    }
+}
+
+/**
+ * Finds and books appointment slots in the RPMS.
+ * Each doctor's working day is divided into 15-minute slots and cached as an availability bitmap
+ * derived from the doctor's {@link DoctorSchedule}. The bitmap only rejects taken slots quickly: a slot is
+ * reserved in memory only if the schedule still has its interval free, and the database insert is
+ * conditional on no overlapping appointment, so concurrent requests cannot double-book a doctor.
+ */
+class AppointmentSlotEngine {
+    static final int SLOT_MINUTES = 15;
+    static final LocalTime WORKDAY_START = LocalTime.of(9, 0);
+    static final LocalTime WORKDAY_END = LocalTime.of(17, 0);
+    private static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private static AppointmentSlotEngine instance;
+
+    /**
+     * A doctor's free slots on one day, valid for one version of one loaded instance of the doctor's schedule.
+     */
+    private static class DayBitmap {
+        private final DoctorSchedule schedule;
+        private final long scheduleVersion;
+        private final BitSet free;
+
+        DayBitmap(DoctorSchedule schedule, long scheduleVersion, BitSet free) {
+            this.schedule = schedule;
+            this.scheduleVersion = scheduleVersion;
+            this.free = free;
+        }
+    }
+
+    /**
+     * A free appointment slot offered by a doctor.
+     */
+    static class SlotOffer {
+        private final Doctor doctor;
+        private final LocalDateTime start;
+
+        SlotOffer(Doctor doctor, LocalDateTime start) {
+            this.doctor = doctor;
+            this.start = start;
+        }
+
+        /** @return The doctor offering the slot. */
+        public Doctor getDoctor() { return doctor; }
+
+        /** @return The start of the slot. */
+        public LocalDateTime getStart() { return start; }
+
+        /**
+         * Returns a string representation of the slot offer.
+         *
+         * @return A formatted string with the doctor and slot time.
+         */
+        @Override
+        public String toString() {
+            return String.format("Dr. %s (%s) at %s", doctor.getName(), doctor.getUserID(), start);
+        }
+    }
+
+    private final DataBase db;
+    private final Map<String, Map<LocalDate, DayBitmap>> bitmaps = new ConcurrentHashMap<>();
+    private final AtomicLong nextReservationID = new AtomicLong();
+
+    /**
+     * Constructs a slot engine backed by the specified database.
+     *
+     * @param db The database instance.
+     */
+    public AppointmentSlotEngine(DataBase db) {
+        this.db = db;
+    }
+
+    /**
+     * Retrieves the shared slot engine.
+     *
+     * @return The singleton AppointmentSlotEngine instance.
+     */
+    public static synchronized AppointmentSlotEngine getInstance() {
+        if (instance == null) instance = new AppointmentSlotEngine(DataBase.getInstance());
+        return instance;
+    }
+
+    /**
+     * Lists the free appointment start times of a doctor on a day.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param date     The day to search.
+     * @return The free start times, earliest first.
+     */
+    public List<LocalDateTime> findAvailableSlots(String doctorId, LocalDate date) {
+        List<LocalDateTime> slots = new ArrayList<>();
+        if (date.isBefore(LocalDate.now())) return slots;
+        BitSet free = getBitmap(doctorId, date).free;
+        int needed = slotsFor(DoctorSchedule.DEFAULT_SLOT);
+        LocalDateTime now = LocalDateTime.now();
+        for (int slot = free.nextSetBit(0); slot >= 0; slot = free.nextSetBit(slot + 1)) {
+            if (free.nextClearBit(slot) - slot < needed) continue;
+            LocalDateTime start = date.atStartOfDay().plusMinutes((long) slot * SLOT_MINUTES);
+            if (start.isAfter(now)) slots.add(start);
+        }
+        return slots;
+    }
+
+    /**
+     * Searches all doctors of a specialization for free appointment slots on a day.
+     *
+     * @param specialization The specialization to search (e.g., Cardiology).
+     * @param date           The day to search.
+     * @param limit          The maximum number of offers to return.
+     * @return The earliest free slots across the matching doctors.
+     */
+    public List<SlotOffer> findAvailableSlots(String specialization, LocalDate date, int limit) {
+        List<SlotOffer> offers = new ArrayList<>();
+        for (Doctor doctor : db.getDoctorsBySpecialization(specialization)) {
+            for (LocalDateTime start : findAvailableSlots(doctor.getUserID(), date)) {
+                offers.add(new SlotOffer(doctor, start));
+            }
+        }
+        offers.sort(Comparator.comparing(SlotOffer::getStart));
+        return offers.size() > limit ? new ArrayList<>(offers.subList(0, limit)) : offers;
+    }
+
+    /**
+     * Books a pending appointment if the doctor is free for the whole appointment length.
+     *
+     * @param patient The patient requesting the appointment.
+     * @param doctor  The doctor to book.
+     * @param time    The requested start time.
+     * @return The booked appointment, or null if the time is outside working hours or already taken.
+     */
+    public Appointment book(Patient patient, Doctor doctor, LocalDateTime time) {
+        LocalDateTime end = time.plus(DoctorSchedule.DEFAULT_SLOT);
+        if (!time.isAfter(LocalDateTime.now()) || time.toLocalTime().isBefore(WORKDAY_START)
+                || end.toLocalTime().isAfter(WORKDAY_END) || !end.toLocalDate().equals(time.toLocalDate())) {
+            return null;
+        }
+        String doctorId = doctor.getUserID();
+        DoctorSchedule schedule = db.getDoctorSchedule(doctorId);
+        DayBitmap bitmap = getBitmap(doctorId, time.toLocalDate());
+        int first = slotIndex(time);
+        int last = (int) Math.ceil(Duration.between(time.toLocalDate().atStartOfDay(), end).toMinutes() / (double) SLOT_MINUTES);
+        if (bitmap.free.get(first, last).cardinality() != last - first) return null;
+
+        // Bookings made since the bitmap was read only matter if they overlap this one, which the schedule checks
+        DoctorSchedule.Booking reservation = new DoctorSchedule.Booking("Reservation", nextReservationID.incrementAndGet(), patient.getUserID(), time, end);
+        if (!schedule.tryAddBooking(reservation)) return null;
+
+        Appointment appointment = new Appointment(0, time, patient, doctor);
+        appointment.setAppointmentStatus("Pending");
+        boolean inserted = db.addAppointmentIfFree(appointment, DoctorSchedule.DEFAULT_SLOT);
+        schedule.removeBooking("Reservation", reservation.getId());
+        if (!inserted) return null;
+        schedule.addBooking(new DoctorSchedule.Booking("Appointment", appointment.getAppointmentID(), patient.getUserID(), time, end));
+        return appointment;
+    }
+
+    private DayBitmap getBitmap(String doctorId, LocalDate date) {
+        DoctorSchedule schedule = db.getDoctorSchedule(doctorId);
+        Map<LocalDate, DayBitmap> days = bitmaps.computeIfAbsent(doctorId, k -> new ConcurrentHashMap<>());
+        DayBitmap cached = days.get(date);
+        long version = schedule.getVersion();
+        if (cached != null && cached.schedule == schedule && cached.scheduleVersion == version) return cached;
+        // A new schedule instance means the database dropped its schedules (e.g. a user was removed), and its
+        // version count starts over, so none of the doctor's bitmaps can be trusted
+        if (cached != null && cached.schedule != schedule) days.clear();
+
+        BitSet free = new BitSet(SLOTS_PER_DAY);
+        free.set(slotIndex(date.atTime(WORKDAY_START)), slotIndex(date.atTime(WORKDAY_END)));
+        LocalDateTime dayStart = date.atStartOfDay();
+        for (DoctorSchedule.Booking b : schedule.getOverlapping(dayStart, dayStart.plusDays(1))) {
+            int from = b.getStart().isBefore(dayStart) ? 0 : slotIndex(b.getStart());
+            int to = b.getEnd().isAfter(dayStart.plusDays(1)) ? SLOTS_PER_DAY
+                    : (int) Math.ceil(Duration.between(dayStart, b.getEnd()).toMinutes() / (double) SLOT_MINUTES);
+            free.clear(from, to);
+        }
+        DayBitmap bitmap = new DayBitmap(schedule, version, free);
+        days.put(date, bitmap);
+        return bitmap;
+    }
+
+    private static int slotIndex(LocalDateTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / SLOT_MINUTES;
+    }
+
+    private static int slotsFor(Duration length) {
+        return (int) Math.ceil(length.toMinutes() / (double) SLOT_MINUTES);
+    }
+}
+
+/**
+ * Interface for triggering alerts in the RPMS.
+ * Defines a method for sending alert notifications.
+ */
+interface Alertable {
+    /**
+     * Triggers an alert with the specified message.
+     *
+     * @param message The alert message.
+     * @throws NotificationException If the alert fails to send.
+     */
+    void triggerAlert(String message) throws NotificationException;
+}
+
+/**
+ * Custom exception for notification-related errors in the RPMS.
+ */
+class NotificationException extends Exception {
+    /**
+     * Constructs a new NotificationException with the specified message.
      *
      * @param message The error message.
      */
@@ -1029,6 +2134,8 @@ class EmailNotification implements Notifiable {
 
         session.setDebug(true);
 
+        Metrics.Timer metric = Metrics.timer("notification.email");
+        long started = metric.start();
         try {
             MimeMessage mimeMessage = new MimeMessage(session);
             mimeMessage.setFrom(new InternetAddress(username));
@@ -1038,7 +2145,10 @@ class EmailNotification implements Notifiable {
             Transport.send(mimeMessage);
             System.out.println("Email sent to " + recipient);
         } catch (MessagingException e) {
+            metric.fail();
             throw new NotificationException("Error sending email: " + e.getMessage());
+        } finally {
+            metric.stop(started);
         }
     }
 
@@ -1087,10 +2197,15 @@ class SMSNotification implements Notifiable {
         if (recipient == null || !recipient.matches("^\\+\\d{10,}$")) {
             throw new NotificationException("Invalid phone number. Use E.164 format (e.g., +1234567890).");
         }
+        Metrics.Timer metric = Metrics.timer("notification.sms");
+        long started = metric.start();
         try {
             sendTwilioSMS(recipient, message);
         } catch (Exception e) {
+            metric.fail();
             throw new NotificationException("Error sending SMS: " + e.getMessage());
+        } finally {
+            metric.stop(started);
         }
     }
 
@@ -1194,11 +2309,77 @@ class VitalThresholdException extends Exception {
     public VitalThresholdException(String message) { super(message); }
 }
 
+/**
+ * Normal and critical range of one vital sign metric. The threshold checks and severity classification in
+ * {@link EmergencyAlert}, the SQL that backfills stored severities and the time-in-range figures of reports
+ * are all derived from these definitions.
+ */
+final class VitalRange {
+    static final VitalRange HEART_RATE = new VitalRange("Heart Rate", "heart_rate", 60, 100, 40, 130);
+    static final VitalRange BLOOD_PRESSURE = new VitalRange("Blood Pressure", "blood_pressure", 90, 140, 80, 180);
+    static final VitalRange BODY_TEMPERATURE = new VitalRange("Temperature", "body_temperature", 36.1, 37.2, 35.0, 39.5);
+    // Oxygen saturation has no upper limit short of the sensor's 100%
+    static final VitalRange OXYGEN_LEVEL = new VitalRange("Oxygen Level", "oxygen_level", 95, Double.POSITIVE_INFINITY, 90, Double.POSITIVE_INFINITY);
+    static final List<VitalRange> ALL = Arrays.asList(HEART_RATE, BLOOD_PRESSURE, BODY_TEMPERATURE, OXYGEN_LEVEL);
+
+    private final String name;
+    private final String column;
+    private final double normalLow;
+    private final double normalHigh;
+    private final double criticalLow;
+    private final double criticalHigh;
+
+    private VitalRange(String name, String column, double normalLow, double normalHigh, double criticalLow, double criticalHigh) {
+        this.name = name;
+        this.column = column;
+        this.normalLow = normalLow;
+        this.normalHigh = normalHigh;
+        this.criticalLow = criticalLow;
+        this.criticalHigh = criticalHigh;
+    }
+
+    /** @return The metric's display name. */
+    public String getName() { return name; }
+
+    /** @return True if the value is inside the normal range, bounds included. */
+    public boolean isNormal(double value) { return value >= normalLow && value <= normalHigh; }
+
+    /** @return True if the value is above the normal range. */
+    public boolean isAboveNormal(double value) { return value > normalHigh; }
+
+    /** @return True if the value is below the normal range. */
+    public boolean isBelowNormal(double value) { return value < normalLow; }
+
+    /** @return True if the value is far enough outside the normal range to need immediate attention. */
+    public boolean isCritical(double value) { return value < criticalLow || value > criticalHigh; }
+
+    /**
+     * Builds a SQL condition over the vitals table's columns that holds when any metric is outside its range.
+     *
+     * @param critical True for the critical ranges, false for the normal ranges.
+     * @return The SQL condition.
+     */
+    static String outsideSql(boolean critical) {
+        List<String> conditions = new ArrayList<>();
+        for (VitalRange range : ALL) {
+            double low = critical ? range.criticalLow : range.normalLow;
+            double high = critical ? range.criticalHigh : range.normalHigh;
+            conditions.add(range.column + " < " + low);
+            if (!Double.isInfinite(high)) conditions.add(range.column + " > " + high);
+        }
+        return String.join(" OR ", conditions);
+    }
+}
+
 /**
  * Abstract base class for emergency alerts in the RPMS.
  * Implements the {@link Alertable} interface and provides functionality for checking vital signs.
  */
 abstract class EmergencyAlert implements Alertable {
+    static final String SEVERITY_NORMAL = "NORMAL";
+    static final String SEVERITY_ABNORMAL = "ABNORMAL";
+    static final String SEVERITY_CRITICAL = "CRITICAL";
+
     protected VitalSign vital;
     protected AlertService alertService;
     protected Patient patient;
@@ -1230,12 +2411,34 @@ abstract class EmergencyAlert implements Alertable {
      */
     public static boolean isWithinThreshold(VitalSign vital) {
         if (vital == null) return true;
-        return (vital.getHeartRate() >= 60 && vital.getHeartRate() <= 100) &&
-                (vital.getBloodPressure() >= 90 && vital.getBloodPressure() <= 140) &&
-                (vital.getBodyTemperature() >= 36.1 && vital.getBodyTemperature() <= 37.2) &&
-                (vital.getOxygenLevel() >= 95);
+        return VitalRange.HEART_RATE.isNormal(vital.getHeartRate()) &&
+                VitalRange.BLOOD_PRESSURE.isNormal(vital.getBloodPressure()) &&
+                VitalRange.BODY_TEMPERATURE.isNormal(vital.getBodyTemperature()) &&
+                VitalRange.OXYGEN_LEVEL.isNormal(vital.getOxygenLevel());
+    }
+
+    /**
+     * Classifies vital signs as normal, abnormal (outside the normal thresholds) or critical
+     * (far enough outside them to need immediate attention).
+     *
+     * @param vital The vital signs to classify.
+     * @return One of {@link #SEVERITY_NORMAL}, {@link #SEVERITY_ABNORMAL} or {@link #SEVERITY_CRITICAL}.
+     */
+    public static String getSeverity(VitalSign vital) {
+        if (isWithinThreshold(vital)) return SEVERITY_NORMAL;
+        boolean critical = VitalRange.HEART_RATE.isCritical(vital.getHeartRate()) ||
+                VitalRange.BLOOD_PRESSURE.isCritical(vital.getBloodPressure()) ||
+                VitalRange.BODY_TEMPERATURE.isCritical(vital.getBodyTemperature()) ||
+                VitalRange.OXYGEN_LEVEL.isCritical(vital.getOxygenLevel());
+        return critical ? SEVERITY_CRITICAL : SEVERITY_ABNORMAL;
     }
 
+    // SQL equivalent of getSeverity over the vitals table's columns, used to backfill stored readings
+    static final String SEVERITY_SQL = "CASE" +
+            " WHEN " + VitalRange.outsideSql(true) + " THEN '" + SEVERITY_CRITICAL + "'" +
+            " WHEN " + VitalRange.outsideSql(false) + " THEN '" + SEVERITY_ABNORMAL + "'" +
+            " ELSE '" + SEVERITY_NORMAL + "' END";
+
     /**
      * Checks the patient's vital signs and triggers an alert if they are abnormal.
      *
@@ -1334,6 +2537,8 @@ class PanicButton implements Alertable {
 class FileHandling {
     /**
      * Parses a CSV file containing vital signs data for a patient.
+     * Columns are heart_rate, oxygen_level, blood_pressure, temperature and an optional timestamp
+     * ("yyyy-MM-dd HH:mm:ss", ISO date-time or date); rows without a timestamp are stamped with the current time.
      *
      * @param filePath  The path to the CSV file.
      * @param patientID The ID of the patient.
@@ -1345,6 +2550,8 @@ class FileHandling {
             System.out.println("Error: CSV file path cannot be empty");
             return vitals;
         }
+        Metrics.Timer metric = Metrics.timer("csv.parse");
+        long started = metric.start();
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
             String line = br.readLine(); // Skip header
             if (line == null) {
@@ -1355,7 +2562,7 @@ class FileHandling {
             while ((line = br.readLine()) != null) {
                 rowNum++;
                 String[] fields = line.split(",");
-                if (fields.length != 4) {
+                if (fields.length != 4 && fields.length != 5) {
                     System.out.println("Invalid row " + rowNum + ": " + line);
                     continue;
                 }
@@ -1364,911 +2571,5270 @@ class FileHandling {
                     double oxygenLevel = Double.parseDouble(fields[1].trim());
                     double bloodPressure = Double.parseDouble(fields[2].trim());
                     double temperature = Double.parseDouble(fields[3].trim());
-                    VitalSign vital = new VitalSign(patientID, heartRate, bloodPressure, temperature, oxygenLevel, LocalDate.now());
+                    LocalDateTime timestamp = fields.length == 5 ? parseTimestamp(fields[4].trim()) : LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+                    VitalSign vital = new VitalSign(patientID, heartRate, bloodPressure, temperature, oxygenLevel, timestamp);
                     vitals.add(vital);
-                } catch (NumberFormatException e) {
+                } catch (NumberFormatException | DateTimeParseException e) {
                     System.out.println("Invalid data in row " + rowNum + ": " + line);
                 }
             }
         } catch (IOException e) {
+            metric.fail();
             System.out.println("Error reading CSV file: " + e.getMessage());
             return new ArrayList<>();
+        } finally {
+            metric.stop(started);
         }
         return vitals;
     }
-}
 
-/**
- * Singleton class for database operations in the RPMS.
- * Manages connections to a MySQL database and provides methods for user, appointment, and data management.
- */
-class DataBase {
-    private static DataBase instance;
-    private Connection connection;
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value.length() == 10) return LocalDate.parse(value).atStartOfDay();
+        if (value.indexOf('T') > 0) return LocalDateTime.parse(value);
+        return LocalDateTime.parse(value, ChatSearchIndex.TIMESTAMP_FORMAT);
+    }
+}
 
-    /**
-     * Private constructor to initialize the database connection.
-     */
-    private DataBase() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            String url = "jdbc:mysql://localhost:3306/hospitalmanagementsystem";
-            String username = "root";
-            String password = "America23";
-            connection = DriverManager.getConnection(url, username, password);
-            connection.setAutoCommit(false);
-        } catch (ClassNotFoundException | SQLException e) {
-            System.out.println("Database connection failed: " + e.getMessage());
-            connection = null;
-        }
+// Vital Store
+// Optional embedded time-series backend for vitals, enabled with -Drpms.vitals.store=<directory>.
+// Each patient has an append-only file of compressed chunks of up to CHUNK_SIZE readings, stored
+// column by column: timestamps use delta-of-delta encoding and each metric uses Gorilla XOR float
+// compression. New readings go to an uncompressed head log, forced to disk on every append, until a
+// chunk is full, so nothing is lost on restart. Every reading gets a per-patient sequence number; a chunk
+// header records the last one it holds, and replaying the head log skips readings already sealed, so a
+// crash between writing a chunk and clearing the log does not duplicate them. Chunk headers form a
+// sparse time index held in memory, and reads memory-map the file and decode only the chunks that
+// overlap the requested range. At most maxOpenSeries patients' files are held open; the least recently used
+// series nobody is reading or writing is closed when another one opens, and reopened from disk when needed.
+class VitalStore {
+    static final int CHUNK_SIZE = 1024;
+    static final int MAX_OPEN_SERIES = 256;
+    private static final int CHUNK_MAGIC = 0x56534332; // "VSC2"
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+    private static final int HEAD_RECORD_BYTES = 8 + 8 + 4 * 8;
+    private static final int METRICS = 4;
+
+    private final File root;
+    private final int maxOpenSeries;
+    // Open series in access order, least recently used first; guarded by itself
+    private final LinkedHashMap<String, Series> series = new LinkedHashMap<>(16, 0.75f, true);
+
+    public VitalStore(File root) throws IOException {
+        this(root, MAX_OPEN_SERIES);
     }
 
-    /**
-     * Retrieves the singleton instance of the DataBase.
-     *
-     * @return The singleton DataBase instance.
-     */
-    public static DataBase getInstance() {
-        if (instance == null) instance = new DataBase();
-        return instance;
+    VitalStore(File root, int maxOpenSeries) throws IOException {
+        this.root = root;
+        this.maxOpenSeries = maxOpenSeries;
+        if (!root.exists() && !root.mkdirs()) throw new IOException("Cannot create vital store directory " + root.getAbsolutePath());
     }
 
-    /**
-     * Retrieves the database connection.
-     *
-     * @return The database connection object.
-     */
-    public Connection getConnection() {
-        return connection;
+    public void append(VitalSign vital) throws IOException {
+        append(Collections.singletonList(vital));
     }
 
-    /**
-     * Adds a patient to the database.
-     *
-     * @param patient The patient to add.
-     */
-    public void addPatient(Patient patient) {
-        if (connection == null) return;
+    // Appends a batch, forcing each patient's head log to disk once at the end
+    public void append(List<VitalSign> vitals) throws IOException {
+        Map<String, Series> touched = new LinkedHashMap<>();
         try {
-            String insertUserSql = "INSERT INTO users (user_id, name, contact_info, gender, role, email) VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement userStmt = connection.prepareStatement(insertUserSql)) {
-                userStmt.setString(1, patient.getUserID());
-                userStmt.setString(2, patient.getName());
-                userStmt.setString(3, patient.getContactInfo());
-                userStmt.setString(4, patient.getGender());
-                userStmt.setString(5, "PATIENT");
-                userStmt.setString(6, patient.getEmail());
-                userStmt.executeUpdate();
+            for (VitalSign vital : vitals) {
+                Series s = touched.get(vital.getPatientID());
+                if (s == null) {
+                    s = acquire(vital.getPatientID());
+                    touched.put(vital.getPatientID(), s);
+                }
+                s.append(vital);
             }
+            for (Series s : touched.values()) s.sync();
+        } finally {
+            for (Series s : touched.values()) release(s);
+        }
+    }
 
-            String insertPatientSql = "INSERT INTO patients (user_id, birth_date, admission_date, email, password) VALUES (?, ?, ?, ?, ?)";
-            try (PreparedStatement patientStmt = connection.prepareStatement(insertPatientSql)) {
-                patientStmt.setString(1, patient.getUserID());
-                patientStmt.setDate(2, java.sql.Date.valueOf(patient.getBirthDate()));
-                patientStmt.setDate(3, patient.getAdmissionDate() != null ? java.sql.Date.valueOf(patient.getAdmissionDate()) : null);
-                patientStmt.setString(4, patient.getEmail());
-                patientStmt.setString(5, patient.getPassword());
-                patientStmt.executeUpdate();
+    // IDs of every patient with stored readings, sorted
+    public List<String> patientIds() {
+        Set<String> ids;
+        synchronized (series) {
+            ids = new TreeSet<>(series.keySet());
+        }
+        String[] names = root.list();
+        if (names != null) {
+            for (String name : names) {
+                int dot = name.lastIndexOf('.');
+                if (dot > 0 && (name.endsWith(".vs") || name.endsWith(".head"))) {
+                    ids.add(URLDecoder.decode(name.substring(0, dot), StandardCharsets.UTF_8));
+                }
             }
-
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding patient: " + e.getMessage());
         }
+        return new ArrayList<>(ids);
     }
 
     /**
-     * Adds a doctor to the database.
-     *
-     * @param doctor The doctor to add.
+     * Visits a patient's readings between from and to (inclusive, null for unbounded) in time order.
+     * The action returns false to stop the scan early.
      */
-    public void addDoctor(Doctor doctor) {
-        if (connection == null) return;
+    public void scan(String patientId, LocalDateTime from, LocalDateTime to, boolean newestFirst,
+                     Predicate<VitalSign> action) throws IOException {
+        long fromMillis = from != null ? toMillis(from) : Long.MIN_VALUE;
+        long toMillis = to != null ? toMillis(to) : Long.MAX_VALUE;
+        Series s = acquire(patientId);
         try {
-            String insertUserSql = "INSERT INTO users (user_id, name, contact_info, gender, role, email) VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement userStmt = connection.prepareStatement(insertUserSql)) {
-                userStmt.setString(1, doctor.getUserID());
-                userStmt.setString(2, doctor.getName());
-                userStmt.setString(3, doctor.getContactInfo());
-                userStmt.setString(4, doctor.getGender());
-                userStmt.setString(5, "DOCTOR");
-                userStmt.setString(6, doctor.getEmail());
-                userStmt.executeUpdate();
-            }
+            s.scan(fromMillis, toMillis, newestFirst, action);
+        } finally {
+            release(s);
+        }
+    }
 
-            String insertDoctorSql = "INSERT INTO doctors (user_id, joining_date, specialization, email, password) VALUES (?, ?, ?, ?, ?)";
-            try (PreparedStatement doctorStmt = connection.prepareStatement(insertDoctorSql)) {
-                doctorStmt.setString(1, doctor.getUserID());
-                doctorStmt.setDate(2, java.sql.Date.valueOf(doctor.getJoiningDate()));
-                doctorStmt.setString(3, doctor.getSpecialization());
-                doctorStmt.setString(4, doctor.getEmail());
-                doctorStmt.setString(5, doctor.getPassword());
-                doctorStmt.executeUpdate();
-            }
+    public List<VitalSign> read(String patientId, LocalDateTime from, LocalDateTime to, boolean newestFirst) throws IOException {
+        List<VitalSign> vitals = new ArrayList<>();
+        scan(patientId, from, to, newestFirst, vitals::add);
+        return vitals;
+    }
 
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding doctor: " + e.getMessage());
+    public void deletePatient(String patientId) throws IOException {
+        Series removed;
+        synchronized (series) {
+            removed = series.remove(patientId);
         }
+        if (removed != null) removed.close();
+        Files.deleteIfExists(dataFile(patientId).toPath());
+        Files.deleteIfExists(headFile(patientId).toPath());
     }
 
-    /**
-     * Adds an administrator to the database.
-     *
-     * @param admin The administrator to add.
-     */
-    public void addAdministrator(Administrator admin) {
-        if (connection == null) return;
-        try {
-            String insertUserSql = "INSERT INTO users (user_id, name, contact_info, gender, role, email) VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement userStmt = connection.prepareStatement(insertUserSql)) {
-                userStmt.setString(1, admin.getUserID());
-                userStmt.setString(2, admin.getName());
-                userStmt.setString(3, admin.getContactInfo());
-                userStmt.setString(4, admin.getGender());
-                userStmt.setString(5, "ADMIN");
-                userStmt.setString(6, admin.getEmail());
-                userStmt.executeUpdate();
-            }
+    public void close() {
+        synchronized (series) {
+            for (Series s : series.values()) closeQuietly(s);
+            series.clear();
+        }
+    }
 
-            String insertAdminSql = "INSERT INTO administrators (user_id, password, joining_date) VALUES (?, ?, ?)";
-            try (PreparedStatement adminStmt = connection.prepareStatement(insertAdminSql)) {
-                adminStmt.setString(1, admin.getUserID());
-                adminStmt.setString(2, admin.getPassword());
-                adminStmt.setDate(3, java.sql.Date.valueOf(admin.getJoiningDate()));
-                adminStmt.executeUpdate();
+    // Number of series whose files are open
+    int openSeries() {
+        synchronized (series) {
+            return series.size();
+        }
+    }
+
+    // Opens the patient's series if needed and pins it open until release
+    private Series acquire(String patientId) throws IOException {
+        synchronized (series) {
+            Series s = series.get(patientId);
+            if (s == null) {
+                s = new Series(patientId);
+                series.put(patientId, s);
             }
+            s.users++;
+            evict();
+            return s;
+        }
+    }
 
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding administrator: " + e.getMessage());
+    private void release(Series s) {
+        synchronized (series) {
+            s.users--;
+            evict();
         }
     }
 
-    /**
-     * Retrieves a user from the database by ID.
-     *
-     * @param userId The ID of the user to retrieve.
-     * @return The user object, or null if not found.
-     */
-    public User getUser(String userId) {
-        if (connection == null) return null;
-        try {
-            String sql = "SELECT * FROM users WHERE user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, userId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        String role = rs.getString("role");
-                        switch (role) {
-                            case "PATIENT": return getPatient(userId);
-                            case "DOCTOR": return getDoctor(userId);
-                            case "ADMIN": return getAdministrator(userId);
-                            default: return null;
-                        }
-                    }
-                    return null;
-                }
-            }
-        } catch (SQLException e) {
-            System.out.println("Error retrieving user: " + e.getMessage());
-            return null;
+    // Closes the least recently used series that are not pinned until at most maxOpenSeries stay open. A pinned
+    // series is never closed under its user, so there is never more than one open series per patient.
+    private void evict() {
+        Iterator<Series> open = series.values().iterator();
+        while (series.size() > maxOpenSeries && open.hasNext()) {
+            Series s = open.next();
+            if (s.users > 0) continue;
+            open.remove();
+            closeQuietly(s);
         }
     }
 
+    private static void closeQuietly(Series s) {
+        try {
+            s.close();
+        } catch (IOException e) {
+            System.out.println("Error closing vital store: " + e.getMessage());
+        }
+    }
+
+    private File dataFile(String patientId) {
+        return new File(root, URLEncoder.encode(patientId, StandardCharsets.UTF_8) + ".vs");
+    }
+
+    private File headFile(String patientId) {
+        return new File(root, URLEncoder.encode(patientId, StandardCharsets.UTF_8) + ".head");
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    // Sparse index entry: one per sealed chunk
+    private static class ChunkRef {
+        final long offset;
+        final int count;
+        final long firstMillis;
+        final long lastMillis;
+        final int length;
+
+        ChunkRef(long offset, int count, long firstMillis, long lastMillis, int length) {
+            this.offset = offset;
+            this.count = count;
+            this.firstMillis = firstMillis;
+            this.lastMillis = lastMillis;
+            this.length = length;
+        }
+    }
+
+    // One patient's data file, sparse index and head buffer
+    private class Series {
+        private final String patientId;
+        private final File dataFile;
+        private final List<ChunkRef> index = new ArrayList<>();
+        private final FileChannel dataChannel;
+        private final FileChannel headChannel;
+        private final long[] headMillis = new long[CHUNK_SIZE];
+        private final double[][] headValues = new double[METRICS][CHUNK_SIZE];
+        private int headCount;
+        private long sealedSequence; // Last sequence number held in a chunk
+        private long lastSequence; // Last sequence number given to a reading
+        private boolean ordered = true; // True while every chunk starts after the previous one ends
+        private MappedByteBuffer mapped;
+        private int users; // Callers that have acquired this series; guarded by the series map
+
+        Series(String patientId) throws IOException {
+            this.patientId = patientId;
+            this.dataFile = dataFile(patientId);
+            dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            loadIndex();
+            headChannel = FileChannel.open(headFile(patientId).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replayHead();
+        }
+
+        // Reads the chunk headers, dropping a partially written last chunk
+        private void loadIndex() throws IOException {
+            long size = dataChannel.size();
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (offset + HEADER_BYTES <= size) {
+                header.clear();
+                dataChannel.read(header, offset);
+                header.flip();
+                if (header.getInt() != CHUNK_MAGIC) break;
+                int count = header.getInt();
+                long first = header.getLong();
+                long last = header.getLong();
+                long sequence = header.getLong();
+                int length = header.getInt();
+                if (offset + HEADER_BYTES + length > size) break;
+                addToIndex(new ChunkRef(offset + HEADER_BYTES, count, first, last, length));
+                sealedSequence = Math.max(sealedSequence, sequence);
+                offset += HEADER_BYTES + length;
+            }
+            if (offset < size) dataChannel.truncate(offset);
+        }
+
+        // Loads the unsealed readings of the head log, skipping any that the last chunk already holds, and
+        // drops a partially written last record
+        private void replayHead() throws IOException {
+            long records = headChannel.size() / HEAD_RECORD_BYTES;
+            ByteBuffer record = ByteBuffer.allocate(HEAD_RECORD_BYTES);
+            lastSequence = sealedSequence;
+            boolean sealed = false;
+            for (long i = 0; i < records && headCount < CHUNK_SIZE; i++) {
+                record.clear();
+                headChannel.read(record, i * HEAD_RECORD_BYTES);
+                record.flip();
+                long sequence = record.getLong();
+                long millis = record.getLong();
+                double[] values = new double[METRICS];
+                for (int m = 0; m < METRICS; m++) values[m] = record.getDouble();
+                if (sequence <= sealedSequence) {
+                    sealed = true;
+                    continue;
+                }
+                lastSequence = Math.max(lastSequence, sequence);
+                addToHead(millis, values);
+            }
+            if (sealed) {
+                // Rewrite the log with only the unsealed readings, so they are not skipped twice
+                headChannel.truncate(0);
+                for (int i = 0; i < headCount; i++) writeHeadRecord(lastSequence - headCount + 1 + i, i);
+                headChannel.force(false);
+            } else {
+                headChannel.truncate(records * HEAD_RECORD_BYTES);
+            }
+            headChannel.position(headChannel.size());
+            // A crash right after the last reading of a chunk was logged leaves a full head to seal
+            if (headCount == CHUNK_SIZE) sealHead();
+        }
+
+        // Writes one head record; the caller forces the log with sync()
+        synchronized void append(VitalSign vital) throws IOException {
+            long millis = toMillis(vital.getTimestamp());
+            double[] values = {vital.getHeartRate(), vital.getBloodPressure(), vital.getBodyTemperature(), vital.getOxygenLevel()};
+            ByteBuffer record = ByteBuffer.allocate(HEAD_RECORD_BYTES);
+            record.putLong(++lastSequence);
+            record.putLong(millis);
+            for (double value : values) record.putDouble(value);
+            record.flip();
+            while (record.hasRemaining()) headChannel.write(record);
+            addToHead(millis, values);
+            if (headCount == CHUNK_SIZE) sealHead();
+        }
+
+        synchronized void sync() throws IOException {
+            headChannel.force(false);
+        }
+
+        private void writeHeadRecord(long sequence, int i) throws IOException {
+            ByteBuffer record = ByteBuffer.allocate(HEAD_RECORD_BYTES);
+            record.putLong(sequence).putLong(headMillis[i]);
+            for (int m = 0; m < METRICS; m++) record.putDouble(headValues[m][i]);
+            record.flip();
+            while (record.hasRemaining()) headChannel.write(record, headChannel.size());
+        }
+
+        // Keeps the head sorted by time; readings normally arrive in order, so this is an append
+        private void addToHead(long millis, double[] values) {
+            int position = headCount;
+            while (position > 0 && headMillis[position - 1] > millis) {
+                headMillis[position] = headMillis[position - 1];
+                for (int m = 0; m < METRICS; m++) headValues[m][position] = headValues[m][position - 1];
+                position--;
+            }
+            headMillis[position] = millis;
+            for (int m = 0; m < METRICS; m++) headValues[m][position] = values[m];
+            headCount++;
+        }
+
+        // Compresses the head into a chunk, appends it to the data file and clears the head log
+        private void sealHead() throws IOException {
+            BitWriter bits = new BitWriter();
+            encodeTimestamps(bits, headMillis, headCount);
+            for (int m = 0; m < METRICS; m++) encodeValues(bits, headValues[m], headCount);
+            byte[] payload = bits.toByteArray();
+
+            long offset = dataChannel.size();
+            ByteBuffer chunk = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+            chunk.putInt(CHUNK_MAGIC).putInt(headCount).putLong(headMillis[0]).putLong(headMillis[headCount - 1])
+                    .putLong(lastSequence).putInt(payload.length).put(payload);
+            chunk.flip();
+            long position = offset;
+            while (chunk.hasRemaining()) position += dataChannel.write(chunk, position);
+            dataChannel.force(false);
+            addToIndex(new ChunkRef(offset + HEADER_BYTES, headCount, headMillis[0], headMillis[headCount - 1], payload.length));
+            sealedSequence = lastSequence;
+
+            headChannel.truncate(0);
+            headChannel.position(0);
+            headCount = 0;
+        }
+
+        private void addToIndex(ChunkRef chunk) {
+            if (!index.isEmpty() && chunk.firstMillis < index.get(index.size() - 1).lastMillis) ordered = false;
+            index.add(chunk);
+        }
+
+        synchronized void scan(long fromMillis, long toMillis, boolean newestFirst, Predicate<VitalSign> action) throws IOException {
+            boolean headOverlaps = headCount > 0 && !index.isEmpty() && headMillis[0] < index.get(index.size() - 1).lastMillis;
+            if (!ordered || headOverlaps) {
+                // Backfilled data: gather the matching readings and sort them
+                List<long[]> keys = new ArrayList<>();
+                List<VitalSign> matches = new ArrayList<>();
+                visitChunks(fromMillis, toMillis, false, (millis, vital) -> {
+                    keys.add(new long[]{millis, keys.size()});
+                    matches.add(vital);
+                    return true;
+                });
+                keys.sort(Comparator.comparingLong((long[] k) -> k[0]).thenComparingLong(k -> k[1]));
+                if (newestFirst) Collections.reverse(keys);
+                for (long[] key : keys) {
+                    if (!action.test(matches.get((int) key[1]))) return;
+                }
+                return;
+            }
+            visitChunks(fromMillis, toMillis, newestFirst, (millis, vital) -> action.test(vital));
+        }
+
+        // Visits sealed chunks (in index order) and the head; returns early when the visitor returns false
+        private void visitChunks(long fromMillis, long toMillis, boolean newestFirst, PointVisitor visitor) throws IOException {
+            List<ChunkRef> chunks = new ArrayList<>();
+            for (ChunkRef chunk : index) {
+                if (chunk.lastMillis >= fromMillis && chunk.firstMillis <= toMillis) chunks.add(chunk);
+            }
+            if (newestFirst) {
+                if (!visitPoints(headMillis, headValues, headCount, fromMillis, toMillis, true, visitor)) return;
+                for (int i = chunks.size() - 1; i >= 0; i--) {
+                    if (!visitChunk(chunks.get(i), fromMillis, toMillis, true, visitor)) return;
+                }
+            } else {
+                for (ChunkRef chunk : chunks) {
+                    if (!visitChunk(chunk, fromMillis, toMillis, false, visitor)) return;
+                }
+                visitPoints(headMillis, headValues, headCount, fromMillis, toMillis, false, visitor);
+            }
+        }
+
+        private boolean visitChunk(ChunkRef chunk, long fromMillis, long toMillis, boolean newestFirst, PointVisitor visitor) throws IOException {
+            MappedByteBuffer buffer = mapped(chunk.offset + chunk.length);
+            BitReader bits = new BitReader(buffer, (int) chunk.offset);
+            long[] millis = decodeTimestamps(bits, chunk.count);
+            double[][] values = new double[METRICS][];
+            for (int m = 0; m < METRICS; m++) values[m] = decodeValues(bits, chunk.count);
+            return visitPoints(millis, values, chunk.count, fromMillis, toMillis, newestFirst, visitor);
+        }
+
+        private boolean visitPoints(long[] millis, double[][] values, int count, long fromMillis, long toMillis,
+                                    boolean newestFirst, PointVisitor visitor) {
+            for (int n = 0; n < count; n++) {
+                int i = newestFirst ? count - 1 - n : n;
+                if (millis[i] < fromMillis || millis[i] > toMillis) continue;
+                VitalSign vital = new VitalSign(patientId, values[0][i], values[1][i], values[2][i], values[3][i], fromMillis(millis[i]));
+                if (!visitor.visit(millis[i], vital)) return false;
+            }
+            return true;
+        }
+
+        // Maps the data file read-only, remapping only when it has grown past the current mapping
+        private MappedByteBuffer mapped(long requiredSize) throws IOException {
+            if (mapped == null || mapped.capacity() < requiredSize) {
+                mapped = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataChannel.size());
+            }
+            return mapped;
+        }
+
+        synchronized void close() throws IOException {
+            mapped = null;
+            dataChannel.close();
+            headChannel.close();
+        }
+    }
+
+    private interface PointVisitor {
+        boolean visit(long millis, VitalSign vital);
+    }
+
+    // Timestamps: first value raw, first delta raw, then delta-of-delta in variable-width buckets
+    static void encodeTimestamps(BitWriter bits, long[] millis, int count) {
+        bits.write(millis[0], 64);
+        if (count == 1) return;
+        long previousDelta = millis[1] - millis[0];
+        bits.write(previousDelta, 64);
+        for (int i = 2; i < count; i++) {
+            long delta = millis[i] - millis[i - 1];
+            long dod = delta - previousDelta;
+            if (dod == 0) {
+                bits.write(0, 1);
+            } else if (dod >= -64 && dod <= 63) {
+                bits.write(0b10, 2);
+                bits.write(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                bits.write(0b110, 3);
+                bits.write(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                bits.write(0b1110, 4);
+                bits.write(dod, 12);
+            } else {
+                bits.write(0b1111, 4);
+                bits.write(dod, 64);
+            }
+            previousDelta = delta;
+        }
+    }
+
+    static long[] decodeTimestamps(BitReader bits, int count) {
+        long[] millis = new long[count];
+        millis[0] = bits.read(64);
+        if (count == 1) return millis;
+        long delta = bits.read(64);
+        millis[1] = millis[0] + delta;
+        for (int i = 2; i < count; i++) {
+            long dod;
+            if (bits.read(1) == 0) dod = 0;
+            else if (bits.read(1) == 0) dod = signExtend(bits.read(7), 7);
+            else if (bits.read(1) == 0) dod = signExtend(bits.read(9), 9);
+            else if (bits.read(1) == 0) dod = signExtend(bits.read(12), 12);
+            else dod = bits.read(64);
+            delta += dod;
+            millis[i] = millis[i - 1] + delta;
+        }
+        return millis;
+    }
+
+    // Values: Gorilla XOR against the previous value, reusing the previous leading/trailing zero window when it fits
+    static void encodeValues(BitWriter bits, double[] values, int count) {
+        long previous = Double.doubleToRawLongBits(values[0]);
+        bits.write(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long current = Double.doubleToRawLongBits(values[i]);
+            long xor = current ^ previous;
+            if (xor == 0) {
+                bits.write(0, 1);
+            } else {
+                bits.write(1, 1);
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                    bits.write(0, 1);
+                    bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    bits.write(1, 1);
+                    bits.write(leading, 5);
+                    bits.write(significant == 64 ? 0 : significant, 6);
+                    bits.write(xor >>> trailing, significant);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previous = current;
+        }
+    }
+
+    static double[] decodeValues(BitReader bits, int count) {
+        double[] values = new double[count];
+        long previous = bits.read(64);
+        values[0] = Double.longBitsToDouble(previous);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (bits.read(1) != 0) {
+                if (bits.read(1) != 0) {
+                    leading = (int) bits.read(5);
+                    int significant = (int) bits.read(6);
+                    if (significant == 0) significant = 64;
+                    trailing = 64 - leading - significant;
+                }
+                previous ^= bits.read(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    private static long signExtend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+
+    static class BitWriter {
+        private byte[] bytes = new byte[1024];
+        private long bitCount;
+
+        // Writes the low-order bits of value, most significant first
+        void write(long value, int bits) {
+            for (int i = bits - 1; i >= 0; i--) {
+                int index = (int) (bitCount >>> 3);
+                if (index == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                if (((value >>> i) & 1) != 0) bytes[index] |= (byte) (0x80 >>> (bitCount & 7));
+                bitCount++;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    static class BitReader {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private long position;
+
+        BitReader(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                int b = buffer.get(offset + (int) (position >>> 3));
+                value = (value << 1) | ((b >>> (7 - (position & 7))) & 1);
+                position++;
+            }
+            return value;
+        }
+    }
+}
+
+/**
+ * Singleton class for database operations in the RPMS.
+ * Manages connections to a MySQL database and provides methods for user, appointment, and data management.
+ */
+class DataBase {
+    // In-memory H2 database in MySQL mode, created from schema.sql, for load tests and demos without a MySQL install
+    static final String EMBEDDED_URL = "jdbc:h2:mem:rpms;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;" +
+            "INIT=RUNSCRIPT FROM 'classpath:com/example/oopproject/schema.sql'";
+    // Connection settings default to the local MySQL install. "rpms.db.url", "rpms.db.user" and "rpms.db.password"
+    // override them, and "rpms.db=embedded" selects the embedded database (H2 must be on the class path)
+    private static final boolean EMBEDDED = "embedded".equals(System.getProperty("rpms.db"));
+    private static final String URL = EMBEDDED ? EMBEDDED_URL
+            : System.getProperty("rpms.db.url", "jdbc:mysql://localhost:3306/hospitalmanagementsystem?rewriteBatchedStatements=true");
+    private static final String USERNAME = System.getProperty("rpms.db.user", EMBEDDED ? "sa" : "root");
+    private static final String PASSWORD = System.getProperty("rpms.db.password", EMBEDDED ? "" : "America23");
+    // Connector/J streams a result set row by row only for this sentinel; other drivers such as H2 reject a
+    // negative fetch size and take a positive one as the number of rows to fetch per round trip
+    private static final int STREAMING_FETCH_SIZE = URL.startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : 1000;
+    private static DataBase instance;
+    private static CompletableFuture<DataBase> connecting;
+    private Connection connection;
+    private ChatSearchIndex messageIndex;
+    private ChatInbox chatInbox;
+    private MessageArchive messageArchive;
+    private final Map<String, DoctorSchedule> doctorSchedules = new HashMap<>();
+    private final VitalSignFeed vitalFeed = new VitalSignFeed();
+    private VitalStore vitalStore;
+    private boolean vitalStoreChecked;
+    private static final int KNOWN_PATIENTS_CAPACITY = 10_000;
+    private static final long KNOWN_PATIENT_TTL = TimeUnit.MINUTES.toNanos(5);
+    private static final long UNKNOWN_PATIENT_TTL = TimeUnit.SECONDS.toNanos(30);
+    // isPatient answers by user ID, least recently used first; guarded by its own monitor
+    private final LinkedHashMap<String, PatientLookup> knownPatients = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PatientLookup> eldest) {
+            return size() > KNOWN_PATIENTS_CAPACITY;
+        }
+    };
+    private long knownPatientsVersion;
+
     /**
-     * Retrieves a patient from the database by ID.
-     *
-     * @param userId The ID of the patient to retrieve.
-     * @return The patient object, or null if not found.
+     * Private constructor to initialize the database connection.
      */
-    private Patient getPatient(String userId) {
-        if (connection == null) return null;
+    private DataBase() {
         try {
-            String sql = "SELECT u.*, p.birth_date, p.admission_date, p.email, p.password " +
-                    "FROM users u JOIN patients p ON u.user_id = p.user_id WHERE u.user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, userId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        String name = rs.getString("name");
-                        String contactInfo = rs.getString("contact_info");
-                        String email = rs.getString("email");
-                        String gender = rs.getString("gender");
-                        String password = rs.getString("password");
-                        LocalDate birthDate = rs.getDate("birth_date").toLocalDate();
-                        LocalDate admissionDate = rs.getDate("admission_date") != null ? rs.getDate("admission_date").toLocalDate() : null;
-                        Patient patient = new Patient(userId, name, contactInfo, email, password, gender, birthDate);
-                        patient.setAdmissionDate(admissionDate);
-                        return patient;
-                    }
-                    return null;
-                }
+            // Other drivers register themselves through the JDBC service loader
+            if (URL.startsWith("jdbc:mysql:")) Class.forName("com.mysql.cj.jdbc.Driver");
+            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            connection.setAutoCommit(false);
+        } catch (ClassNotFoundException | SQLException e) {
+            System.out.println("Database connection failed: " + e.getMessage());
+            connection = null;
+            return;
+        }
+        try {
+            upgradeSchema();
+        } catch (SQLException e) {
+            System.out.println("Error upgrading database schema: " + e.getMessage());
+        }
+    }
+
+    // Brings an older schema up to date: adds the vitals ts column (backfilled from checkup_date) with its
+    // (patient_id, ts) index and the severity column (backfilled from the stored readings), and creates the
+    // tables added since. DDL commits implicitly, so this runs once, before the instance is published, on its
+    // own auto-commit connection instead of in a transaction on the shared one.
+    private static synchronized void upgradeSchema() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+             Statement stmt = conn.createStatement()) {
+            if (!hasColumn(conn, "vitals", "ts")) {
+                stmt.execute("ALTER TABLE vitals ADD COLUMN ts DATETIME NULL");
+                stmt.executeUpdate("UPDATE vitals SET ts = TIMESTAMP(checkup_date) WHERE ts IS NULL");
+                stmt.execute("CREATE INDEX idx_vitals_patient_ts ON vitals (patient_id, ts)");
+            }
+            if (!hasColumn(conn, "vitals", "severity")) {
+                stmt.execute("ALTER TABLE vitals ADD COLUMN severity VARCHAR(10) NOT NULL DEFAULT '" + EmergencyAlert.SEVERITY_NORMAL + "'");
+                stmt.executeUpdate("UPDATE vitals SET severity = " + EmergencyAlert.SEVERITY_SQL);
+                stmt.execute("CREATE INDEX idx_vitals_severity_ts ON vitals (severity, ts)");
             }
+            stmt.execute(VitalRollup.CREATE_TABLE_SQL);
+            stmt.execute(VitalAlertDispatcher.CREATE_TABLE_SQL);
+        }
+    }
+
+    /**
+     * Retrieves the singleton instance of the DataBase.
+     *
+     * @return The singleton DataBase instance.
+     */
+    public static synchronized DataBase getInstance() {
+        if (instance == null) instance = new DataBase();
+        return instance;
+    }
+
+    /**
+     * Connects to the database on a background thread and warms the connection up, so callers such as the
+     * login screen do not block on {@link DriverManager#getConnection}. Repeated calls share one attempt.
+     *
+     * @return A future completed with the singleton instance, which may be disconnected if the connect failed.
+     */
+    public static synchronized CompletableFuture<DataBase> connectInBackground() {
+        if (connecting == null) {
+            connecting = CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                DataBase db = getInstance();
+                StartupTimer.record("database connect", start);
+                start = System.nanoTime();
+                db.warmUp();
+                StartupTimer.record("database warm-up", start);
+                return db;
+            }, runnable -> {
+                Thread thread = new Thread(runnable, "database-connect");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+        return connecting;
+    }
+
+    // Runs a round trip up front, so the first upload or query after login does not pay for it
+    private void warmUp() {
+        if (connection == null) return;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1")) {
+            rs.next();
         } catch (SQLException e) {
-            System.out.println("Error retrieving patient: " + e.getMessage());
-            return null;
+            System.out.println("Error warming up database connection: " + e.getMessage());
         }
     }
 
     /**
-     * Retrieves a doctor from the database by ID.
+     * Retrieves the database connection.
      *
-     * @param userId The ID of the doctor to retrieve.
-     * @return The doctor object, or null if not found.
+     * @return The database connection object.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Opens a separate read-only connection for long-running reads, so they neither block nor are blocked by
+     * the shared connection. The caller is responsible for closing it.
+     *
+     * @return A new read-only database connection.
+     * @throws SQLException If the connection cannot be opened.
+     */
+    public Connection openReadConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        conn.setReadOnly(true);
+        return conn;
+    }
+
+    /**
+     * Opens a separate transactional connection for a background writer, so its transactions do not
+     * interleave with those on the shared connection. The caller is responsible for closing it.
+     *
+     * @return A new database connection with auto-commit disabled.
+     * @throws SQLException If the connection cannot be opened.
      */
-    private Doctor getDoctor(String userId) {
-        if (connection == null) return null;
+    public Connection openWriteConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        conn.setAutoCommit(false);
+        return conn;
+    }
+
+    /**
+     * Adds a patient to the database.
+     *
+     * @param patient The patient to add.
+     */
+    public void addPatient(Patient patient) {
+        if (connection == null) return;
         try {
-            String sql = "SELECT u.*, d.joining_date, d.specialization, d.email, d.password " +
-                    "FROM users u JOIN doctors d ON u.user_id = d.user_id WHERE u.user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, userId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        String name = rs.getString("name");
-                        String contactInfo = rs.getString("contact_info");
-                        String email = rs.getString("email");
-                        String gender = rs.getString("gender");
-                        String password = rs.getString("password");
-                        LocalDate joiningDate = rs.getDate("joining_date").toLocalDate();
-                        String specialization = rs.getString("specialization");
-                        return new Doctor(userId, name, contactInfo, email, password, gender, specialization, joiningDate);
-                    }
-                    return null;
+            Metrics.time("database.addPatient", () -> {
+                String insertUserSql = "INSERT INTO users (user_id, name, contact_info, gender, role, email) VALUES (?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement userStmt = connection.prepareStatement(insertUserSql)) {
+                    userStmt.setString(1, patient.getUserID());
+                    userStmt.setString(2, patient.getName());
+                    userStmt.setString(3, patient.getContactInfo());
+                    userStmt.setString(4, patient.getGender());
+                    userStmt.setString(5, "PATIENT");
+                    userStmt.setString(6, patient.getEmail());
+                    userStmt.executeUpdate();
                 }
-            }
+
+                String insertPatientSql = "INSERT INTO patients (user_id, birth_date, admission_date, email, password) VALUES (?, ?, ?, ?, ?)";
+                try (PreparedStatement patientStmt = connection.prepareStatement(insertPatientSql)) {
+                    patientStmt.setString(1, patient.getUserID());
+                    patientStmt.setDate(2, java.sql.Date.valueOf(patient.getBirthDate()));
+                    patientStmt.setDate(3, patient.getAdmissionDate() != null ? java.sql.Date.valueOf(patient.getAdmissionDate()) : null);
+                    patientStmt.setString(4, patient.getEmail());
+                    patientStmt.setString(5, patient.getPassword());
+                    patientStmt.executeUpdate();
+                }
+
+                connection.commit();
+                forgetPatient(patient.getUserID());
+            });
         } catch (SQLException e) {
-            System.out.println("Error retrieving doctor: " + e.getMessage());
-            return null;
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding patient: " + e.getMessage());
         }
     }
 
     /**
-     * Retrieves an administrator from the database by ID.
+     * Adds a doctor to the database.
      *
-     * @param userId The ID of the administrator to retrieve.
-     * @return The administrator object, or null if not found.
+     * @param doctor The doctor to add.
      */
-    private Administrator getAdministrator(String userId) {
-        if (connection == null) return null;
+    public void addDoctor(Doctor doctor) {
+        if (connection == null) return;
         try {
-            String sql = "SELECT u.*, a.password, a.joining_date " +
-                    "FROM users u JOIN administrators a ON u.user_id = a.user_id WHERE u.user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, userId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        String name = rs.getString("name");
-                        String contactInfo = rs.getString("contact_info");
-                        String email = rs.getString("email");
-                        String gender = rs.getString("gender");
-                        String password = rs.getString("password");
-                        LocalDate joiningDate = rs.getDate("joining_date").toLocalDate();
-                        return new Administrator(userId, name, contactInfo, email, password, gender, joiningDate);
-                    }
-                    return null;
+            Metrics.time("database.addDoctor", () -> {
+                String insertUserSql = "INSERT INTO users (user_id, name, contact_info, gender, role, email) VALUES (?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement userStmt = connection.prepareStatement(insertUserSql)) {
+                    userStmt.setString(1, doctor.getUserID());
+                    userStmt.setString(2, doctor.getName());
+                    userStmt.setString(3, doctor.getContactInfo());
+                    userStmt.setString(4, doctor.getGender());
+                    userStmt.setString(5, "DOCTOR");
+                    userStmt.setString(6, doctor.getEmail());
+                    userStmt.executeUpdate();
                 }
-            }
+
+                String insertDoctorSql = "INSERT INTO doctors (user_id, joining_date, specialization, email, password) VALUES (?, ?, ?, ?, ?)";
+                try (PreparedStatement doctorStmt = connection.prepareStatement(insertDoctorSql)) {
+                    doctorStmt.setString(1, doctor.getUserID());
+                    doctorStmt.setDate(2, java.sql.Date.valueOf(doctor.getJoiningDate()));
+                    doctorStmt.setString(3, doctor.getSpecialization());
+                    doctorStmt.setString(4, doctor.getEmail());
+                    doctorStmt.setString(5, doctor.getPassword());
+                    doctorStmt.executeUpdate();
+                }
+
+                connection.commit();
+            });
         } catch (SQLException e) {
-            System.out.println("Error retrieving administrator: " + e.getMessage());
-            return null;
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding doctor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds an administrator to the database.
+     *
+     * @param admin The administrator to add.
+     */
+    public void addAdministrator(Administrator admin) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.addAdministrator", () -> {
+                String insertUserSql = "INSERT INTO users (user_id, name, contact_info, gender, role, email) VALUES (?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement userStmt = connection.prepareStatement(insertUserSql)) {
+                    userStmt.setString(1, admin.getUserID());
+                    userStmt.setString(2, admin.getName());
+                    userStmt.setString(3, admin.getContactInfo());
+                    userStmt.setString(4, admin.getGender());
+                    userStmt.setString(5, "ADMIN");
+                    userStmt.setString(6, admin.getEmail());
+                    userStmt.executeUpdate();
+                }
+
+                String insertAdminSql = "INSERT INTO administrators (user_id, password, joining_date) VALUES (?, ?, ?)";
+                try (PreparedStatement adminStmt = connection.prepareStatement(insertAdminSql)) {
+                    adminStmt.setString(1, admin.getUserID());
+                    adminStmt.setString(2, admin.getPassword());
+                    adminStmt.setDate(3, java.sql.Date.valueOf(admin.getJoiningDate()));
+                    adminStmt.executeUpdate();
+                }
+
+                connection.commit();
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding administrator: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether a user ID belongs to a patient. Answers are cached in a bounded cache for five minutes
+     * (thirty seconds for IDs that are not patients); addPatient and removePatient drop the patient's entry,
+     * so only changes made by another process can be seen late.
+     *
+     * @param userId The ID to check.
+     * @return True if the ID belongs to a patient.
+     */
+    public boolean isPatient(String userId) {
+        return isPatient(userId, connection);
+    }
+
+    /**
+     * Checks whether a user ID belongs to a patient, reading on the given connection when the answer is not cached.
+     *
+     * @param userId The ID to check.
+     * @param conn   The connection to read on, e.g. a background writer's own connection.
+     * @return True if the ID belongs to a patient.
+     */
+    public boolean isPatient(String userId, Connection conn) {
+        long version;
+        synchronized (knownPatients) {
+            PatientLookup cached = knownPatients.get(userId);
+            if (cached != null && cached.expires - System.nanoTime() > 0) return cached.patient;
+            version = knownPatientsVersion;
+        }
+        boolean patient = getUser(userId, conn) instanceof Patient;
+        synchronized (knownPatients) {
+            // An answer read while the patient was being added or removed is not cached
+            if (version == knownPatientsVersion) {
+                knownPatients.put(userId, new PatientLookup(patient, System.nanoTime() + (patient ? KNOWN_PATIENT_TTL : UNKNOWN_PATIENT_TTL)));
+            }
+        }
+        return patient;
+    }
+
+    private void forgetPatient(String patientId) {
+        synchronized (knownPatients) {
+            knownPatients.remove(patientId);
+            knownPatientsVersion++;
+        }
+    }
+
+    private static final class PatientLookup {
+        final boolean patient;
+        final long expires;
+
+        PatientLookup(boolean patient, long expires) {
+            this.patient = patient;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Retrieves a user from the database by ID.
+     *
+     * @param userId The ID of the user to retrieve.
+     * @return The user object, or null if not found.
+     */
+    public User getUser(String userId) {
+        return getUser(userId, connection);
+    }
+
+    /**
+     * Retrieves a user by ID on the given connection, e.g. a background worker's own connection.
+     *
+     * @param userId The ID of the user to retrieve.
+     * @param conn   The connection to read on.
+     * @return The user object, or null if not found.
+     */
+    public User getUser(String userId, Connection conn) {
+        if (conn == null) return null;
+        try {
+            return Metrics.time("database.getUser", () -> {
+                String sql = "SELECT * FROM users WHERE user_id = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            String role = rs.getString("role");
+                            switch (role) {
+                                case "PATIENT": return getPatient(userId, conn);
+                                case "DOCTOR": return getDoctor(userId, conn);
+                                case "ADMIN": return getAdministrator(userId, conn);
+                                default: return null;
+                            }
+                        }
+                        return null;
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving user: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves a patient from the database by ID.
+     *
+     * @param userId The ID of the patient to retrieve.
+     * @return The patient object, or null if not found.
+     */
+    private Patient getPatient(String userId, Connection conn) {
+        if (conn == null) return null;
+        try {
+            String sql = "SELECT u.*, p.birth_date, p.admission_date, p.email, p.password " +
+                    "FROM users u JOIN patients p ON u.user_id = p.user_id WHERE u.user_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, userId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        String name = rs.getString("name");
+                        String contactInfo = rs.getString("contact_info");
+                        String email = rs.getString("email");
+                        String gender = rs.getString("gender");
+                        String password = rs.getString("password");
+                        LocalDate birthDate = rs.getDate("birth_date").toLocalDate();
+                        LocalDate admissionDate = rs.getDate("admission_date") != null ? rs.getDate("admission_date").toLocalDate() : null;
+                        Patient patient = new Patient(userId, name, contactInfo, email, password, gender, birthDate);
+                        patient.setAdmissionDate(admissionDate);
+                        return patient;
+                    }
+                    return null;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error retrieving patient: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves a doctor from the database by ID.
+     *
+     * @param userId The ID of the doctor to retrieve.
+     * @return The doctor object, or null if not found.
+     */
+    private Doctor getDoctor(String userId, Connection conn) {
+        if (conn == null) return null;
+        try {
+            String sql = "SELECT u.*, d.joining_date, d.specialization, d.email, d.password " +
+                    "FROM users u JOIN doctors d ON u.user_id = d.user_id WHERE u.user_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, userId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        String name = rs.getString("name");
+                        String contactInfo = rs.getString("contact_info");
+                        String email = rs.getString("email");
+                        String gender = rs.getString("gender");
+                        String password = rs.getString("password");
+                        LocalDate joiningDate = rs.getDate("joining_date").toLocalDate();
+                        String specialization = rs.getString("specialization");
+                        return new Doctor(userId, name, contactInfo, email, password, gender, specialization, joiningDate);
+                    }
+                    return null;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error retrieving doctor: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves an administrator from the database by ID.
+     *
+     * @param userId The ID of the administrator to retrieve.
+     * @return The administrator object, or null if not found.
+     */
+    private Administrator getAdministrator(String userId, Connection conn) {
+        if (conn == null) return null;
+        try {
+            String sql = "SELECT u.*, a.password, a.joining_date " +
+                    "FROM users u JOIN administrators a ON u.user_id = a.user_id WHERE u.user_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, userId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        String name = rs.getString("name");
+                        String contactInfo = rs.getString("contact_info");
+                        String email = rs.getString("email");
+                        String gender = rs.getString("gender");
+                        String password = rs.getString("password");
+                        LocalDate joiningDate = rs.getDate("joining_date").toLocalDate();
+                        return new Administrator(userId, name, contactInfo, email, password, gender, joiningDate);
+                    }
+                    return null;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error retrieving administrator: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Adds an appointment to the database.
+     *
+     * @param appointment The appointment to add.
+     */
+    public void addAppointment(Appointment appointment) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.addAppointment", () -> {
+                String sql = "INSERT INTO appointments (appointment_time, patient_id, doctor_id, status) VALUES (?, ?, ?, ?)";
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(appointment.getAppointmentTime()));
+                    stmt.setString(2, appointment.getPatient().getUserID());
+                    stmt.setString(3, appointment.getDoctor().getUserID());
+                    stmt.setString(4, appointment.getAppointmentStatus());
+                    stmt.executeUpdate();
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        appointment.setAppointmentID(rs.getLong(1));
+                    }
+                }
+                connection.commit();
+                synchronized (this) {
+                    DoctorSchedule schedule = doctorSchedules.get(appointment.getDoctor().getUserID());
+                    if (schedule != null && !"Canceled".equals(appointment.getAppointmentStatus())) {
+                        schedule.addBooking(new DoctorSchedule.Booking("Appointment", appointment.getAppointmentID(),
+                                appointment.getPatient().getUserID(), appointment.getAppointmentTime(),
+                                appointment.getAppointmentTime().plus(DoctorSchedule.DEFAULT_SLOT)));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            // An ID read before a failed commit belongs to a row that was rolled back
+            appointment.setAppointmentID(0);
+            System.out.println("Error adding appointment: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds an appointment to the database only if the doctor has no other non-canceled appointment and no video
+     * consultation overlapping it. The check and the insert are a single statement, so two concurrent requests
+     * cannot both succeed.
+     *
+     * @param appointment The appointment to add.
+     * @param length      The length of the appointment.
+     * @return True if the appointment was added, false if the slot was taken or the insert failed.
+     */
+    public boolean addAppointmentIfFree(Appointment appointment, Duration length) {
+        if (connection == null) return false;
+        try {
+            return Metrics.time("database.addAppointmentIfFree", () -> {
+                String sql = "INSERT INTO appointments (appointment_time, patient_id, doctor_id, status) " +
+                        "SELECT ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM appointments " +
+                        "WHERE doctor_id = ? AND status <> 'Canceled' AND appointment_time > ? AND appointment_time < ?) " +
+                        "AND NOT EXISTS (SELECT 1 FROM video_consultations " +
+                        "WHERE doctor_id = ? AND scheduled_time > ? AND scheduled_time < ?)";
+                boolean inserted;
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(appointment.getAppointmentTime()));
+                    stmt.setString(2, appointment.getPatient().getUserID());
+                    stmt.setString(3, appointment.getDoctor().getUserID());
+                    stmt.setString(4, appointment.getAppointmentStatus());
+                    stmt.setString(5, appointment.getDoctor().getUserID());
+                    stmt.setTimestamp(6, Timestamp.valueOf(appointment.getAppointmentTime().minus(length)));
+                    stmt.setTimestamp(7, Timestamp.valueOf(appointment.getAppointmentTime().plus(length)));
+                    stmt.setString(8, appointment.getDoctor().getUserID());
+                    stmt.setTimestamp(9, Timestamp.valueOf(appointment.getAppointmentTime().minus(length)));
+                    stmt.setTimestamp(10, Timestamp.valueOf(appointment.getAppointmentTime().plus(length)));
+                    inserted = stmt.executeUpdate() == 1;
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (inserted && rs.next()) {
+                        appointment.setAppointmentID(rs.getLong(1));
+                    }
+                }
+                connection.commit();
+                return inserted;
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding appointment: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves all doctors with a given specialization.
+     *
+     * @param specialization The specialization to match (case-insensitive).
+     * @return A list of matching doctors.
+     */
+    public List<Doctor> getDoctorsBySpecialization(String specialization) {
+        List<Doctor> doctors = new ArrayList<>();
+        if (connection == null) return doctors;
+        try {
+            Metrics.time("database.getDoctorsBySpecialization", () -> {
+                String sql = "SELECT u.*, d.joining_date, d.specialization, d.email, d.password " +
+                        "FROM users u JOIN doctors d ON u.user_id = d.user_id WHERE LOWER(d.specialization) = LOWER(?)";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, specialization);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            doctors.add(new Doctor(
+                                    rs.getString("user_id"),
+                                    rs.getString("name"),
+                                    rs.getString("contact_info"),
+                                    rs.getString("email"),
+                                    rs.getString("password"),
+                                    rs.getString("gender"),
+                                    rs.getString("specialization"),
+                                    rs.getDate("joining_date").toLocalDate()
+                            ));
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving doctors: " + e.getMessage());
+        }
+        return doctors;
+    }
+
+    /**
+     * Updates the status of an appointment in the database.
+     *
+     * @param appointmentId The ID of the appointment to update.
+     * @param status        The new status (e.g., Approved, Canceled).
+     */
+    public void updateAppointmentStatus(long appointmentId, String status) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.updateAppointmentStatus", () -> {
+                String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, status);
+                    stmt.setLong(2, appointmentId);
+                    stmt.executeUpdate();
+                }
+                connection.commit();
+                if ("Canceled".equals(status)) {
+                    synchronized (this) {
+                        for (DoctorSchedule schedule : doctorSchedules.values()) schedule.removeBooking("Appointment", appointmentId);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error updating appointment status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Updates the statuses of several of a doctor's appointments using batched updates in a single
+     * transaction. Either all updates are committed or none are. Appointments of other doctors are left
+     * unchanged and not counted.
+     *
+     * @param doctorId The ID of the doctor the appointments must belong to.
+     * @param statuses A map from appointment ID to its new status (e.g., Approved, Canceled).
+     * @return The number of appointments updated.
+     */
+    public int updateAppointmentStatuses(String doctorId, Map<Long, String> statuses) {
+        if (connection == null || doctorId == null || statuses == null || statuses.isEmpty()) return 0;
+        try {
+            return Metrics.time("database.updateAppointmentStatuses", () -> {
+                List<Long> canceled = new ArrayList<>();
+                String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ? AND doctor_id = ?";
+                List<Map.Entry<Long, String>> entries = new ArrayList<>(statuses.entrySet());
+                int updated = 0;
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    for (Map.Entry<Long, String> entry : entries) {
+                        stmt.setString(1, entry.getValue());
+                        stmt.setLong(2, entry.getKey());
+                        stmt.setString(3, doctorId);
+                        stmt.addBatch();
+                    }
+                    int[] counts = stmt.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] <= 0 && counts[i] != Statement.SUCCESS_NO_INFO) continue;
+                        updated++;
+                        if ("Canceled".equals(entries.get(i).getValue())) canceled.add(entries.get(i).getKey());
+                    }
+                }
+                connection.commit();
+                synchronized (this) {
+                    DoctorSchedule schedule = doctorSchedules.get(doctorId);
+                    if (schedule != null) {
+                        for (long appointmentId : canceled) schedule.removeBooking("Appointment", appointmentId);
+                    }
+                }
+                return updated;
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error updating appointment statuses: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Retrieves pending appointments for a doctor from the database.
+     *
+     * @param doctorId The ID of the doctor.
+     * @return A list of pending appointments for the doctor.
+     */
+    public List<Appointment> getPendingAppointmentsForDoctor(String doctorId) {
+        List<Appointment> pending = new ArrayList<>();
+        if (connection == null) return pending;
+        Doctor doctor = getDoctor(doctorId, connection);
+        try {
+            Metrics.time("database.getPendingAppointmentsForDoctor", () -> {
+                String sql = "SELECT a.appointment_id, a.appointment_time, a.status, a.patient_id, u.name, u.contact_info, u.gender, " +
+                        "p.email, p.password, p.birth_date, p.admission_date " +
+                        "FROM appointments a JOIN users u ON a.patient_id = u.user_id JOIN patients p ON a.patient_id = p.user_id " +
+                        "WHERE a.doctor_id = ? AND a.status = 'Pending' ORDER BY a.appointment_time";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, doctorId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Patient patient = new Patient(
+                                    rs.getString("patient_id"),
+                                    rs.getString("name"),
+                                    rs.getString("contact_info"),
+                                    rs.getString("email"),
+                                    rs.getString("password"),
+                                    rs.getString("gender"),
+                                    rs.getDate("birth_date").toLocalDate()
+                            );
+                            if (rs.getDate("admission_date") != null) patient.setAdmissionDate(rs.getDate("admission_date").toLocalDate());
+                            Appointment app = new Appointment(
+                                    rs.getLong("appointment_id"),
+                                    rs.getTimestamp("appointment_time").toLocalDateTime(),
+                                    patient,
+                                    doctor
+                            );
+                            app.setAppointmentStatus(rs.getString("status"));
+                            pending.add(app);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving pending appointments: " + e.getMessage());
+        }
+        return pending;
+    }
+
+    /**
+     * Retrieves approved appointments scheduled within a time range, for reminders.
+     *
+     * @param from The start of the range (inclusive).
+     * @param to   The end of the range (exclusive).
+     * @return A list of approved appointments ordered by time.
+     */
+    public List<Appointment> getApprovedAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Appointment> appointments = new ArrayList<>();
+        if (connection == null) return appointments;
+        Map<String, Doctor> doctors = new HashMap<>();
+        try {
+            Metrics.time("database.getApprovedAppointmentsBetween", () -> {
+                String sql = "SELECT a.appointment_id, a.appointment_time, a.status, a.patient_id, a.doctor_id, u.name, u.contact_info, u.gender, " +
+                        "p.email, p.password, p.birth_date, p.admission_date " +
+                        "FROM appointments a JOIN users u ON a.patient_id = u.user_id JOIN patients p ON a.patient_id = p.user_id " +
+                        "WHERE a.status = 'Approved' AND a.appointment_time >= ? AND a.appointment_time < ? ORDER BY a.appointment_time";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(from));
+                    stmt.setTimestamp(2, Timestamp.valueOf(to));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Patient patient = new Patient(
+                                    rs.getString("patient_id"),
+                                    rs.getString("name"),
+                                    rs.getString("contact_info"),
+                                    rs.getString("email"),
+                                    rs.getString("password"),
+                                    rs.getString("gender"),
+                                    rs.getDate("birth_date").toLocalDate()
+                            );
+                            if (rs.getDate("admission_date") != null) patient.setAdmissionDate(rs.getDate("admission_date").toLocalDate());
+                            Appointment app = new Appointment(
+                                    rs.getLong("appointment_id"),
+                                    rs.getTimestamp("appointment_time").toLocalDateTime(),
+                                    patient,
+                                    doctors.computeIfAbsent(rs.getString("doctor_id"), id -> getDoctor(id, connection))
+                            );
+                            app.setAppointmentStatus(rs.getString("status"));
+                            appointments.add(app);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving upcoming appointments: " + e.getMessage());
+        }
+        return appointments;
+    }
+
+    /**
+     * Adds a vital sign record to the database.
+     *
+     * @param vital The vital sign to add.
+     */
+    public void addVitalSign(VitalSign vital) {
+        addVitalSigns(Collections.singletonList(vital));
+    }
+
+    /**
+     * Adds several vital sign records, with their rollups, in one batched transaction on the shared connection.
+     *
+     * @param vitals The vital signs to add.
+     * @return True if the vital signs were stored.
+     */
+    public boolean addVitalSigns(List<VitalSign> vitals) {
+        return addVitalSigns(vitals, connection);
+    }
+
+    /**
+     * Adds several vital sign records, with their rollups, in one batched transaction on the given connection.
+     * Each stored vital sign is then published to the vital feed.
+     *
+     * @param vitals The vital signs to add.
+     * @param conn   The connection to write on, e.g. one from {@link #openWriteConnection()}.
+     * @return True if the vital signs were stored.
+     */
+    public boolean addVitalSigns(List<VitalSign> vitals, Connection conn) {
+        if (vitals.isEmpty()) return true;
+        VitalStore store = getVitalStore();
+        if (store != null) {
+            try {
+                return Metrics.time("database.addVitalSigns", () -> {
+                    store.append(vitals);
+                    for (VitalSign vital : vitals) vitalFeed.publish(vital);
+                    return true;
+                });
+            } catch (IOException e) {
+                System.out.println("Error adding vital signs: " + e.getMessage());
+                return false;
+            }
+        }
+        if (connection == null || conn == null) return false;
+        try {
+            Metrics.time("database.addVitalSigns", () -> {
+                String sql = "INSERT INTO vitals (patient_id, checkup_date, ts, heart_rate, blood_pressure, body_temperature, oxygen_level, severity) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (VitalSign vital : vitals) {
+                        stmt.setString(1, vital.getPatientID());
+                        stmt.setDate(2, java.sql.Date.valueOf(vital.getCheckupDate()));
+                        stmt.setTimestamp(3, Timestamp.valueOf(vital.getTimestamp()));
+                        stmt.setDouble(4, vital.getHeartRate());
+                        stmt.setDouble(5, vital.getBloodPressure());
+                        stmt.setDouble(6, vital.getBodyTemperature());
+                        stmt.setDouble(7, vital.getOxygenLevel());
+                        stmt.setString(8, vital.getSeverity());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(VitalRollup.UPSERT_SQL)) {
+                    for (VitalSign vital : vitals) {
+                        for (String resolution : VitalRollup.RESOLUTIONS) {
+                            VitalRollup.bindUpsert(stmt, resolution, vital);
+                            stmt.addBatch();
+                        }
+                    }
+                    stmt.executeBatch();
+                }
+                conn.commit();
+            });
+        } catch (SQLException e) {
+            try { conn.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding vital signs: " + e.getMessage());
+            return false;
+        }
+        for (VitalSign vital : vitals) vitalFeed.publish(vital);
+        return true;
+    }
+
+    /**
+     * Retrieves the email addresses of the doctors a patient has appointments with.
+     *
+     * @param patientId The ID of the patient.
+     * @return A list of doctor email addresses.
+     */
+    public List<String> getDoctorEmailsForPatient(String patientId) {
+        return getDoctorEmailsForPatient(patientId, connection);
+    }
+
+    /**
+     * Retrieves the email addresses of the doctors a patient has appointments with, on the given connection.
+     *
+     * @param patientId The ID of the patient.
+     * @param conn      The connection to read on.
+     * @return A list of doctor email addresses.
+     */
+    public List<String> getDoctorEmailsForPatient(String patientId, Connection conn) {
+        List<String> emails = new ArrayList<>();
+        if (conn == null) return emails;
+        try {
+            Metrics.time("database.getDoctorEmailsForPatient", () -> {
+                String sql = "SELECT DISTINCT u.email FROM appointments a JOIN users u ON u.user_id = a.doctor_id " +
+                        "WHERE a.patient_id = ? AND u.email IS NOT NULL";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, patientId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) emails.add(rs.getString("email"));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving doctors for patient: " + e.getMessage());
+        }
+        return emails;
+    }
+
+    /**
+     * Retrieves the embedded vital store, opening it on first use. The store replaces the vitals table
+     * when the "rpms.vitals.store" system property names its directory.
+     *
+     * @return The vital store, or null if it is not configured or cannot be opened.
+     */
+    public synchronized VitalStore getVitalStore() {
+        if (vitalStoreChecked) return vitalStore;
+        vitalStoreChecked = true;
+        String directory = System.getProperty("rpms.vitals.store");
+        if (directory == null || directory.trim().isEmpty()) return null;
+        try {
+            vitalStore = new VitalStore(new File(directory.trim()));
+        } catch (IOException e) {
+            System.out.println("Error opening vital store: " + e.getMessage());
+        }
+        return vitalStore;
+    }
+
+    /**
+     * Returns the feed that publishes each vital sign once it has been stored.
+     *
+     * @return The vital sign feed.
+     */
+    public VitalSignFeed getVitalFeed() {
+        return vitalFeed;
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private static VitalSign readVitalSign(ResultSet rs) throws SQLException {
+        Timestamp ts = rs.getTimestamp("ts");
+        return new VitalSign(
+                rs.getString("patient_id"),
+                rs.getDouble("heart_rate"),
+                rs.getDouble("blood_pressure"),
+                rs.getDouble("body_temperature"),
+                rs.getDouble("oxygen_level"),
+                ts != null ? ts.toLocalDateTime() : rs.getDate("checkup_date").toLocalDate().atStartOfDay()
+        );
+    }
+
+    /**
+     * Retrieves a patient's most recent vital signs using the (patient_id, ts) index.
+     *
+     * @param patientId The ID of the patient.
+     * @param limit     The maximum number of readings to return.
+     * @return The latest vital signs, newest first.
+     */
+    public List<VitalSign> getRecentVitalSigns(String patientId, int limit) {
+        List<VitalSign> vitals = new ArrayList<>();
+        if (limit <= 0) return vitals;
+        VitalStore store = getVitalStore();
+        if (store != null) {
+            try {
+                Metrics.time("database.getRecentVitalSigns",
+                        () -> store.scan(patientId, null, null, true, vital -> vitals.add(vital) && vitals.size() < limit));
+            } catch (IOException e) {
+                System.out.println("Error retrieving vital signs: " + e.getMessage());
+            }
+            return vitals;
+        }
+        if (connection == null) return vitals;
+        try {
+            Metrics.time("database.getRecentVitalSigns", () -> {
+                String sql = "SELECT * FROM vitals WHERE patient_id = ? ORDER BY ts DESC LIMIT ?";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, patientId);
+                    stmt.setInt(2, limit);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) vitals.add(readVitalSign(rs));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving vital signs: " + e.getMessage());
+        }
+        return vitals;
+    }
+
+    /**
+     * Retrieves every abnormal or critical vital sign recorded since a given time that no alert has been sent
+     * for yet, using the severity index. With the embedded vital store, every stored patient's readings are
+     * scanned instead.
+     *
+     * @param since The earliest reading time to include.
+     * @return A list of flagged vital signs, grouped by patient and oldest first.
+     */
+    public List<VitalSign> getFlaggedVitalSigns(LocalDateTime since) {
+        List<VitalSign> vitals = new ArrayList<>();
+        VitalStore store = getVitalStore();
+        if (store != null) {
+            try {
+                Metrics.<IOException, SQLException>time("database.getFlaggedVitalSigns", () -> {
+                    Set<String> alerted = getAlertedVitalKeys(since);
+                    for (String patientId : store.patientIds()) {
+                        store.scan(patientId, since, null, false, vital -> {
+                            if (!EmergencyAlert.isWithinThreshold(vital) && !alerted.contains(alertKey(vital.getPatientID(), vital.getTimestamp()))) {
+                                vitals.add(vital);
+                            }
+                            return true;
+                        });
+                    }
+                });
+            } catch (IOException | SQLException e) {
+                System.out.println("Error retrieving flagged vital signs: " + e.getMessage());
+            }
+            return vitals;
+        }
+        if (connection == null) return vitals;
+        try {
+            Metrics.time("database.getFlaggedVitalSigns", () -> {
+                String sql = "SELECT * FROM vitals v WHERE severity <> ? AND ts >= ? AND NOT EXISTS " +
+                        "(SELECT 1 FROM vital_alerts a WHERE a.patient_id = v.patient_id AND a.ts = v.ts) ORDER BY patient_id, ts";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, EmergencyAlert.SEVERITY_NORMAL);
+                    stmt.setTimestamp(2, Timestamp.valueOf(since));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) vitals.add(readVitalSign(rs));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving flagged vital signs: " + e.getMessage());
+        }
+        return vitals;
+    }
+
+    /**
+     * Records that an alert was sent for each of the given readings, so getFlaggedVitalSigns no longer returns them.
+     *
+     * @param vitals The readings that were alerted on.
+     */
+    public void markVitalsAlerted(List<VitalSign> vitals) {
+        markVitalsAlerted(vitals, connection);
+    }
+
+    /**
+     * Records that an alert was sent for each of the given readings, in one transaction on the given connection.
+     *
+     * @param vitals The readings that were alerted on.
+     * @param conn   The connection to write on, e.g. one from {@link #openWriteConnection()}.
+     */
+    public void markVitalsAlerted(List<VitalSign> vitals, Connection conn) {
+        if (conn == null || vitals.isEmpty()) return;
+        try {
+            Metrics.time("database.markVitalsAlerted", () -> {
+                String sql = "INSERT IGNORE INTO vital_alerts (patient_id, ts, alerted_at) VALUES (?, ?, ?)";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    for (VitalSign vital : vitals) {
+                        stmt.setString(1, vital.getPatientID());
+                        stmt.setTimestamp(2, Timestamp.valueOf(vital.getTimestamp()));
+                        stmt.setTimestamp(3, now);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                conn.commit();
+            });
+        } catch (SQLException e) {
+            try { conn.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error recording vital alerts: " + e.getMessage());
+        }
+    }
+
+    // Keys (see alertKey) of the readings since a given time that an alert was sent for
+    private Set<String> getAlertedVitalKeys(LocalDateTime since) throws SQLException {
+        Set<String> keys = new HashSet<>();
+        if (connection == null) return keys;
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT patient_id, ts FROM vital_alerts WHERE ts >= ?")) {
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) keys.add(alertKey(rs.getString("patient_id"), rs.getTimestamp("ts").toLocalDateTime()));
+            }
+        }
+        return keys;
+    }
+
+    private static String alertKey(String patientId, LocalDateTime timestamp) {
+        return patientId + "|" + timestamp;
+    }
+
+    /**
+     * Retrieves a patient's pre-aggregated vitals at one resolution, oldest bucket first. With the embedded
+     * vital store, which keeps no rollup table, the buckets are aggregated from the stored readings.
+     *
+     * @param patientId  The ID of the patient.
+     * @param resolution One of {@link VitalRollup#HOUR}, {@link VitalRollup#DAY} or {@link VitalRollup#WEEK}.
+     * @param from       The earliest bucket to include, or null for the full history.
+     * @return A list of rollup buckets.
+     */
+    public List<VitalRollup> getVitalRollups(String patientId, String resolution, LocalDateTime from) {
+        List<VitalRollup> rollups = new ArrayList<>();
+        VitalStore store = getVitalStore();
+        if (store != null) {
+            try {
+                return Metrics.time("database.getVitalRollups", () -> {
+                    LocalDateTime start = from != null ? VitalRollup.bucketStart(resolution, from) : null;
+                    return VitalRollup.rollUp(store.read(patientId, start, null, false), resolution);
+                });
+            } catch (IOException e) {
+                System.out.println("Error retrieving vital rollups: " + e.getMessage());
+                return rollups;
+            }
+        }
+        if (connection == null) return rollups;
+        try {
+            Metrics.time("database.getVitalRollups", () -> {
+                String sql = "SELECT * FROM vitals_rollup WHERE patient_id = ? AND resolution = ?" +
+                        (from != null ? " AND bucket_start >= ?" : "") + " ORDER BY bucket_start";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, patientId);
+                    stmt.setString(2, resolution);
+                    if (from != null) stmt.setTimestamp(3, Timestamp.valueOf(VitalRollup.bucketStart(resolution, from)));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) rollups.add(VitalRollup.fromResultSet(rs));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving vital rollups: " + e.getMessage());
+        }
+        return rollups;
+    }
+
+    /**
+     * Rebuilds the rollups of one patient, or of every patient with vitals, from the raw vitals table.
+     * Used after backfills or imports that bypassed {@link #addVitalSign(VitalSign)}.
+     *
+     * @param patientId The ID of the patient, or null for all patients.
+     * @return The number of patients whose rollups were rebuilt.
+     */
+    public int compactVitalRollups(String patientId) {
+        if (connection == null) return 0;
+        List<String> patientIds = new ArrayList<>();
+        try {
+            Metrics.time("database.compactVitalRollups", () -> {
+                if (patientId != null) {
+                    patientIds.add(patientId);
+                } else {
+                    try (PreparedStatement stmt = connection.prepareStatement("SELECT DISTINCT patient_id FROM vitals");
+                         ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) patientIds.add(rs.getString("patient_id"));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error compacting vital rollups: " + e.getMessage());
+            return 0;
+        }
+
+        int rebuilt = 0;
+        for (String id : patientIds) {
+            try {
+                try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM vitals_rollup WHERE patient_id = ?")) {
+                    stmt.setString(1, id);
+                    stmt.executeUpdate();
+                }
+                for (String resolution : VitalRollup.RESOLUTIONS) {
+                    try (PreparedStatement stmt = connection.prepareStatement(VitalRollup.rebuildSql(resolution))) {
+                        stmt.setString(1, id);
+                        stmt.executeUpdate();
+                    }
+                }
+                connection.commit();
+                rebuilt++;
+            } catch (SQLException e) {
+                try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+                System.out.println("Error compacting vital rollups for patient " + id + ": " + e.getMessage());
+            }
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Retrieves vital signs for a patient from the database.
+     *
+     * @param patientId The ID of the patient.
+     * @return A list of vital signs for the patient.
+     */
+    public List<VitalSign> getVitalSigns(String patientId) {
+        List<VitalSign> vitals = new ArrayList<>();
+        VitalStore store = getVitalStore();
+        if (store != null) {
+            try {
+                return Metrics.time("database.getVitalSigns", () -> store.read(patientId, null, null, true));
+            } catch (IOException e) {
+                System.out.println("Error retrieving vital signs: " + e.getMessage());
+                return vitals;
+            }
+        }
+        if (connection == null) return vitals;
+        try {
+            Metrics.time("database.getVitalSigns", () -> {
+                String sql = "SELECT * FROM vitals WHERE patient_id = ? ORDER BY ts DESC";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, patientId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) vitals.add(readVitalSign(rs));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving vital signs: " + e.getMessage());
+        }
+        return vitals;
+    }
+
+    /**
+     * Retrieves a patient's vital signs taken between two times, oldest first. Reads on a dedicated
+     * connection, so charts can call it off the JavaFX thread.
+     *
+     * @param patientId The ID of the patient.
+     * @param from      The earliest reading time (inclusive).
+     * @param to        The latest reading time (inclusive).
+     * @return A list of vital signs, oldest first.
+     */
+    public List<VitalSign> getVitalSignsBetween(String patientId, LocalDateTime from, LocalDateTime to) {
+        List<VitalSign> vitals = new ArrayList<>();
+        VitalStore store = getVitalStore();
+        if (store != null) {
+            try {
+                return Metrics.time("database.getVitalSignsBetween", () -> store.read(patientId, from, to, false));
+            } catch (IOException e) {
+                System.out.println("Error retrieving vital signs: " + e.getMessage());
+                return vitals;
+            }
+        }
+        if (connection == null) return vitals;
+        try {
+            Metrics.time("database.getVitalSignsBetween", () -> {
+                String sql = "SELECT * FROM vitals WHERE patient_id = ? AND ts BETWEEN ? AND ? ORDER BY ts";
+                try (Connection conn = openReadConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, patientId);
+                    stmt.setTimestamp(2, Timestamp.valueOf(from));
+                    stmt.setTimestamp(3, Timestamp.valueOf(to));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) vitals.add(readVitalSign(rs));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving vital signs: " + e.getMessage());
+        }
+        return vitals;
+    }
+
+    /**
+     * Adds feedback to the database.
+     *
+     * @param feedback The feedback to add.
+     */
+    public void addFeedback(Feedback feedback) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.addFeedback", () -> {
+                String sql = "INSERT INTO feedback (patient_id, doctor_id, date, comments) VALUES (?, ?, ?, ?)";
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, feedback.getPatientID());
+                    stmt.setString(2, feedback.getDoctorID());
+                    stmt.setDate(3, java.sql.Date.valueOf(feedback.getDate()));
+                    stmt.setString(4, feedback.getComments());
+                    stmt.executeUpdate();
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        feedback.setFeedbackID(rs.getLong(1));
+                    }
+                }
+                connection.commit();
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding feedback: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves feedback for a patient from the database.
+     *
+     * @param patientId The ID of the patient.
+     * @return A list of feedback for the patient.
+     */
+    public List<Feedback> getFeedbacksForPatient(String patientId) {
+        List<Feedback> feedbacks = new ArrayList<>();
+        if (connection == null) return feedbacks;
+        try {
+            Metrics.time("database.getFeedbacksForPatient", () -> {
+                String sql = "SELECT * FROM feedback WHERE patient_id = ? ORDER BY date DESC";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, patientId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Feedback feedback = new Feedback(
+                                    rs.getLong("feedback_id"),
+                                    rs.getString("patient_id"),
+                                    rs.getString("doctor_id"),
+                                    rs.getDate("date").toLocalDate(),
+                                    rs.getString("comments")
+                            );
+                            feedbacks.add(feedback);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving feedbacks: " + e.getMessage());
+        }
+        return feedbacks;
+    }
+
+    /**
+     * Adds a prescription to the database.
+     *
+     * @param prescription The prescription to add.
+     */
+    public void addPrescription(Prescription prescription) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.addPrescription", () -> {
+                String sql = "INSERT INTO prescriptions (patient_id, medication, dosage, schedule) VALUES (?, ?, ?, ?)";
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, prescription.getPatientID());
+                    stmt.setString(2, prescription.getMedication());
+                    stmt.setString(3, prescription.getDosage());
+                    stmt.setString(4, prescription.getSchedule());
+                    stmt.executeUpdate();
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        prescription.setPrescriptionID(rs.getLong(1));
+                    }
+                }
+                connection.commit();
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding prescription: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves prescriptions for a patient from the database.
+     *
+     * @param patientId The ID of the patient.
+     * @return A list of prescriptions for the patient.
+     */
+    public List<Prescription> getPrescriptionsForPatient(String patientId) {
+        List<Prescription> prescriptions = new ArrayList<>();
+        if (connection == null) return prescriptions;
+        try {
+            Metrics.time("database.getPrescriptionsForPatient", () -> {
+                String sql = "SELECT * FROM prescriptions WHERE patient_id = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, patientId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Prescription prescription = new Prescription(
+                                    rs.getLong("prescription_id"),
+                                    rs.getString("patient_id"),
+                                    rs.getString("medication"),
+                                    rs.getString("dosage"),
+                                    rs.getString("schedule")
+                            );
+                            prescriptions.add(prescription);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving prescriptions: " + e.getMessage());
+        }
+        return prescriptions;
+    }
+
+    /**
+     * Retrieves the IDs of the patients a doctor has appointments with or has given feedback to.
+     *
+     * @param doctorId The ID of the doctor.
+     * @return A sorted list of patient IDs.
+     */
+    public List<String> getPatientIdsForDoctor(String doctorId) {
+        List<String> ids = new ArrayList<>();
+        if (connection == null) return ids;
+        try {
+            Metrics.time("database.getPatientIdsForDoctor", () -> {
+                String sql = "SELECT patient_id FROM appointments WHERE doctor_id = ? " +
+                        "UNION SELECT patient_id FROM feedback WHERE doctor_id = ? ORDER BY patient_id";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, doctorId);
+                    stmt.setString(2, doctorId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) ids.add(rs.getString("patient_id"));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving patients for doctor: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * Retrieves the IDs of all patients with an admission date.
+     *
+     * @return A sorted list of patient IDs.
+     */
+    public List<String> getAdmittedPatientIds() {
+        List<String> ids = new ArrayList<>();
+        if (connection == null) return ids;
+        try {
+            Metrics.time("database.getAdmittedPatientIds", () -> {
+                String sql = "SELECT user_id FROM patients WHERE admission_date IS NOT NULL ORDER BY user_id";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) ids.add(rs.getString("user_id"));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving admitted patients: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * Retrieves the vital signs of several patients with a single query on the shared connection.
+     *
+     * @param patientIds The IDs of the patients.
+     * @return A map from patient ID to that patient's vital signs, newest first.
+     */
+    public Map<String, List<VitalSign>> getVitalSignsForPatients(Collection<String> patientIds) {
+        return getVitalSignsForPatients(patientIds, connection);
+    }
+
+    /**
+     * Retrieves the vital signs of several patients with a single query on the given connection.
+     *
+     * @param patientIds The IDs of the patients.
+     * @param conn       The connection to read on, e.g. one from {@link #openReadConnection()}.
+     * @return A map from patient ID to that patient's vital signs, newest first.
+     */
+    public Map<String, List<VitalSign>> getVitalSignsForPatients(Collection<String> patientIds, Connection conn) {
+        Map<String, List<VitalSign>> vitals = new HashMap<>();
+        if (getVitalStore() != null) {
+            for (String patientId : patientIds) vitals.put(patientId, getVitalSigns(patientId));
+            return vitals;
+        }
+        if (conn == null || patientIds.isEmpty()) return vitals;
+        try {
+            Metrics.time("database.getVitalSignsForPatients", () -> {
+                String sql = "SELECT * FROM vitals WHERE patient_id IN (" + placeholders(patientIds.size()) + ") ORDER BY patient_id, ts DESC";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindAll(stmt, patientIds);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            VitalSign vital = readVitalSign(rs);
+                            vitals.computeIfAbsent(vital.getPatientID(), k -> new ArrayList<>()).add(vital);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving vital signs: " + e.getMessage());
+        }
+        return vitals;
+    }
+
+    /**
+     * Retrieves the feedback of several patients with a single query on the shared connection.
+     *
+     * @param patientIds The IDs of the patients.
+     * @return A map from patient ID to that patient's feedback, newest first.
+     */
+    public Map<String, List<Feedback>> getFeedbacksForPatients(Collection<String> patientIds) {
+        return getFeedbacksForPatients(patientIds, connection);
+    }
+
+    /**
+     * Retrieves the feedback of several patients with a single query on the given connection.
+     *
+     * @param patientIds The IDs of the patients.
+     * @param conn       The connection to read on, e.g. one from {@link #openReadConnection()}.
+     * @return A map from patient ID to that patient's feedback, newest first.
+     */
+    public Map<String, List<Feedback>> getFeedbacksForPatients(Collection<String> patientIds, Connection conn) {
+        Map<String, List<Feedback>> feedbacks = new HashMap<>();
+        if (conn == null || patientIds.isEmpty()) return feedbacks;
+        try {
+            Metrics.time("database.getFeedbacksForPatients", () -> {
+                String sql = "SELECT * FROM feedback WHERE patient_id IN (" + placeholders(patientIds.size()) + ") ORDER BY patient_id, date DESC";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindAll(stmt, patientIds);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Feedback feedback = new Feedback(
+                                    rs.getLong("feedback_id"),
+                                    rs.getString("patient_id"),
+                                    rs.getString("doctor_id"),
+                                    rs.getDate("date").toLocalDate(),
+                                    rs.getString("comments")
+                            );
+                            feedbacks.computeIfAbsent(feedback.getPatientID(), k -> new ArrayList<>()).add(feedback);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving feedbacks: " + e.getMessage());
+        }
+        return feedbacks;
+    }
+
+    /**
+     * Retrieves the prescriptions of several patients with a single query on the shared connection.
+     *
+     * @param patientIds The IDs of the patients.
+     * @return A map from patient ID to that patient's prescriptions.
+     */
+    public Map<String, List<Prescription>> getPrescriptionsForPatients(Collection<String> patientIds) {
+        return getPrescriptionsForPatients(patientIds, connection);
+    }
+
+    /**
+     * Retrieves the prescriptions of several patients with a single query on the given connection.
+     *
+     * @param patientIds The IDs of the patients.
+     * @param conn       The connection to read on, e.g. one from {@link #openReadConnection()}.
+     * @return A map from patient ID to that patient's prescriptions.
+     */
+    public Map<String, List<Prescription>> getPrescriptionsForPatients(Collection<String> patientIds, Connection conn) {
+        Map<String, List<Prescription>> prescriptions = new HashMap<>();
+        if (conn == null || patientIds.isEmpty()) return prescriptions;
+        try {
+            Metrics.time("database.getPrescriptionsForPatients", () -> {
+                String sql = "SELECT * FROM prescriptions WHERE patient_id IN (" + placeholders(patientIds.size()) + ") ORDER BY patient_id";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindAll(stmt, patientIds);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Prescription prescription = new Prescription(
+                                    rs.getLong("prescription_id"),
+                                    rs.getString("patient_id"),
+                                    rs.getString("medication"),
+                                    rs.getString("dosage"),
+                                    rs.getString("schedule")
+                            );
+                            prescriptions.computeIfAbsent(prescription.getPatientID(), k -> new ArrayList<>()).add(prescription);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving prescriptions: " + e.getMessage());
+        }
+        return prescriptions;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void bindAll(PreparedStatement stmt, Collection<String> values) throws SQLException {
+        int index = 1;
+        for (String value : values) stmt.setString(index++, value);
+    }
+
+    /**
+     * Streams a patient's vital signs, newest first, on a dedicated connection without building a list.
+     * A failure part way through is thrown after the readings before it have been passed to the action.
+     *
+     * @param patientId The ID of the patient.
+     * @param action    The action to perform for each vital sign.
+     * @throws SQLException If the vital signs cannot be read from the database.
+     * @throws IOException  If the vital signs cannot be read from the embedded vital store.
+     */
+    public void forEachVitalSign(String patientId, Consumer<VitalSign> action) throws SQLException, IOException {
+        VitalStore store = getVitalStore();
+        if (store != null) {
+            store.scan(patientId, null, null, true, vital -> {
+                action.accept(vital);
+                return true;
+            });
+            return;
+        }
+        if (connection == null) return;
+        String sql = "SELECT * FROM vitals WHERE patient_id = ? ORDER BY ts DESC";
+        try (Connection conn = openReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(STREAMING_FETCH_SIZE);
+            stmt.setString(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) action.accept(readVitalSign(rs));
+            }
+        }
+    }
+
+    /**
+     * Streams a patient's feedback, newest first, on a dedicated connection without building a list.
+     *
+     * @param patientId The ID of the patient.
+     * @param action    The action to perform for each feedback entry.
+     * @throws SQLException If the feedback cannot be read.
+     */
+    public void forEachFeedbackForPatient(String patientId, Consumer<Feedback> action) throws SQLException {
+        if (connection == null) return;
+        String sql = "SELECT * FROM feedback WHERE patient_id = ? ORDER BY date DESC";
+        try (Connection conn = openReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(STREAMING_FETCH_SIZE);
+            stmt.setString(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(new Feedback(
+                            rs.getLong("feedback_id"),
+                            rs.getString("patient_id"),
+                            rs.getString("doctor_id"),
+                            rs.getDate("date").toLocalDate(),
+                            rs.getString("comments")
+                    ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams a patient's prescriptions on a dedicated connection without building a list.
+     *
+     * @param patientId The ID of the patient.
+     * @param action    The action to perform for each prescription.
+     * @throws SQLException If the prescriptions cannot be read.
+     */
+    public void forEachPrescriptionForPatient(String patientId, Consumer<Prescription> action) throws SQLException {
+        if (connection == null) return;
+        String sql = "SELECT * FROM prescriptions WHERE patient_id = ?";
+        try (Connection conn = openReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(STREAMING_FETCH_SIZE);
+            stmt.setString(1, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(new Prescription(
+                            rs.getLong("prescription_id"),
+                            rs.getString("patient_id"),
+                            rs.getString("medication"),
+                            rs.getString("dosage"),
+                            rs.getString("schedule")
+                    ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a chat message to the database. Once it is committed, the message is added to the chat inbox and
+     * search index if they have been loaded. The insert runs under the same lock as their initial load, so a
+     * message is either read by the load or added afterwards, never both.
+     *
+     * @param senderId   The ID of the sender.
+     * @param receiverId The ID of the receiver.
+     * @param message    The message content.
+     * @return True if the message was stored.
+     */
+    public synchronized boolean addMessage(String senderId, String receiverId, String message) {
+        if (connection == null) return false;
+        try {
+            return Metrics.time("database.addMessage", () -> {
+                long messageId = 0;
+                String sql = "INSERT INTO messages (sender_id, receiver_id, message) VALUES (?, ?, ?)";
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, senderId);
+                    stmt.setString(2, receiverId);
+                    stmt.setString(3, message);
+                    stmt.executeUpdate();
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        messageId = rs.getLong(1);
+                    }
+                }
+                connection.commit();
+                LocalDateTime now = LocalDateTime.now();
+                if (chatInbox != null) chatInbox.recordMessage(senderId, receiverId, message, now, true);
+                if (messageIndex != null) messageIndex.addMessage(messageId, senderId, receiverId, message, now);
+                return true;
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding message: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves messages between two users from the database.
+     *
+     * @param user1 The ID of the first user.
+     * @param user2 The ID of the second user.
+     * @return A list of messages between the two users.
+     */
+    public List<String> getMessagesBetween(String user1, String user2) {
+        List<String> messages = new ArrayList<>();
+        if (connection == null) return messages;
+        try {
+            Metrics.time("database.getMessagesBetween", () -> {
+                String sql = "SELECT * FROM messages WHERE (sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?) ORDER BY timestamp";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, user1);
+                    stmt.setString(2, user2);
+                    stmt.setString(3, user2);
+                    stmt.setString(4, user1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String sender = rs.getString("sender_id");
+                            String message = rs.getString("message");
+                            messages.add(sender + ": " + message);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving messages: " + e.getMessage());
+        }
+        return messages;
+    }
+
+    /**
+     * Retrieves the chat search index, building it from the messages table on first use.
+     * Once built, the index is kept current by {@link #addMessage(String, String, String)}.
+     *
+     * @return The chat search index.
+     */
+    public synchronized ChatSearchIndex getMessageIndex() {
+        if (messageIndex != null) return messageIndex;
+        ChatSearchIndex index = new ChatSearchIndex();
+        if (connection == null) return index;
+        try {
+            MessageArchive archive = getMessageArchive();
+            if (archive != null) {
+                archive.forEachMessage(m -> index.addMessage(m.getMessageID(), m.getSenderID(), m.getReceiverID(), m.getMessage(), m.getTimestamp()));
+            }
+            String sql = "SELECT message_id, sender_id, receiver_id, message, timestamp FROM messages ORDER BY message_id";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setFetchSize(1000);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp timestamp = rs.getTimestamp("timestamp");
+                        index.addMessage(
+                                rs.getLong("message_id"),
+                                rs.getString("sender_id"),
+                                rs.getString("receiver_id"),
+                                rs.getString("message"),
+                                timestamp != null ? timestamp.toLocalDateTime() : null
+                        );
+                    }
+                }
+            }
+            messageIndex = index;
+        } catch (SQLException | IOException e) {
+            System.out.println("Error building message index: " + e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * Retrieves the in-memory chat inbox, loading existing conversations from the messages table on first use.
+     * Messages loaded this way are treated as already read. Once loaded, the inbox is kept current by
+     * {@link #addMessage(String, String, String)}.
+     *
+     * @return The chat inbox.
+     */
+    public synchronized ChatInbox getChatInbox() {
+        if (chatInbox != null) return chatInbox;
+        chatInbox = new ChatInbox();
+        if (connection == null) return chatInbox;
+        try {
+            MessageArchive archive = getMessageArchive();
+            if (archive != null) {
+                archive.forEachMessage(m -> chatInbox.recordMessage(m.getSenderID(), m.getReceiverID(), m.getMessage(), m.getTimestamp(), false));
+            }
+            String sql = "SELECT sender_id, receiver_id, message, timestamp FROM messages ORDER BY timestamp";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setFetchSize(1000);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp timestamp = rs.getTimestamp("timestamp");
+                        chatInbox.recordMessage(
+                                rs.getString("sender_id"),
+                                rs.getString("receiver_id"),
+                                rs.getString("message"),
+                                timestamp != null ? timestamp.toLocalDateTime() : null,
+                                false
+                        );
+                    }
+                }
+            }
+        } catch (SQLException | IOException e) {
+            System.out.println("Error loading chat inbox: " + e.getMessage());
+        }
+        return chatInbox;
+    }
+
+    /**
+     * Retrieves the chat message archive, opening it on first use.
+     * The archive directory is taken from the "rpms.archive.dir" system property (default "archive/messages").
+     *
+     * @return The message archive, or null if it cannot be opened.
+     */
+    public synchronized MessageArchive getMessageArchive() {
+        if (messageArchive != null) return messageArchive;
+        try {
+            messageArchive = new MessageArchive(new File(System.getProperty("rpms.archive.dir", "archive" + File.separator + "messages")));
+        } catch (IOException e) {
+            System.out.println("Error opening message archive: " + e.getMessage());
+        }
+        return messageArchive;
+    }
+
+    /**
+     * Moves chat messages older than the specified age from the messages table into the archive.
+     * Messages are moved in chunks; each chunk is written to the archive before it is deleted from the table.
+     *
+     * @param days The minimum age, in days, of the messages to archive.
+     * @return The number of messages archived.
+     */
+    public int archiveMessagesOlderThan(int days) {
+        if (connection == null || days < 0) return 0;
+        MessageArchive archive = getMessageArchive();
+        if (archive == null) return 0;
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(days));
+        // Chunks already moved stay archived when a later chunk fails, so the count is kept outside the work
+        int[] archived = new int[1];
+        try {
+            Metrics.<SQLException, IOException>time("database.archiveMessagesOlderThan", () -> {
+                long lastId = 0;
+                String selectSql = "SELECT message_id, sender_id, receiver_id, message, timestamp FROM messages " +
+                        "WHERE timestamp < ? AND message_id > ? ORDER BY message_id LIMIT 10000";
+                String deleteSql = "DELETE FROM messages WHERE timestamp < ? AND message_id > ? AND message_id <= ?";
+                while (true) {
+                    List<MessageArchive.ArchivedMessage> batch = new ArrayList<>();
+                    try (PreparedStatement stmt = connection.prepareStatement(selectSql)) {
+                        stmt.setTimestamp(1, cutoff);
+                        stmt.setLong(2, lastId);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                batch.add(new MessageArchive.ArchivedMessage(
+                                        rs.getLong("message_id"),
+                                        rs.getString("sender_id"),
+                                        rs.getString("receiver_id"),
+                                        rs.getString("message"),
+                                        rs.getTimestamp("timestamp").toLocalDateTime()
+                                ));
+                            }
+                        }
+                    }
+                    if (batch.isEmpty()) break;
+                    long maxId = batch.get(batch.size() - 1).getMessageID();
+                    archive.append(batch);
+                    try (PreparedStatement stmt = connection.prepareStatement(deleteSql)) {
+                        stmt.setTimestamp(1, cutoff);
+                        stmt.setLong(2, lastId);
+                        stmt.setLong(3, maxId);
+                        stmt.executeUpdate();
+                    }
+                    connection.commit();
+                    archived[0] += batch.size();
+                    lastId = maxId;
+                }
+                if (archived[0] > 0) logAction("Archived " + archived[0] + " messages older than " + days + " days on " + LocalDate.now());
+            });
+        } catch (SQLException | IOException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error archiving messages: " + e.getMessage());
+        }
+        return archived[0];
+    }
+
+    /**
+     * Searches the chat messages a user has sent or received.
+     *
+     * @param userId The ID of the user whose conversations are searched.
+     * @param query  The search query (terms, prefix terms ending in '*', or quoted phrases).
+     * @return A list of matching messages, newest first.
+     */
+    public List<String> searchMessages(String userId, String query) {
+        return Metrics.time("database.searchMessages", () -> getMessageIndex().search(userId, query));
+    }
+
+    /**
+     * Adds a video consultation to the database.
+     *
+     * @param videoCall The video call to add.
+     */
+    public void addVideoConsultation(VideoCall videoCall) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.addVideoConsultation", () -> {
+                String sql = "INSERT INTO video_consultations (doctor_id, patient_id, scheduled_time, meeting_link) VALUES (?, ?, ?, ?)";
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, videoCall.getDoctorID());
+                    stmt.setString(2, videoCall.getPatientID());
+                    stmt.setTimestamp(3, Timestamp.valueOf(videoCall.getScheduledTime()));
+                    stmt.setString(4, videoCall.getMeetingLink());
+                    stmt.executeUpdate();
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        videoCall.setCallId(rs.getLong(1));
+                    }
+                }
+                connection.commit();
+                synchronized (this) {
+                    DoctorSchedule schedule = doctorSchedules.get(videoCall.getDoctorID());
+                    if (schedule != null) {
+                        schedule.addBooking(new DoctorSchedule.Booking("Video Call", videoCall.getCallId(), videoCall.getPatientID(),
+                                videoCall.getScheduledTime(), videoCall.getScheduledTime().plus(DoctorSchedule.DEFAULT_SLOT)));
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error adding video consultation: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves a doctor's schedule, loading the doctor's upcoming appointments and video consultations on first use.
+     * Only bookings from the start of today onwards are loaded; the schedule is then kept current by
+     * {@link #addAppointment(Appointment)}, {@link #updateAppointmentStatus(long, String)} and
+     * {@link #addVideoConsultation(VideoCall)}.
+     *
+     * @param doctorId The ID of the doctor.
+     * @return The doctor's schedule.
+     */
+    public synchronized DoctorSchedule getDoctorSchedule(String doctorId) {
+        DoctorSchedule schedule = doctorSchedules.get(doctorId);
+        if (schedule != null) return schedule;
+        schedule = new DoctorSchedule(doctorId);
+        if (connection == null) return schedule;
+        Timestamp from = Timestamp.valueOf(LocalDate.now().atStartOfDay());
+        try {
+            String appointmentSql = "SELECT appointment_id, patient_id, appointment_time FROM appointments " +
+                    "WHERE doctor_id = ? AND status <> 'Canceled' AND appointment_time >= ?";
+            try (PreparedStatement stmt = connection.prepareStatement(appointmentSql)) {
+                stmt.setString(1, doctorId);
+                stmt.setTimestamp(2, from);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        LocalDateTime start = rs.getTimestamp("appointment_time").toLocalDateTime();
+                        schedule.addBooking(new DoctorSchedule.Booking("Appointment", rs.getLong("appointment_id"),
+                                rs.getString("patient_id"), start, start.plus(DoctorSchedule.DEFAULT_SLOT)));
+                    }
+                }
+            }
+            String videoSql = "SELECT call_id, patient_id, scheduled_time FROM video_consultations " +
+                    "WHERE doctor_id = ? AND scheduled_time >= ?";
+            try (PreparedStatement stmt = connection.prepareStatement(videoSql)) {
+                stmt.setString(1, doctorId);
+                stmt.setTimestamp(2, from);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        LocalDateTime start = rs.getTimestamp("scheduled_time").toLocalDateTime();
+                        schedule.addBooking(new DoctorSchedule.Booking("Video Call", rs.getLong("call_id"),
+                                rs.getString("patient_id"), start, start.plus(DoctorSchedule.DEFAULT_SLOT)));
+                    }
+                }
+            }
+            doctorSchedules.put(doctorId, schedule);
+        } catch (SQLException e) {
+            System.out.println("Error loading doctor schedule: " + e.getMessage());
+        }
+        return schedule;
+    }
+
+    /**
+     * Finds the next time a doctor is free for a standard-length slot.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param from     The earliest acceptable start time.
+     * @return The start of the doctor's next available slot.
+     */
+    public LocalDateTime getNextAvailableSlot(String doctorId, LocalDateTime from) {
+        return getDoctorSchedule(doctorId).nextAvailableSlot(from, DoctorSchedule.DEFAULT_SLOT);
+    }
+
+    /**
+     * Removes a patient and their associated data from the database.
+     *
+     * @param patientId The ID of the patient to remove.
+     */
+    public void removePatient(String patientId) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.removePatient", () -> {
+                String[] deleteRelatedSqls = {
+                        "DELETE FROM vitals WHERE patient_id = ?",
+                        "DELETE FROM vitals_rollup WHERE patient_id = ?",
+                        "DELETE FROM vital_alerts WHERE patient_id = ?",
+                        "DELETE FROM feedback WHERE patient_id = ?",
+                        "DELETE FROM prescriptions WHERE patient_id = ?",
+                        "DELETE FROM appointments WHERE patient_id = ?",
+                        "DELETE FROM messages WHERE sender_id = ? OR receiver_id = ?",
+                        "DELETE FROM video_consultations WHERE patient_id = ?"
+                };
+                for (String sql : deleteRelatedSqls) {
+                    try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                        stmt.setString(1, patientId);
+                        if (sql.contains("messages")) {
+                            stmt.setString(2, patientId);
+                        }
+                        stmt.executeUpdate();
+                    }
+                }
+
+                String deletePatientSql = "DELETE FROM patients WHERE user_id = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(deletePatientSql)) {
+                    stmt.setString(1, patientId);
+                    stmt.executeUpdate();
+                }
+
+                String deleteUserSql = "DELETE FROM users WHERE user_id = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(deleteUserSql)) {
+                    stmt.setString(1, patientId);
+                    stmt.executeUpdate();
+                }
+
+                logAction("Removed patient " + patientId + " on " + LocalDate.now());
+                synchronized (this) { messageIndex = null; chatInbox = null; doctorSchedules.clear(); }
+
+                connection.commit();
+                forgetPatient(patientId);
+                purgeArchivedMessages(patientId);
+                // Only once the rows are gone, so a failed removal leaves the patient's vitals intact
+                VitalStore store = getVitalStore();
+                if (store != null) {
+                    try {
+                        store.deletePatient(patientId);
+                    } catch (IOException e) {
+                        System.out.println("Error removing stored vitals: " + e.getMessage());
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error removing patient: " + e.getMessage());
+        }
+    }
+
+    public void removeDoctor(String doctorId) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.removeDoctor", () -> {
+                String[] deleteRelatedSqls = {
+                        "DELETE FROM feedback WHERE doctor_id = ?",
+                        "DELETE FROM appointments WHERE doctor_id = ?",
+                        "DELETE FROM messages WHERE sender_id = ? OR receiver_id = ?",
+                        "DELETE FROM video_consultations WHERE doctor_id = ?"
+                };
+                for (String sql : deleteRelatedSqls) {
+                    try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                        stmt.setString(1, doctorId);
+                        if (sql.contains("messages")) {
+                            stmt.setString(2, doctorId);
+                        }
+                        stmt.executeUpdate();
+                    }
+                }
+
+                String deleteDoctorSql = "DELETE FROM doctors WHERE user_id = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(deleteDoctorSql)) {
+                    stmt.setString(1, doctorId);
+                    stmt.executeUpdate();
+                }
+
+                String deleteUserSql = "DELETE FROM users WHERE user_id = ?";
+                try (PreparedStatement stmt = connection.prepareStatement(deleteUserSql)) {
+                    stmt.setString(1, doctorId);
+                    stmt.executeUpdate();
+                }
+
+                logAction("Removed doctor " + doctorId + " on " + LocalDate.now());
+                synchronized (this) { messageIndex = null; chatInbox = null; doctorSchedules.clear(); }
+
+                connection.commit();
+                purgeArchivedMessages(doctorId);
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error removing doctor: " + e.getMessage());
+        }
+    }
+
+    // Removes a deleted user's archived conversations, as their rows in the messages table were deleted
+    private void purgeArchivedMessages(String userId) {
+        MessageArchive archive = getMessageArchive();
+        if (archive == null) return;
+        try {
+            // The chat views may have been reloaded from the archive since the rows were deleted
+            if (archive.removeUser(userId) > 0) {
+                synchronized (this) { messageIndex = null; chatInbox = null; }
+            }
+        } catch (IOException e) {
+            System.out.println("Error removing archived messages: " + e.getMessage());
+        }
+    }
+
+    public void logAction(String action) {
+        if (connection == null) return;
+        try {
+            Metrics.time("database.logAction", () -> {
+                String sql = "INSERT INTO system_logs (action, log_date) VALUES (?, ?)";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.setString(1, action);
+                    stmt.setDate(2, java.sql.Date.valueOf(LocalDate.now()));
+                    stmt.executeUpdate();
+                }
+                connection.commit();
+            });
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
+            System.out.println("Error logging action: " + e.getMessage());
+        }
+    }
+
+    public List<String> getSystemLogs() {
+        List<String> logs = new ArrayList<>();
+        if (connection == null) return logs;
+        try {
+            Metrics.time("database.getSystemLogs", () -> {
+                String sql = "SELECT * FROM system_logs ORDER BY log_date DESC";
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String log = rs.getString("action") + " (Date: " + rs.getDate("log_date") + ")";
+                            logs.add(log);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error retrieving system logs: " + e.getMessage());
+        }
+        return logs;
+    }
+
+    public boolean isConnected() {
+        try {
+            return connection != null && !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
+
+// Notifications and Reminders
+class ReminderService {
+    private final EmailNotification emailNotification;
+
+    public ReminderService(EmailNotification emailNotification) {
+        this.emailNotification = emailNotification != null ? emailNotification : new EmailNotification();
+    }
+
+    public void sendAppointmentReminder(Appointment appointment) {
+        if (appointment == null) return;
+        try {
+            String message = "Reminder: Appointment with Dr. " + appointment.getDoctor().getName() +
+                    " on " + appointment.getAppointmentTime();
+            emailNotification.sendNotification(message, appointment.getPatient().getEmail());
+        } catch (NotificationException e) {
+            System.out.println("Error sending appointment reminder: " + e.getMessage());
+        }
+    }
+
+    public void sendMedicationReminder(Prescription prescription) {
+        if (prescription == null) return;
+        try {
+            DataBase db = DataBase.getInstance();
+            User patient = db.getUser(prescription.getPatientID());
+            String message = "Reminder: Take " + prescription.getMedication() +
+                    " (" + prescription.getDosage() + ") as per schedule: " + prescription.getSchedule();
+            emailNotification.sendNotification(message, patient.getEmail());
+        } catch (NotificationException e) {
+            System.out.println("Error sending medication reminder: " + e.getMessage());
+        }
+    }
+}
+
+// Vital Rollups
+// Pre-aggregated min/max/avg/count of each metric per patient per hour, day and week, kept in the
+// vitals_rollup table. Rows are upserted alongside every vital sign insert, and can be rebuilt from the
+// raw vitals by the compaction job. Charts and reports read the coarsest resolution that still gives
+// enough points, so long histories cost hundreds of rows instead of one row per reading.
+class VitalRollup {
+    static final String HOUR = "HOUR";
+    static final String DAY = "DAY";
+    static final String WEEK = "WEEK";
+    static final List<String> RESOLUTIONS = Arrays.asList(HOUR, DAY, WEEK);
+
+    // Column prefix in vitals_rollup and source column in vitals, per metric
+    private static final String[][] METRICS = {
+            {"hr", "heart_rate"}, {"bp", "blood_pressure"}, {"temp", "body_temperature"}, {"o2", "oxygen_level"}
+    };
+
+    static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS vitals_rollup (" +
+            "patient_id VARCHAR(50) NOT NULL, resolution VARCHAR(8) NOT NULL, bucket_start DATETIME NOT NULL, " +
+            "reading_count INT NOT NULL, " + metricColumns("%1$s_min DOUBLE, %1$s_max DOUBLE, %1$s_sum DOUBLE, ") +
+            "PRIMARY KEY (patient_id, resolution, bucket_start))";
+
+    static final String UPSERT_SQL = "INSERT INTO vitals_rollup (patient_id, resolution, bucket_start, reading_count, " +
+            metricColumns("%1$s_min, %1$s_max, %1$s_sum, ") .replaceAll(", $", "") + ") VALUES (?, ?, ?, 1, " +
+            String.join(", ", Collections.nCopies(METRICS.length * 3, "?")) + ") ON DUPLICATE KEY UPDATE reading_count = reading_count + 1, " +
+            metricColumns("%1$s_min = LEAST(%1$s_min, VALUES(%1$s_min)), %1$s_max = GREATEST(%1$s_max, VALUES(%1$s_max)), " +
+                    "%1$s_sum = %1$s_sum + VALUES(%1$s_sum), ").replaceAll(", $", "");
+
+    private final String patientID;
+    private final String resolution;
+    private final LocalDateTime bucketStart;
+    private final long count;
+    private final double[] min;
+    private final double[] max;
+    private final double[] sum;
+
+    public VitalRollup(String patientID, String resolution, LocalDateTime bucketStart, long count,
+                       double[] min, double[] max, double[] sum) {
+        this.patientID = patientID;
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+    }
+
+    public String getPatientID() { return patientID; }
+
+    public String getResolution() { return resolution; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+
+    public long getCount() { return count; }
+
+    public double getAverageHeartRate() { return sum[0] / count; }
+
+    public double getAverageBloodPressure() { return sum[1] / count; }
+
+    public double getAverageBodyTemperature() { return sum[2] / count; }
+
+    public double getAverageOxygenLevel() { return sum[3] / count; }
+
+    public double getMin(int metric) { return min[metric]; }
+
+    public double getMax(int metric) { return max[metric]; }
+
+    public double getAverage(int metric) { return sum[metric] / count; }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d readings): HR %.1f [%.1f-%.1f], BP %.1f [%.1f-%.1f], Temp %.2f [%.2f-%.2f], O2 %.1f [%.1f-%.1f]",
+                HOUR.equals(resolution) ? bucketStart : bucketStart.toLocalDate(), count,
+                getAverage(0), min[0], max[0], getAverage(1), min[1], max[1],
+                getAverage(2), min[2], max[2], getAverage(3), min[3], max[3]);
+    }
+
+    // Start of the bucket containing the given time
+    static LocalDateTime bucketStart(String resolution, LocalDateTime time) {
+        switch (resolution) {
+            case HOUR: return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY: return time.toLocalDate().atStartOfDay();
+            case WEEK: return time.toLocalDate().with(DayOfWeek.MONDAY).atStartOfDay();
+            default: throw new IllegalArgumentException("Unknown rollup resolution: " + resolution);
+        }
+    }
+
+    static String describe(String resolution) {
+        switch (resolution) {
+            case HOUR: return "hourly";
+            case DAY: return "daily";
+            case WEEK: return "weekly";
+            default: throw new IllegalArgumentException("Unknown rollup resolution: " + resolution);
+        }
+    }
+
+    static Duration bucketLength(String resolution) {
+        switch (resolution) {
+            case HOUR: return Duration.ofHours(1);
+            case DAY: return Duration.ofDays(1);
+            case WEEK: return Duration.ofDays(7);
+            default: throw new IllegalArgumentException("Unknown rollup resolution: " + resolution);
+        }
+    }
+
+    // SQL expression computing the bucket start from the vitals table
+    static String bucketExpression(String resolution) {
+        switch (resolution) {
+            case HOUR: return "TIMESTAMP(DATE(ts), MAKETIME(HOUR(ts), 0, 0))";
+            case DAY: return "TIMESTAMP(DATE(ts))";
+            case WEEK: return "TIMESTAMP(DATE_SUB(DATE(ts), INTERVAL WEEKDAY(ts) DAY))";
+            default: throw new IllegalArgumentException("Unknown rollup resolution: " + resolution);
+        }
+    }
+
+    // Rebuilds one resolution of a patient's rollups from the raw vitals
+    static String rebuildSql(String resolution) {
+        String bucket = bucketExpression(resolution);
+        return "INSERT INTO vitals_rollup (patient_id, resolution, bucket_start, reading_count, " +
+                metricColumns("%1$s_min, %1$s_max, %1$s_sum, ").replaceAll(", $", "") + ") " +
+                "SELECT patient_id, '" + resolution + "', " + bucket + ", COUNT(*), " +
+                metricColumns("MIN(%2$s), MAX(%2$s), SUM(%2$s), ").replaceAll(", $", "") +
+                " FROM vitals WHERE patient_id = ? GROUP BY patient_id, " + bucket;
+    }
+
+    // Binds the upsert parameters for one resolution of a new vital sign
+    static void bindUpsert(PreparedStatement stmt, String resolution, VitalSign vital) throws SQLException {
+        double[] values = values(vital);
+        stmt.setString(1, vital.getPatientID());
+        stmt.setString(2, resolution);
+        stmt.setTimestamp(3, Timestamp.valueOf(bucketStart(resolution, vital.getTimestamp())));
+        int index = 4;
+        for (double value : values) {
+            stmt.setDouble(index++, value);
+            stmt.setDouble(index++, value);
+            stmt.setDouble(index++, value);
+        }
+    }
+
+    static VitalRollup fromResultSet(ResultSet rs) throws SQLException {
+        double[] min = new double[METRICS.length];
+        double[] max = new double[METRICS.length];
+        double[] sum = new double[METRICS.length];
+        for (int i = 0; i < METRICS.length; i++) {
+            min[i] = rs.getDouble(METRICS[i][0] + "_min");
+            max[i] = rs.getDouble(METRICS[i][0] + "_max");
+            sum[i] = rs.getDouble(METRICS[i][0] + "_sum");
+        }
+        return new VitalRollup(rs.getString("patient_id"), rs.getString("resolution"),
+                rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getLong("reading_count"), min, max, sum);
+    }
+
+    // Aggregates already-loaded vitals into buckets, oldest first
+    static List<VitalRollup> rollUp(List<VitalSign> vitals, String resolution) {
+        TreeMap<LocalDateTime, double[][]> buckets = new TreeMap<>();
+        TreeMap<LocalDateTime, Long> counts = new TreeMap<>();
+        String patientId = null;
+        for (VitalSign vital : vitals) {
+            patientId = vital.getPatientID();
+            LocalDateTime start = bucketStart(resolution, vital.getTimestamp());
+            double[] values = values(vital);
+            double[][] bucket = buckets.computeIfAbsent(start, k -> new double[][]{
+                    values.clone(), values.clone(), new double[values.length]});
+            for (int i = 0; i < values.length; i++) {
+                bucket[0][i] = Math.min(bucket[0][i], values[i]);
+                bucket[1][i] = Math.max(bucket[1][i], values[i]);
+                bucket[2][i] += values[i];
+            }
+            counts.merge(start, 1L, Long::sum);
+        }
+        List<VitalRollup> rollups = new ArrayList<>();
+        for (Map.Entry<LocalDateTime, double[][]> entry : buckets.entrySet()) {
+            double[][] b = entry.getValue();
+            rollups.add(new VitalRollup(patientId, resolution, entry.getKey(), counts.get(entry.getKey()), b[0], b[1], b[2]));
+        }
+        return rollups;
+    }
+
+    // Picks the finest resolution whose bucket count over the span fits in maxPoints,
+    // or null when the raw readings already fit
+    static String chooseResolution(long readings, LocalDateTime first, LocalDateTime last, int maxPoints) {
+        if (readings <= maxPoints || first == null || last == null) return null;
+        return resolutionForSpan(first, last, maxPoints);
+    }
+
+    // Picks the finest resolution whose bucket count over the span fits in maxPoints, falling back to weeks
+    static String resolutionForSpan(LocalDateTime first, LocalDateTime last, int maxPoints) {
+        Duration span = Duration.between(first, last).abs();
+        for (String resolution : RESOLUTIONS) {
+            if (span.dividedBy(bucketLength(resolution)) + 1 <= maxPoints) return resolution;
+        }
+        return WEEK;
+    }
+
+    private static double[] values(VitalSign vital) {
+        return new double[]{vital.getHeartRate(), vital.getBloodPressure(), vital.getBodyTemperature(), vital.getOxygenLevel()};
+    }
+
+    private static String metricColumns(String pattern) {
+        StringBuilder columns = new StringBuilder();
+        for (String[] metric : METRICS) columns.append(String.format(pattern, metric[0], metric[1]));
+        return columns.toString();
+    }
+}
+
+// Downsampling
+// Largest-Triangle-Three-Buckets: keeps the first and last points and, from each bucket in between, the
+// point forming the largest triangle with the previously kept point and the next bucket's average.
+// This reduces a series to a fixed number of points while preserving its visual shape and spikes.
+class Downsampling {
+    /**
+     * Selects at most threshold points of the series between from (inclusive) and to (exclusive).
+     *
+     * @param xs        The x values, in ascending order.
+     * @param ys        The y values.
+     * @param from      The first index to consider.
+     * @param to        One past the last index to consider.
+     * @param threshold The maximum number of points to keep (at least 3).
+     * @return The indices of the kept points, in ascending order.
+     */
+    static int[] largestTriangleThreeBuckets(double[] xs, double[] ys, int from, int to, int threshold) {
+        int count = to - from;
+        if (threshold < 3 || count <= threshold) {
+            int[] all = new int[Math.max(0, count)];
+            for (int i = 0; i < all.length; i++) all[i] = from + i;
+            return all;
+        }
+
+        int[] sampled = new int[threshold];
+        int kept = 0;
+        sampled[kept++] = from;
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int previous = from;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket is the third vertex of the triangle
+            int nextStart = from + (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min(from + (int) ((bucket + 2) * bucketSize) + 1, to);
+            double avgX = 0, avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += xs[i];
+                avgY += ys[i];
+            }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            int rangeStart = from + (int) (bucket * bucketSize) + 1;
+            int rangeEnd = from + (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int selected = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                double area = Math.abs((xs[previous] - avgX) * (ys[i] - ys[previous])
+                        - (xs[previous] - xs[i]) * (avgY - ys[previous]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+            sampled[kept++] = selected;
+            previous = selected;
+        }
+        sampled[kept] = to - 1;
+        return sampled;
+    }
+}
+
+// Vital Sign Feed
+// Publishes each stored vital sign to the subscribers of its patient. Listeners run on the storing
+// thread, so they should only hand the reading off (e.g. to a queue drained on the FX thread).
+class VitalSignFeed {
+    private final Map<String, List<Consumer<VitalSign>>> subscribers = new ConcurrentHashMap<>();
+
+    // Returns an action that removes the subscription
+    public Runnable subscribe(String patientId, Consumer<VitalSign> listener) {
+        subscribers.compute(patientId, (id, listeners) -> {
+            if (listeners == null) listeners = new CopyOnWriteArrayList<>();
+            listeners.add(listener);
+            return listeners;
+        });
+        return () -> subscribers.computeIfPresent(patientId, (id, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    public void publish(VitalSign vital) {
+        List<Consumer<VitalSign>> listeners = subscribers.get(vital.getPatientID());
+        if (listeners == null) return;
+        for (Consumer<VitalSign> listener : listeners) {
+            try {
+                listener.accept(vital);
+            } catch (RuntimeException e) {
+                System.out.println("Error notifying vital sign subscriber: " + e.getMessage());
+            }
+        }
+    }
+}
+
+// Live Vitals Chart
+// Shows the last windowSize readings of one patient and appends new ones as they are stored. Readings
+// are queued from any thread and at most one Platform.runLater is outstanding, so a burst of telemetry
+// is applied to the chart as a single batch per frame. Only readings newer than the last plotted one are
+// appended, so the chart's x values keep ascending.
+class LiveVitalsChart implements AutoCloseable {
+    private final LineChart<Number, Number> chart;
+    private final NumberAxis xAxis;
+    private final List<XYChart.Series<Number, Number>> series = new ArrayList<>();
+    private final int windowSize;
+    private final ConcurrentLinkedQueue<VitalSign> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable unsubscribe;
+    private volatile boolean closed;
+    // Timestamp of the newest plotted reading; only touched on the FX thread
+    private LocalDateTime lastPlotted;
+
+    LiveVitalsChart(String patientId, DataBase db, int windowSize) {
+        this.windowSize = windowSize;
+        xAxis = HealthTrendsVisualizer.createTimeAxis();
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel("Value");
+        xAxis.setAutoRanging(false);
+        chart = new LineChart<>(xAxis, yAxis);
+        chart.setTitle("Live Vital Signs for Patient " + patientId);
+        chart.setAnimated(false);
+        chart.setCreateSymbols(false);
+        for (String name : HealthTrendsVisualizer.SERIES_NAMES) {
+            XYChart.Series<Number, Number> metricSeries = new XYChart.Series<>();
+            metricSeries.setName(name);
+            series.add(metricSeries);
+        }
+
+        // Subscribe before loading the history so nothing stored in between is missed; drain drops the
+        // readings that the history already contains
+        unsubscribe = db.getVitalFeed().subscribe(patientId, this::onVital);
+        List<VitalSign> recent = db.getRecentVitalSigns(patientId, windowSize);
+        Collections.reverse(recent);
+        append(recent);
+        chart.getData().addAll(series);
+    }
+
+    public LineChart<Number, Number> getChart() { return chart; }
+
+    @Override
+    public void close() {
+        closed = true;
+        unsubscribe.run();
+        pending.clear();
+    }
+
+    private void onVital(VitalSign vital) {
+        if (closed) return;
+        pending.add(vital);
+        if (drainScheduled.compareAndSet(false, true)) Platform.runLater(this::drain);
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        if (closed) return;
+        List<VitalSign> batch = new ArrayList<>();
+        LocalDateTime newest = lastPlotted;
+        VitalSign vital;
+        while ((vital = pending.poll()) != null) {
+            if (newest != null && !vital.getTimestamp().isAfter(newest)) continue;
+            batch.add(vital);
+            newest = vital.getTimestamp();
+        }
+        append(batch);
+    }
+
+    // Appends readings in order and trims every series back to the window
+    private void append(List<VitalSign> vitals) {
+        if (vitals.isEmpty()) return;
+        lastPlotted = vitals.get(vitals.size() - 1).getTimestamp();
+        // Readings that would be trimmed straight away are skipped
+        int skip = Math.max(0, vitals.size() - windowSize);
+        List<List<XYChart.Data<Number, Number>>> points = new ArrayList<>();
+        for (int metric = 0; metric < series.size(); metric++) points.add(new ArrayList<>());
+        for (VitalSign vital : vitals.subList(skip, vitals.size())) {
+            double x = HealthTrendsVisualizer.toAxisValue(vital.getTimestamp());
+            points.get(0).add(new XYChart.Data<>(x, vital.getHeartRate()));
+            points.get(1).add(new XYChart.Data<>(x, vital.getBloodPressure()));
+            points.get(2).add(new XYChart.Data<>(x, vital.getBodyTemperature()));
+            points.get(3).add(new XYChart.Data<>(x, vital.getOxygenLevel()));
+        }
+        for (int metric = 0; metric < series.size(); metric++) {
+            List<XYChart.Data<Number, Number>> data = series.get(metric).getData();
+            data.addAll(points.get(metric));
+            if (data.size() > windowSize) series.get(metric).getData().remove(0, data.size() - windowSize);
+        }
+        List<XYChart.Data<Number, Number>> window = series.get(0).getData();
+        double first = window.get(0).getXValue().doubleValue();
+        double last = window.get(window.size() - 1).getXValue().doubleValue();
+        xAxis.setLowerBound(first);
+        xAxis.setUpperBound(Math.max(last, first + 1));
+    }
+}
+
+// Health Trends Visualization Class
+// Readings are plotted against their timestamps. Histories longer than MAX_POINTS readings are
+// charted from the coarsest sufficient rollup resolution, as each bucket's minimum and maximum so spikes
+// stay visible. Once a zoom leaves at most RAW_LIMIT readings in view, they are loaded in the background
+// and plotted in place of the rollups.
+// Each series is then downsampled to about one point per horizontal pixel of the visible range, and
+// resampled when the chart is resized or zoomed with the scroll wheel.
+class HealthTrendsVisualizer {
+    private static final int MAX_POINTS = 1000;
+    private static final int LIVE_WINDOW = 600;
+    static final String[] SERIES_NAMES = {"Heart Rate", "Blood Pressure", "Temperature", "Oxygen Level"};
+    private static final DateTimeFormatter AXIS_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Times are plotted as seconds on a NumberAxis
+    static double toAxisValue(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime fromAxisValue(double value) {
+        return LocalDateTime.ofEpochSecond((long) value, 0, ZoneOffset.UTC);
+    }
+
+    static NumberAxis createTimeAxis() {
+        NumberAxis axis = new NumberAxis();
+        axis.setLabel("Time");
+        axis.setForceZeroInRange(false);
+        axis.setTickLabelFormatter(new StringConverter<Number>() {
+            @Override
+            public String toString(Number value) {
+                return fromAxisValue(value.doubleValue()).format(AXIS_FORMAT);
+            }
+
+            @Override
+            public Number fromString(String text) {
+                return toAxisValue(LocalDateTime.parse(text, AXIS_FORMAT));
+            }
+        });
+        return axis;
+    }
+
+    public LineChart<Number, Number> generateVitalTrendsChart(String patientId, DataBase db) {
+        if (patientId == null || db == null) return null;
+
+        NumberAxis xAxis = createTimeAxis();
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel("Value");
+
+        LineChart<Number, Number> lineChart = new LineChart<>(xAxis, yAxis);
+        lineChart.setTitle("Vital Signs Trends for Patient " + patientId);
+
+        List<VitalRollup> weekly = db.getVitalRollups(patientId, VitalRollup.WEEK, null);
+        if (!weekly.isEmpty()) {
+            long readings = weekly.stream().mapToLong(VitalRollup::getCount).sum();
+            LocalDateTime first = weekly.get(0).getBucketStart();
+            LocalDateTime last = weekly.get(weekly.size() - 1).getBucketStart().plus(VitalRollup.bucketLength(VitalRollup.WEEK));
+            String resolution = VitalRollup.chooseResolution(readings, first, last, MAX_POINTS);
+            if (resolution != null) {
+                List<VitalRollup> rollups = VitalRollup.WEEK.equals(resolution)
+                        ? weekly : db.getVitalRollups(patientId, resolution, null);
+                // Each bucket is drawn from its minimum at the bucket start to its maximum half way through
+                double half = VitalRollup.bucketLength(resolution).getSeconds() / 2.0;
+                double[] xs = new double[2 * rollups.size()];
+                double[][] ys = new double[SERIES_NAMES.length][2 * rollups.size()];
+                long[] readingsBefore = new long[xs.length + 1];
+                for (int i = 0; i < rollups.size(); i++) {
+                    VitalRollup rollup = rollups.get(i);
+                    xs[2 * i] = toAxisValue(rollup.getBucketStart());
+                    xs[2 * i + 1] = xs[2 * i] + half;
+                    for (int metric = 0; metric < SERIES_NAMES.length; metric++) {
+                        ys[metric][2 * i] = rollup.getMin(metric);
+                        ys[metric][2 * i + 1] = rollup.getMax(metric);
+                    }
+                    readingsBefore[2 * i + 1] = readingsBefore[2 * i] + rollup.getCount();
+                    readingsBefore[2 * i + 2] = readingsBefore[2 * i + 1];
+                }
+                String label = "Time (" + VitalRollup.describe(resolution) + " min/max)";
+                new ResamplingChart(lineChart, xAxis, xs, ys, label, readingsBefore,
+                        (from, to) -> db.getVitalSignsBetween(patientId, from, to)).install();
+                return lineChart;
+            }
+        }
+
+        List<VitalSign> vitals = db.getVitalSigns(patientId);
+        if (vitals.isEmpty()) return lineChart;
+        Collections.reverse(vitals); // Oldest first, so the x values ascend
+
+        double[] xs = new double[vitals.size()];
+        double[][] ys = new double[SERIES_NAMES.length][vitals.size()];
+        for (int i = 0; i < vitals.size(); i++) {
+            VitalSign vital = vitals.get(i);
+            xs[i] = toAxisValue(vital.getTimestamp());
+            ys[0][i] = vital.getHeartRate();
+            ys[1][i] = vital.getBloodPressure();
+            ys[2][i] = vital.getBodyTemperature();
+            ys[3][i] = vital.getOxygenLevel();
+        }
+        new ResamplingChart(lineChart, xAxis, xs, ys).install();
+        return lineChart;
+    }
+
+    // Opens a chart that follows the patient's newly stored vitals; close it when its window is hidden
+    public LiveVitalsChart generateLiveVitalTrendsChart(String patientId, DataBase db) {
+        if (patientId == null || db == null) return null;
+        return new LiveVitalsChart(patientId, db, LIVE_WINDOW);
+    }
+
+    // Holds the full-resolution series of one chart and rebuilds the displayed points for the visible x range.
+    // A rollup chart also swaps in the raw readings of the visible range once there are few enough of them.
+    private static class ResamplingChart {
+        private static final int DEFAULT_WIDTH = 800;
+        private static final double MIN_SPAN = 600; // Ten minutes
+        private static final int RAW_LIMIT = 20_000;
+
+        private final LineChart<Number, Number> chart;
+        private final NumberAxis xAxis;
+        private final double[] xs;
+        private final double[][] ys;
+        private final String label;
+        private final long[] readingsBefore; // Readings behind the points before each index; null for raw points
+        private final BiFunction<LocalDateTime, LocalDateTime, List<VitalSign>> rawLoader;
+        private final List<XYChart.Series<Number, Number>> series = new ArrayList<>();
+        private double lower;
+        private double upper;
+        // Raw readings of the range last loaded, and the range of the load in flight, if any
+        private double[] rawXs = new double[0];
+        private double[][] rawYs = new double[SERIES_NAMES.length][0];
+        private double rawLower = Double.NaN;
+        private double rawUpper = Double.NaN;
+        private double loadingLower = Double.NaN;
+        private double loadingUpper = Double.NaN;
+        private int loads;
+
+        ResamplingChart(LineChart<Number, Number> chart, NumberAxis xAxis, double[] xs, double[][] ys) {
+            this(chart, xAxis, xs, ys, "Time", null, null);
+        }
+
+        ResamplingChart(LineChart<Number, Number> chart, NumberAxis xAxis, double[] xs, double[][] ys, String label,
+                        long[] readingsBefore, BiFunction<LocalDateTime, LocalDateTime, List<VitalSign>> rawLoader) {
+            this.chart = chart;
+            this.xAxis = xAxis;
+            this.xs = xs;
+            this.ys = ys;
+            this.label = label;
+            this.readingsBefore = readingsBefore;
+            this.rawLoader = rawLoader;
+            this.lower = xs[0];
+            this.upper = Math.max(xs[xs.length - 1], xs[0] + 1);
+        }
+
+        void install() {
+            for (String name : SERIES_NAMES) {
+                XYChart.Series<Number, Number> metricSeries = new XYChart.Series<>();
+                metricSeries.setName(name);
+                series.add(metricSeries);
+            }
+            resample();
+            chart.getData().addAll(series);
+            xAxis.setAutoRanging(false);
+            chart.widthProperty().addListener((observable, oldWidth, newWidth) -> resample());
+            // Scrolling up zooms in around the centre of the visible range, scrolling down zooms out
+            chart.setOnScroll(event -> zoom(event.getDeltaY() > 0 ? 0.8 : 1.25));
+        }
+
+        private void zoom(double factor) {
+            double first = xs[0];
+            double last = Math.max(xs[xs.length - 1], first + 1);
+            double span = Math.min(last - first, Math.max(MIN_SPAN, (upper - lower) * factor));
+            double centre = (lower + upper) / 2;
+            lower = Math.max(first, centre - span / 2);
+            upper = Math.min(last, lower + span);
+            lower = Math.max(first, upper - span);
+            resample();
+        }
+
+        private void resample() {
+            xAxis.setLowerBound(lower);
+            xAxis.setUpperBound(upper);
+            if (rawLoader != null && lower >= rawLower && upper <= rawUpper) {
+                xAxis.setLabel("Time");
+                plot(rawXs, rawYs);
+                return;
+            }
+            xAxis.setLabel(label);
+            int[] range = plot(xs, ys);
+            if (rawLoader != null && readingsBefore[range[1]] - readingsBefore[range[0]] <= RAW_LIMIT) loadRaw();
+        }
+
+        // Plots the points of the visible range and returns the range of indices it covered
+        private int[] plot(double[] xs, double[][] ys) {
+            // Include one point either side of the visible range so the lines reach the axis edges
+            int from = Math.max(0, firstIndexAtLeast(xs, lower) - 1);
+            int to = Math.min(xs.length, firstIndexAtLeast(xs, upper) + 2);
+            int threshold = Math.max(3, (int) (chart.getWidth() > 0 ? chart.getWidth() : DEFAULT_WIDTH));
+            for (int metric = 0; metric < series.size(); metric++) {
+                int[] indices = Downsampling.largestTriangleThreeBuckets(xs, ys[metric], from, to, threshold);
+                List<XYChart.Data<Number, Number>> points = new ArrayList<>(indices.length);
+                for (int index : indices) points.add(new XYChart.Data<>(xs[index], ys[metric][index]));
+                series.get(metric).getData().setAll(points);
+            }
+            return new int[]{from, to};
+        }
+
+        // Loads the visible range's readings off the FX thread; only the latest load is plotted
+        private void loadRaw() {
+            if (lower >= loadingLower && upper <= loadingUpper) return;
+            int load = ++loads;
+            double from = lower;
+            double to = upper;
+            loadingLower = from;
+            loadingUpper = to;
+            CompletableFuture.supplyAsync(() -> rawLoader.apply(fromAxisValue(from), fromAxisValue(to)))
+                    .thenAccept(vitals -> Platform.runLater(() -> {
+                        if (load != loads) return;
+                        loadingLower = Double.NaN;
+                        loadingUpper = Double.NaN;
+                        double[] loadedXs = new double[vitals.size()];
+                        double[][] loadedYs = new double[SERIES_NAMES.length][vitals.size()];
+                        for (int i = 0; i < vitals.size(); i++) {
+                            VitalSign vital = vitals.get(i);
+                            loadedXs[i] = toAxisValue(vital.getTimestamp());
+                            loadedYs[0][i] = vital.getHeartRate();
+                            loadedYs[1][i] = vital.getBloodPressure();
+                            loadedYs[2][i] = vital.getBodyTemperature();
+                            loadedYs[3][i] = vital.getOxygenLevel();
+                        }
+                        rawXs = loadedXs;
+                        rawYs = loadedYs;
+                        rawLower = from;
+                        rawUpper = to;
+                        resample();
+                    }));
+        }
+
+        private static int firstIndexAtLeast(double[] xs, double x) {
+            int low = 0, high = xs.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (xs[mid] < x) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+}
+
+// Vital Statistics
+// Single-pass summaries of a patient's vital signs for reports. Each metric keeps a Welford accumulator
+// for mean/stddev, a small merging t-digest for percentiles, an in-range counter and a streaming
+// least-squares fit of value against reading time, so a report needs one scan and constant memory.
+class VitalStatistics {
+    private final LocalDate since;
+    private final MetricSummary heartRate = new MetricSummary(VitalRange.HEART_RATE);
+    private final MetricSummary bloodPressure = new MetricSummary(VitalRange.BLOOD_PRESSURE);
+    private final MetricSummary bodyTemperature = new MetricSummary(VitalRange.BODY_TEMPERATURE);
+    private final MetricSummary oxygenLevel = new MetricSummary(VitalRange.OXYGEN_LEVEL);
+
+    // Summarises the full history
+    public VitalStatistics() {
+        this(null);
+    }
+
+    // Summarises only checkups on or after the given date (null for the full history)
+    public VitalStatistics(LocalDate since) {
+        this.since = since;
+    }
+
+    public void add(VitalSign vital) {
+        if (vital == null) return;
+        LocalDate date = vital.getCheckupDate();
+        if (since != null && date != null && date.isBefore(since)) return;
+        LocalDateTime timestamp = vital.getTimestamp();
+        double day = timestamp != null ? timestamp.toEpochSecond(ZoneOffset.UTC) / 86400.0 : 0;
+        heartRate.add(vital.getHeartRate(), day);
+        bloodPressure.add(vital.getBloodPressure(), day);
+        bodyTemperature.add(vital.getBodyTemperature(), day);
+        oxygenLevel.add(vital.getOxygenLevel(), day);
+    }
+
+    public long getCount() { return heartRate.getCount(); }
+
+    public List<MetricSummary> getMetrics() {
+        return Arrays.asList(heartRate, bloodPressure, bodyTemperature, oxygenLevel);
+    }
+
+    public void writeTo(PrintWriter writer) {
+        writer.println(since == null ? "Period: full history" : "Period: since " + since);
+        writer.println("Readings: " + getCount());
+        if (getCount() == 0) return;
+        for (MetricSummary metric : getMetrics()) writer.println(metric);
+    }
+
+    // Aggregates for one vital sign metric
+    static class MetricSummary {
+        private final VitalRange range;
+        private final TDigest digest = new TDigest(100);
+        private long count;
+        private long inRange;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double mean;
+        private double m2;
+        // Running means and co-moments of (checkup day, value) for the trend slope
+        private double meanDay;
+        private double dayM2;
+        private double coMoment;
+
+        MetricSummary(VitalRange range) {
+            this.range = range;
+        }
+
+        void add(double value, double day) {
+            count++;
+            if (range.isNormal(value)) inRange++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            double dayDelta = day - meanDay;
+            meanDay += dayDelta / count;
+            dayM2 += dayDelta * (day - meanDay);
+            coMoment += dayDelta * (value - mean);
+            digest.add(value);
+        }
+
+        public String getName() { return range.getName(); }
+
+        public long getCount() { return count; }
+
+        public double getMin() { return count > 0 ? min : Double.NaN; }
+
+        public double getMax() { return count > 0 ? max : Double.NaN; }
+
+        public double getMean() { return count > 0 ? mean : Double.NaN; }
+
+        public double getStdDev() { return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0; }
+
+        public double getPercentile(double p) { return digest.quantile(p / 100.0); }
+
+        // Share of readings inside the normal range, as a percentage
+        public double getTimeInRange() { return count > 0 ? inRange * 100.0 / count : Double.NaN; }
+
+        // Change per day from a least-squares fit against the reading time
+        public double getSlopePerDay() { return dayM2 > 0 ? coMoment / dayM2 : 0; }
+
+        @Override
+        public String toString() {
+            if (count == 0) return getName() + ": no data";
+            return String.format("%s: min %.2f, max %.2f, mean %.2f, sd %.2f, p50 %.2f, p90 %.2f, p99 %.2f, in range %.0f%%, trend %+.3f/day",
+                    getName(), getMin(), getMax(), getMean(), getStdDev(),
+                    getPercentile(50), getPercentile(90), getPercentile(99), getTimeInRange(), getSlopePerDay());
+        }
+    }
+
+    // Merging t-digest: values are buffered, then sorted and merged into centroids whose size is bounded
+    // by the k1 scale function, which keeps the tails accurate with a few hundred centroids at most.
+    static class TDigest {
+        private final double compression;
+        private double[] means = new double[0];
+        private double[] weights = new double[0];
+        private int centroids;
+        private final double[] buffer;
+        private int buffered;
+        private double totalWeight;
+
+        TDigest(double compression) {
+            this.compression = compression;
+            this.buffer = new double[(int) (compression * 5)];
+        }
+
+        void add(double value) {
+            if (buffered == buffer.length) compress();
+            buffer[buffered++] = value;
+        }
+
+        double quantile(double q) {
+            compress();
+            if (centroids == 0) return Double.NaN;
+            if (centroids == 1) return means[0];
+            double target = q * totalWeight;
+            double cumulative = 0;
+            for (int i = 0; i < centroids; i++) {
+                double half = weights[i] / 2;
+                if (cumulative + half >= target) {
+                    if (i == 0) return means[0];
+                    double previousMid = cumulative - weights[i - 1] / 2;
+                    double fraction = (target - previousMid) / (cumulative + half - previousMid);
+                    return means[i - 1] + fraction * (means[i] - means[i - 1]);
+                }
+                cumulative += weights[i];
+            }
+            return means[centroids - 1];
+        }
+
+        private void compress() {
+            if (buffered == 0) return;
+            Arrays.sort(buffer, 0, buffered);
+            int size = centroids + buffered;
+            double[] inMeans = new double[size];
+            double[] inWeights = new double[size];
+            // Merge the sorted buffer with the existing (sorted) centroids
+            int i = 0, j = 0, k = 0;
+            while (i < centroids || j < buffered) {
+                if (j >= buffered || (i < centroids && means[i] <= buffer[j])) {
+                    inMeans[k] = means[i];
+                    inWeights[k++] = weights[i++];
+                } else {
+                    inMeans[k] = buffer[j++];
+                    inWeights[k++] = 1;
+                }
+            }
+            totalWeight += buffered;
+            buffered = 0;
+
+            double[] outMeans = new double[size];
+            double[] outWeights = new double[size];
+            int out = 0;
+            outMeans[0] = inMeans[0];
+            outWeights[0] = inWeights[0];
+            double soFar = 0;
+            double limit = totalWeight * kInverse(kScale(0) + 1);
+            for (int n = 1; n < size; n++) {
+                double proposed = outWeights[out] + inWeights[n];
+                if (soFar + proposed <= limit) {
+                    outWeights[out] = proposed;
+                    outMeans[out] += (inMeans[n] - outMeans[out]) * inWeights[n] / proposed;
+                } else {
+                    soFar += outWeights[out];
+                    limit = totalWeight * kInverse(kScale(soFar / totalWeight) + 1);
+                    out++;
+                    outMeans[out] = inMeans[n];
+                    outWeights[out] = inWeights[n];
+                }
+            }
+            centroids = out + 1;
+            means = outMeans;
+            weights = outWeights;
+        }
+
+        private double kScale(double q) {
+            return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+        }
+
+        private double kInverse(double k) {
+            return (Math.sin(Math.min(k * 2 * Math.PI / compression, Math.PI / 2)) + 1) / 2;
+        }
+    }
+}
+
+// Report Generation Class
+// The vitals section is streamed straight into the report file while the feedback and prescription
+// queries run concurrently on their own connections, each streaming into a temporary part file.
+// The parts are then appended with FileChannel.transferTo, so memory use does not grow with history
+// and the total time is roughly that of the slowest query.
+// Vital statistics are accumulated during the same pass over the vitals.
+class ReportGenerator {
+    private static final String SEPARATOR = "----------------------------------------";
+    private static final int TREND_ROWS = 30;
+
+    public void generateAndSaveReport(String patientId, DataBase db, String filePath) {
+        generateAndSaveReport(patientId, db, filePath, 0);
+    }
+
+    // Generates a report whose statistics cover the last windowDays days, or the full history if windowDays <= 0
+    public void generateAndSaveReport(String patientId, DataBase db, String filePath, int windowDays) {
+        if (patientId == null || db == null || filePath == null) {
+            System.out.println("Error: Invalid input parameters for report generation.");
+            return;
+        }
+
+        // Ensure the parent directory exists
+        File directory = new File(filePath).getParentFile();
+        if (directory != null && !directory.exists()) {
+            directory.mkdirs();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        File feedbackPart = null;
+        File prescriptionPart = null;
+        Metrics.Timer metric = Metrics.timer("report.generate");
+        long started = metric.start();
+        try {
+            feedbackPart = File.createTempFile("rpms-feedback-", ".part");
+            prescriptionPart = File.createTempFile("rpms-prescriptions-", ".part");
+            final File feedbackFile = feedbackPart;
+            final File prescriptionFile = prescriptionPart;
+            Future<?> feedbackTask = executor.submit(() -> writePart(feedbackFile, "Feedback History:",
+                    writer -> db.forEachFeedbackForPatient(patientId, writer::println)));
+            Future<?> prescriptionTask = executor.submit(() -> writePart(prescriptionFile, "Prescription History:",
+                    writer -> db.forEachPrescriptionForPatient(patientId, writer::println)));
+
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 PrintWriter writer = new PrintWriter(new BufferedWriter(
+                         new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), 64 * 1024))) {
+                writer.println("Health Report for Patient " + patientId);
+                writer.println("Generated on: " + LocalDate.now());
+                writer.println(SEPARATOR);
+
+                VitalSign[] latest = new VitalSign[1];
+                VitalStatistics statistics = new VitalStatistics(windowStart(windowDays));
+                writer.println("\nVitals History:");
+                writer.println(SEPARATOR);
+                db.forEachVitalSign(patientId, vital -> {
+                    if (latest[0] == null) latest[0] = vital;
+                    statistics.add(vital);
+                    writer.println(vital);
+                });
+                writer.flush();
+
+                appendPart(feedbackTask, feedbackFile, channel);
+                appendPart(prescriptionTask, prescriptionFile, channel);
+
+                writeStatistics(writer, statistics);
+                writeTrendSummary(writer, trendRollups(patientId, db, windowDays));
+                writeRecommendations(writer, latest[0], statistics);
+                if (writer.checkError()) throw new IOException("Error writing report file " + filePath);
+            }
+
+            System.out.println("Report generated and saved: " + filePath);
+        } catch (IOException | SQLException e) {
+            metric.fail();
+            // Never leave a report that looks complete but is missing sections
+            new File(filePath).delete();
+            System.out.println("Error generating report: " + e.getMessage());
+            throw new RuntimeException("Failed to generate report: " + e.getMessage(), e);
+        } finally {
+            metric.stop(started);
+            executor.shutdownNow();
+            if (feedbackPart != null) feedbackPart.delete();
+            if (prescriptionPart != null) prescriptionPart.delete();
+        }
+    }
+
+    // Writes a complete report from data that has already been loaded, in the same layout as generateAndSaveReport
+    public void renderReport(String patientId, List<VitalSign> vitals, List<Feedback> feedbacks,
+                             List<Prescription> prescriptions, PrintWriter writer) {
+        writer.println("Health Report for Patient " + patientId);
+        writer.println("Generated on: " + LocalDate.now());
+        writer.println(SEPARATOR);
+        writer.println("\nVitals History:");
+        writer.println(SEPARATOR);
+        VitalStatistics statistics = new VitalStatistics();
+        for (VitalSign vital : vitals) {
+            statistics.add(vital);
+            writer.println(vital);
+        }
+        writer.println("\nFeedback History:");
+        writer.println(SEPARATOR);
+        for (Feedback feedback : feedbacks) writer.println(feedback);
+        writer.println("\nPrescription History:");
+        writer.println(SEPARATOR);
+        for (Prescription prescription : prescriptions) writer.println(prescription);
+        writeStatistics(writer, statistics);
+        List<VitalRollup> trend = Collections.emptyList();
+        if (!vitals.isEmpty()) {
+            String resolution = VitalRollup.resolutionForSpan(vitals.get(vitals.size() - 1).getTimestamp(),
+                    vitals.get(0).getTimestamp(), TREND_ROWS);
+            trend = VitalRollup.rollUp(vitals, resolution);
+        }
+        writeTrendSummary(writer, trend);
+        writeRecommendations(writer, vitals.isEmpty() ? null : vitals.get(0), statistics);
+    }
+
+    // Reads the trend summary from the rollups at the finest resolution that fits in TREND_ROWS rows
+    private List<VitalRollup> trendRollups(String patientId, DataBase db, int windowDays) {
+        LocalDate start = windowStart(windowDays);
+        LocalDateTime from = start != null ? start.atStartOfDay() : null;
+        List<VitalRollup> weekly = db.getVitalRollups(patientId, VitalRollup.WEEK, from);
+        if (weekly.isEmpty()) return weekly;
+        LocalDateTime first = from != null ? from : weekly.get(0).getBucketStart();
+        String resolution = VitalRollup.resolutionForSpan(first, LocalDateTime.now(), TREND_ROWS);
+        return VitalRollup.WEEK.equals(resolution) ? weekly : db.getVitalRollups(patientId, resolution, from);
+    }
+
+    private void writeTrendSummary(PrintWriter writer, List<VitalRollup> rollups) {
+        writer.println("\nVital Trend Summary:");
+        writer.println(SEPARATOR);
+        if (rollups.isEmpty()) {
+            writer.println("No trend data available.");
+            return;
+        }
+        writer.println("Resolution: " + VitalRollup.describe(rollups.get(0).getResolution()));
+        int from = Math.max(0, rollups.size() - TREND_ROWS);
+        for (VitalRollup rollup : rollups.subList(from, rollups.size())) writer.println(rollup);
+    }
+
+    private static LocalDate windowStart(int windowDays) {
+        return windowDays > 0 ? LocalDate.now().minusDays(windowDays - 1) : null;
+    }
+
+    private void writeStatistics(PrintWriter writer, VitalStatistics statistics) {
+        writer.println("\nVital Statistics:");
+        writer.println(SEPARATOR);
+        statistics.writeTo(writer);
+    }
+
+    // Writes one section to a part file; returns nothing, so it can be submitted as a Callable that throws
+    private Void writePart(File part, String title, SectionWriter body) throws IOException, SQLException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(part, StandardCharsets.UTF_8), 64 * 1024))) {
+            writer.println("\n" + title);
+            writer.println(SEPARATOR);
+            body.write(writer);
+            if (writer.checkError()) throw new IOException("Error writing report part " + part);
+        }
+        return null;
+    }
+
+    private interface SectionWriter {
+        void write(PrintWriter writer) throws SQLException;
+    }
+
+    private void appendPart(Future<?> task, File part, FileChannel target) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Report generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error writing report section: " + e.getCause().getMessage(), e.getCause());
+        }
+        try (FileChannel source = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+            long position = 0;
+            long size = source.size();
+            while (position < size) position += source.transferTo(position, size - position, target);
+        }
+    }
+
+    private void writeRecommendations(PrintWriter writer, VitalSign latestVital, VitalStatistics statistics) {
+        writer.println("\nDoctor Recommendations:");
+        writer.println(SEPARATOR);
+        if (latestVital == null) {
+            writer.println("No vital signs data available for recommendations.");
+            return;
+        }
+        if (VitalRange.HEART_RATE.isAboveNormal(latestVital.getHeartRate())) {
+            writer.println("- High heart rate detected. Recommend immediate rest and consultation.");
+        }
+        if (VitalRange.BLOOD_PRESSURE.isAboveNormal(latestVital.getBloodPressure())) {
+            writer.println("- High blood pressure detected. Recommend monitoring and possible medication adjustment.");
+        }
+        if (VitalRange.BODY_TEMPERATURE.isAboveNormal(latestVital.getBodyTemperature())) {
+            writer.println("- Elevated temperature detected. Recommend fever management and monitoring.");
+        }
+        if (VitalRange.OXYGEN_LEVEL.isBelowNormal(latestVital.getOxygenLevel())) {
+            writer.println("- Low oxygen level detected. Recommend oxygen therapy and immediate consultation.");
+        }
+        if (EmergencyAlert.isWithinThreshold(latestVital)) {
+            writer.println("- All vital signs within normal range. Continue regular monitoring.");
+        }
+        for (VitalStatistics.MetricSummary metric : statistics.getMetrics()) {
+            if (metric.getCount() >= 3 && metric.getTimeInRange() < 75) {
+                writer.println(String.format("- %s was outside the normal range in %.0f%% of readings. Recommend reviewing the treatment plan.",
+                        metric.getName(), 100 - metric.getTimeInRange()));
+            }
+        }
+    }
+}
+
+// Cohort Report Job
+// Generates reports for many patients at once (e.g. all patients of a doctor or all admitted patients).
+// Patients are processed in batches: each batch is loaded with three set-based queries on the job's own
+// read connection, so the job never shares the DataBase connection, and its reports are rendered in parallel on a work-stealing ForkJoinPool, into a directory or a single zip file.
+class CohortReportJob {
+    private static final int BATCH_SIZE = 200;
+
+    private final DataBase db;
+    private final ReportGenerator reportGenerator;
+    private final int parallelism;
+
+    /**
+     * @param db              The database to load the patients' data from.
+     * @param reportGenerator The generator that renders each report, or null for a default one.
+     * @param parallelism     The number of reports rendered at the same time.
+     */
+    public CohortReportJob(DataBase db, ReportGenerator reportGenerator, int parallelism) {
+        this.db = db;
+        this.reportGenerator = reportGenerator != null ? reportGenerator : new ReportGenerator();
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Summary of a finished run.
+     */
+    static class Result {
+        private final int reports;
+        private final int failures;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        Result(int reports, int failures, long bytes, long elapsedMillis) {
+            this.reports = reports;
+            this.failures = failures;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getReports() { return reports; }
+
+        public int getFailures() { return failures; }
+
+        public long getBytes() { return bytes; }
+
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public double getReportsPerSecond() { return elapsedMillis > 0 ? reports * 1000.0 / elapsedMillis : reports; }
+
+        @Override
+        public String toString() {
+            return String.format("%d reports (%d failed), %d KB in %.1f s (%.1f reports/s)",
+                    reports, failures, bytes / 1024, elapsedMillis / 1000.0, getReportsPerSecond());
+        }
+    }
+
+    /**
+     * Writes one report per patient into a directory, or into a zip file if the output name ends with ".zip"
+     * and is not an existing directory.
+     *
+     * @param patientIds The IDs of the patients to report on.
+     * @param output     The output directory or zip file.
+     * @param progress   Receives (completed, total) after every report, or null.
+     * @return A summary of the run.
+     * @throws IOException If the output cannot be created or the run is interrupted.
+     */
+    public Result run(List<String> patientIds, File output, BiConsumer<Integer, Integer> progress) throws IOException {
+        long start = System.nanoTime();
+        boolean zip = output.getName().toLowerCase().endsWith(".zip") && (output.isFile() || !output.exists());
+        File directory = zip ? output.getAbsoluteFile().getParentFile() : output;
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create output directory " + directory.getAbsolutePath());
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        int total = patientIds.size();
+        String date = LocalDate.now().toString();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Metrics.Timer metric = Metrics.timer("report.render");
+        try (Connection conn = db.openReadConnection();
+             ZipOutputStream zipOut = zip ? new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(output))) : null) {
+            for (int from = 0; from < total; from += BATCH_SIZE) {
+                List<String> batch = patientIds.subList(from, Math.min(total, from + BATCH_SIZE));
+                Map<String, List<VitalSign>> vitals = db.getVitalSignsForPatients(batch, conn);
+                Map<String, List<Feedback>> feedbacks = db.getFeedbacksForPatients(batch, conn);
+                Map<String, List<Prescription>> prescriptions = db.getPrescriptionsForPatients(batch, conn);
+
+                pool.submit(() -> batch.parallelStream().forEach(patientId -> {
+                    long started = metric.start();
+                    try {
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+                        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+                            reportGenerator.renderReport(patientId,
+                                    vitals.getOrDefault(patientId, Collections.emptyList()),
+                                    feedbacks.getOrDefault(patientId, Collections.emptyList()),
+                                    prescriptions.getOrDefault(patientId, Collections.emptyList()),
+                                    writer);
+                        }
+                        String name = "report_" + patientId + "_" + date + ".txt";
+                        if (zipOut != null) {
+                            synchronized (zipOut) {
+                                zipOut.putNextEntry(new ZipEntry(name));
+                                buffer.writeTo(zipOut);
+                                zipOut.closeEntry();
+                            }
+                        } else {
+                            try (FileOutputStream out = new FileOutputStream(new File(directory, name))) {
+                                buffer.writeTo(out);
+                            }
+                        }
+                        bytes.addAndGet(buffer.size());
+                    } catch (IOException e) {
+                        metric.fail();
+                        failures.incrementAndGet();
+                        System.out.println("Error writing report for patient " + patientId + ": " + e.getMessage());
+                    } finally {
+                        metric.stop(started);
+                    }
+                    int done = completed.incrementAndGet();
+                    if (progress != null) progress.accept(done, total);
+                })).get();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Cannot open a database connection for the cohort reports: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Cohort report generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cohort report generation failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
         }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Result result = new Result(completed.get() - failures.get(), failures.get(), bytes.get(), elapsedMillis);
+        System.out.println("Cohort report job finished: " + result);
+        return result;
+    }
+}
+
+// Vital Alert Dispatcher
+// Sends alerts for abnormal readings off the caller's thread. Readings are grouped per patient. Critical
+// readings are sent at once. Other abnormal readings that arrive within the cooldown after a patient's last
+// alert are held, and a flush is scheduled for when the cooldown ends, so a deteriorating telemetry stream
+// becomes one email per cooldown instead of one per reading. Every alert lists each reading it covers. Sent
+// readings are recorded in the vital_alerts table, so evaluate-alerts runs skip them. The dispatcher reads
+// recipients and records alerts on its own connection, so its transactions never mix with the shared one.
+class VitalAlertDispatcher implements AutoCloseable {
+    static final Duration COOLDOWN = Duration.ofMinutes(5);
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    // One row per abnormal reading that an alert was sent for
+    static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS vital_alerts (" +
+            "patient_id VARCHAR(50) NOT NULL, ts DATETIME NOT NULL, alerted_at DATETIME NOT NULL, " +
+            "PRIMARY KEY (patient_id, ts))";
+
+    // What happened to a patient's readings when they were dispatched
+    enum Outcome {
+        SENT,           // alerted now
+        DEFERRED,       // held until the cooldown ends
+        FAILED,         // sending failed; retried after RETRY_DELAY
+        NO_RECIPIENTS   // the patient has no doctor or email to alert
+    }
+
+    private final DataBase db;
+    private final Notifiable notifier;
+    private final ScheduledThreadPoolExecutor executor;
+    // Only touched on the executor thread
+    private final Map<String, LocalDateTime> lastAlert = new HashMap<>();
+    private final Map<String, List<VitalSign>> held = new HashMap<>();
+    private final Map<String, ScheduledFuture<?>> scheduledFlushes = new HashMap<>();
+    private boolean closing;
+    private Connection connection;
+
+    public VitalAlertDispatcher(DataBase db, Notifiable notifier) {
+        this.db = db;
+        this.notifier = notifier;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "vital-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
     /**
-     * Adds an appointment to the database.
+     * Queues alerts for the given abnormal readings and returns immediately.
      *
-     * @param appointment The appointment to add.
+     * @param abnormal The abnormal readings, of any number of patients.
+     * @return The outcome for each patient, completed once the readings have been sent or held.
      */
-    public void addAppointment(Appointment appointment) {
-        if (connection == null) return;
+    public CompletableFuture<Map<String, Outcome>> dispatch(List<VitalSign> abnormal) {
+        if (abnormal.isEmpty()) return CompletableFuture.completedFuture(Collections.emptyMap());
+        Map<String, List<VitalSign>> byPatient = new LinkedHashMap<>();
+        for (VitalSign vital : abnormal) byPatient.computeIfAbsent(vital.getPatientID(), k -> new ArrayList<>()).add(vital);
         try {
-            String sql = "INSERT INTO appointments (appointment_time, patient_id, doctor_id, status) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setTimestamp(1, Timestamp.valueOf(appointment.getAppointmentTime()));
-                stmt.setString(2, appointment.getPatient().getUserID());
-                stmt.setString(3, appointment.getDoctor().getUserID());
-                stmt.setString(4, appointment.getAppointmentStatus());
-                stmt.executeUpdate();
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    appointment.setAppointmentID(rs.getLong(1));
-                }
-            }
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding appointment: " + e.getMessage());
+            return CompletableFuture.supplyAsync(() -> {
+                Map<String, Outcome> outcomes = new LinkedHashMap<>();
+                byPatient.forEach((patientId, readings) -> outcomes.put(patientId, alertPatient(patientId, readings)));
+                return outcomes;
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            System.out.println("Alert dispatcher is closed; " + abnormal.size() + " abnormal reading(s) stay unalerted for evaluate-alerts.");
+            Map<String, Outcome> outcomes = new LinkedHashMap<>();
+            for (String patientId : byPatient.keySet()) outcomes.put(patientId, Outcome.FAILED);
+            return CompletableFuture.completedFuture(outcomes);
         }
     }
 
-    /**
-     * Updates the status of an appointment in the database.
-     *
-     * @param appointmentId The ID of the appointment to update.
-     * @param status        The new status (e.g., Approved, Canceled).
-     */
-    public void updateAppointmentStatus(long appointmentId, String status) {
-        if (connection == null) return;
+    private Outcome alertPatient(String patientId, List<VitalSign> readings) {
+        held.computeIfAbsent(patientId, k -> new ArrayList<>()).addAll(readings);
+        boolean critical = false;
+        for (VitalSign vital : readings) critical |= EmergencyAlert.SEVERITY_CRITICAL.equals(vital.getSeverity());
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime last = lastAlert.get(patientId);
+        if (!critical && last != null && last.plus(COOLDOWN).isAfter(now)) {
+            scheduleFlush(patientId, Duration.between(now, last.plus(COOLDOWN)));
+            return Outcome.DEFERRED;
+        }
+        return flush(patientId);
+    }
+
+    private void scheduleFlush(String patientId, Duration delay) {
+        if (scheduledFlushes.containsKey(patientId)) return;
         try {
-            String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, status);
-                stmt.setLong(2, appointmentId);
-                stmt.executeUpdate();
-            }
-            connection.commit();
+            scheduledFlushes.put(patientId, executor.schedule(() -> {
+                scheduledFlushes.remove(patientId);
+                flush(patientId);
+            }, delay.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException e) {
+            // Closing: close() flushes whatever is still held
+        }
+    }
+
+    // Sends every held reading of a patient in one alert
+    private Outcome flush(String patientId) {
+        ScheduledFuture<?> scheduled = scheduledFlushes.remove(patientId);
+        if (scheduled != null) scheduled.cancel(false);
+        List<VitalSign> readings = held.get(patientId);
+        if (readings == null || readings.isEmpty()) return Outcome.SENT;
+        try {
+            return flush(patientId, readings, connection());
         } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error updating appointment status: " + e.getMessage());
+            System.out.println("Error opening the alert connection for patient " + patientId + ": " + e.getMessage() +
+                    (closing ? "; the readings stay unalerted for evaluate-alerts." : "; retrying in " + RETRY_DELAY.toMinutes() + " minute(s)."));
+            if (!closing) scheduleFlush(patientId, RETRY_DELAY);
+            return Outcome.FAILED;
+        } finally {
+            endTransaction();
         }
     }
 
-    /**
-     * Retrieves pending appointments for a doctor from the database.
-     *
-     * @param doctorId The ID of the doctor.
-     * @return A list of pending appointments for the doctor.
-     */
-    public List<Appointment> getPendingAppointmentsForDoctor(String doctorId) {
-        List<Appointment> pending = new ArrayList<>();
-        if (connection == null) return pending;
+    private Outcome flush(String patientId, List<VitalSign> readings, Connection conn) {
+        User user = db.getUser(patientId, conn);
+        List<String> recipients = user instanceof Patient ? db.getDoctorEmailsForPatient(patientId, conn) : new ArrayList<>();
+        if (recipients.isEmpty() && user instanceof Patient && user.getEmail() != null) recipients.add(user.getEmail());
+        if (recipients.isEmpty()) {
+            System.out.println("No one to alert about " + readings.size() + " abnormal reading(s) of patient " + patientId + ".");
+            held.remove(patientId);
+            return Outcome.NO_RECIPIENTS;
+        }
+
+        readings.sort(Comparator.comparing(VitalSign::getTimestamp));
+        VitalAlert alert = new VitalAlert((Patient) user, readings.get(readings.size() - 1), new AlertService(notifier, recipients));
         try {
-            String sql = "SELECT * FROM appointments WHERE doctor_id = ? AND status = 'Pending'";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, doctorId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        Appointment app = new Appointment(
-                                rs.getLong("appointment_id"),
-                                rs.getTimestamp("appointment_time").toLocalDateTime(),
-                                (Patient) getUser(rs.getString("patient_id")),
-                                (Doctor) getUser(rs.getString("doctor_id"))
-                        );
-                        app.setAppointmentStatus(rs.getString("status"));
-                        pending.add(app);
-                    }
-                }
+            alert.triggerAlert(message(patientId, readings));
+        } catch (NotificationException e) {
+            if (closing) {
+                System.out.println("Error sending vital alert for patient " + patientId + ": " + e.getMessage() +
+                        "; the readings stay unalerted for evaluate-alerts.");
+            } else {
+                System.out.println("Error sending vital alert for patient " + patientId + ": " + e.getMessage() +
+                        "; retrying in " + RETRY_DELAY.toMinutes() + " minute(s).");
+                scheduleFlush(patientId, RETRY_DELAY);
             }
+            return Outcome.FAILED;
+        }
+        lastAlert.put(patientId, LocalDateTime.now());
+        held.remove(patientId);
+        db.markVitalsAlerted(readings, conn);
+        return Outcome.SENT;
+    }
+
+    // The dispatcher's own connection, reopened after it was lost
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) connection = db.openWriteConnection();
+        return connection;
+    }
+
+    // Ends the read transaction of a flush, so the next one sees rows committed since
+    private void endTransaction() {
+        if (connection == null) return;
+        try {
+            connection.rollback();
         } catch (SQLException e) {
-            System.out.println("Error retrieving pending appointments: " + e.getMessage());
+            closeConnection();
         }
-        return pending;
     }
 
-    /**
-     * Adds a vital sign record to the database.
-     *
-     * @param vital The vital sign to add.
-     */
-    public void addVitalSign(VitalSign vital) {
+    private void closeConnection() {
         if (connection == null) return;
         try {
-            String sql = "INSERT INTO vitals (patient_id, checkup_date, heart_rate, blood_pressure, body_temperature, oxygen_level) VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, vital.getPatientID());
-                stmt.setDate(2, java.sql.Date.valueOf(vital.getCheckupDate()));
-                stmt.setDouble(3, vital.getHeartRate());
-                stmt.setDouble(4, vital.getBloodPressure());
-                stmt.setDouble(5, vital.getBodyTemperature());
-                stmt.setDouble(6, vital.getOxygenLevel());
-                stmt.executeUpdate();
-            }
-            connection.commit();
+            connection.close();
         } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding vital sign: " + e.getMessage());
+            System.out.println("Error closing the alert connection: " + e.getMessage());
         }
+        connection = null;
     }
 
-    /**
-     * Retrieves vital signs for a patient from the database.
-     *
-     * @param patientId The ID of the patient.
-     * @return A list of vital signs for the patient.
-     */
-    public List<VitalSign> getVitalSigns(String patientId) {
-        List<VitalSign> vitals = new ArrayList<>();
-        if (connection == null) return vitals;
+    private static String message(String patientId, List<VitalSign> readings) {
+        boolean critical = false;
+        for (VitalSign vital : readings) critical |= EmergencyAlert.SEVERITY_CRITICAL.equals(vital.getSeverity());
+        StringBuilder message = new StringBuilder(critical ? "CRITICAL alert! " : "Alert! ");
+        message.append("Patient ").append(patientId).append(" has ").append(readings.size()).append(" abnormal reading(s):");
+        for (VitalSign vital : readings) {
+            message.append("\n").append(vital.getTimestamp().format(ChatSearchIndex.TIMESTAMP_FORMAT))
+                    .append(" [").append(vital.getSeverity()).append("] HR=").append(vital.getHeartRate())
+                    .append(", BP=").append(vital.getBloodPressure()).append(", Temp=").append(vital.getBodyTemperature())
+                    .append(", O2=").append(vital.getOxygenLevel());
+        }
+        return message.toString();
+    }
+
+    // Sends every held reading without waiting for cooldowns, then stops; waits briefly for the sends
+    @Override
+    public void close() {
         try {
-            String sql = "SELECT * FROM vitals WHERE patient_id = ? ORDER BY checkup_date DESC";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, patientId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        VitalSign vital = new VitalSign(
-                                rs.getString("patient_id"),
-                                rs.getDouble("heart_rate"),
-                                rs.getDouble("blood_pressure"),
-                                rs.getDouble("body_temperature"),
-                                rs.getDouble("oxygen_level"),
-                                rs.getDate("checkup_date").toLocalDate()
-                        );
-                        vitals.add(vital);
-                    }
-                }
+            executor.execute(() -> {
+                closing = true;
+                for (String patientId : new ArrayList<>(held.keySet())) flush(patientId);
+                closeConnection();
+            });
+        } catch (RejectedExecutionException e) {
+            return; // Already closed
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.out.println("Vital alerts still pending at shutdown stay unalerted for evaluate-alerts.");
+                executor.shutdownNow();
             }
-        } catch (SQLException e) {
-            System.out.println("Error retrieving vital signs: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return vitals;
     }
+}
 
-    /**
-     * Adds feedback to the database.
-     *
-     * @param feedback The feedback to add.
-     */
-    public void addFeedback(Feedback feedback) {
-        if (connection == null) return;
+// Vital Ingestion Server
+// Headless TCP endpoint for bedside devices. Devices send one reading per line, in the CSV upload's column
+// order, with no reply:  patientId,heart_rate,oxygen_level,blood_pressure,temperature[,timestamp]
+// The server listens on the loopback interface unless "rpms.ingest.bind" names another address, and refuses to
+// listen anywhere else unless "rpms.ingest.token" is set. With a token set, a device's first line must be
+// "AUTH <token>"; a connection that sends anything else is closed before any reading is accepted.
+// A single selector thread serves every connection and parses lines into a bounded queue. A writer thread
+// drains the queue in batches, checks each reading's patient and stores the batch through DataBase.addVitalSigns,
+// both on its own connection, and hands the abnormal readings to the alert dispatcher. When the queue is full the selector stops reading from sockets until
+// it has half drained, so TCP flow control slows the devices down instead of the server buffering without bound.
+// A batch the database fails to store is retried with exponential backoff, and the selector stops reading
+// from sockets until it is stored, so no accepted reading is dropped while the server is running.
+class VitalIngestionServer implements AutoCloseable {
+    static final int DEFAULT_PORT = 9400;
+    private static final int QUEUE_CAPACITY = 50_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int BUFFER_SIZE = 4 * 1024;
+    private static final long INITIAL_RETRY_MILLIS = 200;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    private final String bindHost;
+    private final int requestedPort;
+    private final byte[] deviceToken;
+    private final Consumer<List<VitalSign>> sink;
+    private final Consumer<List<VitalSign>> alerts;
+    private final Predicate<String> knownPatient;
+    private final ArrayBlockingQueue<VitalSign> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong abnormal = new AtomicLong();
+    private final AtomicLong pauses = new AtomicLong();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private Thread writerThread;
+    private final AtomicLong retries = new AtomicLong();
+    private volatile boolean running;
+    private volatile boolean sinkFailing; // Set by the writer while a batch is being retried
+    private boolean paused; // Only touched on the selector thread
+
+    // Serves devices for the given database, with the bind address and device token from the system properties;
+    // readings for unknown patients are rejected
+    public VitalIngestionServer(int port, DataBase db, VitalAlertDispatcher dispatcher) {
+        this(port, new BatchWriter(db), dispatcher);
+    }
+
+    private VitalIngestionServer(int port, BatchWriter writer, VitalAlertDispatcher dispatcher) {
+        this(System.getProperty("rpms.ingest.bind"), port, System.getProperty("rpms.ingest.token"),
+                writer, dispatcher::dispatch, writer::isPatient);
+    }
+
+    // A null bind host means loopback; a null or empty token means devices are not asked to authenticate
+    VitalIngestionServer(String bindHost, int port, String deviceToken, Consumer<List<VitalSign>> sink,
+                         Consumer<List<VitalSign>> alerts, Predicate<String> knownPatient) {
+        this.bindHost = bindHost == null || bindHost.trim().isEmpty() ? null : bindHost.trim();
+        this.requestedPort = port;
+        this.deviceToken = deviceToken == null || deviceToken.isEmpty() ? null : deviceToken.getBytes(StandardCharsets.US_ASCII);
+        this.sink = sink;
+        this.alerts = alerts;
+        this.knownPatient = knownPatient;
+    }
+
+    // Checks patient IDs and writes batches on one dedicated connection, reopening it after a failure. Both are
+    // called only from the writer thread, so the shared DataBase connection is never used for ingestion.
+    private static final class BatchWriter implements Consumer<List<VitalSign>> {
+        private final DataBase db;
+        private Connection conn;
+
+        BatchWriter(DataBase db) {
+            this.db = db;
+        }
+
+        @Override
+        public void accept(List<VitalSign> batch) {
+            Connection target;
+            try {
+                target = db.getVitalStore() == null ? connection() : null;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot open ingestion connection: " + e.getMessage(), e);
+            }
+            if (!db.addVitalSigns(batch, target)) throw new IllegalStateException("Batch of " + batch.size() + " vital signs was not stored");
+        }
+
+        boolean isPatient(String patientId) {
+            try {
+                return db.isPatient(patientId, connection());
+            } catch (SQLException e) {
+                System.out.println("Cannot open ingestion connection: " + e.getMessage());
+                return false;
+            }
+        }
+
+        private Connection connection() throws SQLException {
+            if (conn == null || conn.isClosed()) conn = db.openWriteConnection();
+            return conn;
+        }
+    }
+
+    public void start() throws IOException {
+        InetAddress address = bindHost == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindHost);
+        if (!address.isLoopbackAddress() && deviceToken == null) {
+            throw new IOException("Refusing to listen on " + address.getHostAddress() + " without a device token (set rpms.ingest.token)");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(address, requestedPort), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "vital-ingest-selector");
+        writerThread = new Thread(this::writeLoop, "vital-ingest-writer");
+        selectorThread.start();
+        writerThread.start();
+        System.out.println("Vital ingestion server listening on " + address.getHostAddress() + ":" + getPort() +
+                (deviceToken != null ? " (device token required)" : ""));
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public long getAccepted() { return accepted.get(); }
+
+    public long getRejected() { return rejected.get(); }
+
+    public long getWritten() { return written.get(); }
+
+    public long getAbnormal() { return abnormal.get(); }
+
+    public long getPauses() { return pauses.get(); }
+
+    public long getRetries() { return retries.get(); }
+
+    public int getQueued() { return queue.size(); }
+
+    private void selectLoop() {
         try {
-            String sql = "INSERT INTO feedback (patient_id, doctor_id, date, comments) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setString(1, feedback.getPatientID());
-                stmt.setString(2, feedback.getDoctorID());
-                stmt.setDate(3, java.sql.Date.valueOf(feedback.getDate()));
-                stmt.setString(4, feedback.getComments());
-                stmt.executeUpdate();
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    feedback.setFeedbackID(rs.getLong(1));
+            while (running) {
+                selector.select(100);
+                if (sinkFailing) pause();
+                else if (paused && queue.remainingCapacity() >= QUEUE_CAPACITY / 2) resume();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else if (key.isReadable() && !paused) read(key);
                 }
             }
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding feedback: " + e.getMessage());
+        } catch (IOException e) {
+            if (running) System.out.println("Vital ingestion server stopped: " + e.getMessage());
+        } finally {
+            try {
+                for (SelectionKey key : selector.keys()) key.channel().close();
+                selector.close();
+            } catch (IOException e) {
+                System.out.println("Error closing device connections: " + e.getMessage());
+            }
         }
     }
 
-    /**
-     * Retrieves feedback for a patient from the database.
-     *
-     * @param patientId The ID of the patient.
-     * @return A list of feedback for the patient.
-     */
-    public List<Feedback> getFeedbacksForPatient(String patientId) {
-        List<Feedback> feedbacks = new ArrayList<>();
-        if (connection == null) return feedbacks;
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, paused ? 0 : SelectionKey.OP_READ, new DeviceConnection(deviceToken == null));
+        }
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        DeviceConnection device = (DeviceConnection) key.attachment();
+        ByteBuffer buffer = device.buffer;
         try {
-            String sql = "SELECT * FROM feedback WHERE patient_id = ? ORDER BY date DESC";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, patientId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        Feedback feedback = new Feedback(
-                                rs.getLong("feedback_id"),
-                                rs.getString("patient_id"),
-                                rs.getString("doctor_id"),
-                                rs.getDate("date").toLocalDate(),
-                                rs.getString("comments")
-                        );
-                        feedbacks.add(feedback);
-                    }
+            int count = channel.read(buffer);
+            if (count < 0) {
+                disconnect(key);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(key);
+            return;
+        }
+        boolean queued = drainLines(device);
+        if (device.refused) disconnect(key);
+        else if (!queued) pause();
+        else if (!buffer.hasRemaining()) {
+            // A line longer than the buffer cannot be a valid reading
+            rejected.incrementAndGet();
+            buffer.clear();
+        }
+    }
+
+    private static void disconnect(SelectionKey key) {
+        key.cancel();
+        try { key.channel().close(); } catch (IOException e) { /* already closing */ }
+    }
+
+    // Parses complete lines from the connection's buffer into the queue; returns false if the queue filled up,
+    // leaving the unqueued lines in the buffer. An unauthenticated connection whose first line is not the
+    // device token is marked refused and nothing more is read from it.
+    private boolean drainLines(DeviceConnection device) {
+        ByteBuffer buffer = device.buffer;
+        buffer.flip();
+        int lineStart = buffer.position();
+        boolean queued = true;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) != '\n') continue;
+            String line = new String(buffer.array(), lineStart, i - lineStart, StandardCharsets.US_ASCII).trim();
+            if (!device.authenticated) {
+                if (!isDeviceToken(line)) {
+                    device.refused = true;
+                    rejected.incrementAndGet();
+                    break;
+                }
+                device.authenticated = true;
+            } else if (!line.isEmpty()) {
+                VitalSign vital = parse(line);
+                if (vital == null) {
+                    rejected.incrementAndGet();
+                } else if (!queue.offer(vital)) {
+                    queued = false;
+                    break;
+                } else {
+                    accepted.incrementAndGet();
                 }
             }
-        } catch (SQLException e) {
-            System.out.println("Error retrieving feedbacks: " + e.getMessage());
+            lineStart = i + 1;
         }
-        return feedbacks;
+        buffer.position(lineStart);
+        buffer.compact();
+        return queued;
     }
 
-    /**
-     * Adds a prescription to the database.
-     *
-     * @param prescription The prescription to add.
-     */
-    public void addPrescription(Prescription prescription) {
-        if (connection == null) return;
+    // Compares in constant time so the token cannot be guessed byte by byte from response timing
+    private boolean isDeviceToken(String line) {
+        if (!line.startsWith("AUTH ")) return false;
+        return MessageDigest.isEqual(deviceToken, line.substring(5).trim().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void pause() {
+        if (paused) return;
+        paused = true;
+        pauses.incrementAndGet();
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.channel() instanceof SocketChannel) key.interestOps(0);
+        }
+    }
+
+    private void resume() {
+        paused = false;
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid() || !(key.channel() instanceof SocketChannel)) continue;
+            // Lines left over from the pause are queued before reading more from the socket
+            DeviceConnection device = (DeviceConnection) key.attachment();
+            boolean queued = drainLines(device);
+            if (device.refused) {
+                disconnect(key);
+                continue;
+            }
+            if (!queued) {
+                pause();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    // Parses and validates one device line; returns null if it is malformed or implausible
+    static VitalSign parse(String line) {
+        String[] fields = line.split(",");
+        if (fields.length != 5 && fields.length != 6) return null;
         try {
-            String sql = "INSERT INTO prescriptions (patient_id, medication, dosage, schedule) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setString(1, prescription.getPatientID());
-                stmt.setString(2, prescription.getMedication());
-                stmt.setString(3, prescription.getDosage());
-                stmt.setString(4, prescription.getSchedule());
-                stmt.executeUpdate();
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    prescription.setPrescriptionID(rs.getLong(1));
+            String patientId = fields[0].trim();
+            double heartRate = Double.parseDouble(fields[1].trim());
+            double oxygenLevel = Double.parseDouble(fields[2].trim());
+            double bloodPressure = Double.parseDouble(fields[3].trim());
+            double temperature = Double.parseDouble(fields[4].trim());
+            LocalDateTime timestamp = fields.length == 6
+                    ? LocalDateTime.parse(fields[5].trim(), ChatSearchIndex.TIMESTAMP_FORMAT)
+                    : LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            VitalSign vital = new VitalSign(patientId, heartRate, bloodPressure, temperature, oxygenLevel, timestamp);
+            return !patientId.isEmpty() && isPlausible(vital) ? vital : null;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Rejects sensor faults such as zero or out-of-range values; abnormal but possible readings are kept
+    static boolean isPlausible(VitalSign vital) {
+        return vital.getHeartRate() > 0 && vital.getHeartRate() <= 350 &&
+                vital.getBloodPressure() > 0 && vital.getBloodPressure() <= 350 &&
+                vital.getBodyTemperature() >= 20 && vital.getBodyTemperature() <= 46 &&
+                vital.getOxygenLevel() > 0 && vital.getOxygenLevel() <= 100;
+    }
+
+    private void writeLoop() {
+        List<VitalSign> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                VitalSign first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+            } catch (InterruptedException e) {
+                if (!running) continue;
+                Thread.currentThread().interrupt();
+                return;
+            }
+            List<VitalSign> valid = new ArrayList<>(batch.size());
+            for (VitalSign vital : batch) {
+                if (knownPatient.test(vital.getPatientID())) valid.add(vital);
+                else rejected.incrementAndGet();
+            }
+            batch.clear();
+            if (valid.isEmpty() || !store(valid)) continue;
+            List<VitalSign> flagged = new ArrayList<>();
+            for (VitalSign vital : valid) {
+                if (!EmergencyAlert.isWithinThreshold(vital)) flagged.add(vital);
+            }
+            if (!flagged.isEmpty()) {
+                abnormal.addAndGet(flagged.size());
+                alerts.accept(flagged);
+            }
+        }
+    }
+
+    // Hands a batch to the sink, retrying with exponential backoff while it fails. Reads are paused for the
+    // whole time, so the queue does not grow behind the failing batch. Returns false only if the batch is
+    // dropped because the server is stopping.
+    private boolean store(List<VitalSign> batch) {
+        long delay = INITIAL_RETRY_MILLIS;
+        while (true) {
+            try {
+                sink.accept(batch);
+                written.addAndGet(batch.size());
+                if (sinkFailing) {
+                    sinkFailing = false;
+                    selector.wakeup();
+                    System.out.println("Ingested vitals are being stored again.");
                 }
+                return true;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    System.out.println("Dropping " + batch.size() + " ingested vitals on shutdown: " + e.getMessage());
+                    return false;
+                }
+                if (!sinkFailing) {
+                    sinkFailing = true;
+                    selector.wakeup();
+                }
+                retries.incrementAndGet();
+                System.out.println("Error writing ingested vitals, retrying in " + delay + " ms: " + e.getMessage());
             }
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding prescription: " + e.getMessage());
+            // Waits in short steps so that close() gets the batch one last attempt without a long delay
+            long retryAt = System.currentTimeMillis() + delay;
+            try {
+                while (running && System.currentTimeMillis() < retryAt) Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            delay = Math.min(delay * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (selector != null) selector.wakeup();
+            if (selectorThread != null) selectorThread.join(1000);
+            if (writerThread != null) writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Vital ingestion server stopped: " + accepted.get() + " accepted, " +
+                written.get() + " written, " + rejected.get() + " rejected.");
+    }
+
+    // Read buffer and authentication state of one device connection; only touched on the selector thread
+    private static final class DeviceConnection {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        boolean authenticated;
+        boolean refused;
+
+        DeviceConnection(boolean authenticated) {
+            this.authenticated = authenticated;
         }
     }
+}
+
+
+// Population Generator
+// Deterministic synthetic cohorts for scale and capacity testing. Every patient has a vitals model with its own
+// seeded random stream: a personal baseline, slow drift, a day/night cycle and occasional deterioration
+// episodes, which are frequent for the at-risk minority. Readings, appointment bookings and chat messages
+// are produced as one time-ordered event stream that can be written to a file and replayed, written as
+// per-patient upload CSVs, or stored through DataBase as seed data. The same seed always gives the same cohort.
+class PopulationGenerator {
+    private static final double ADMITTED_SHARE = 0.3;
+    private static final double AT_RISK_SHARE = 0.05;
+    private static final String[] FIRST_NAMES = {"Ayesha", "Bilal", "Fatima", "Hamza", "Zainab", "Usman", "Maryam", "Ali",
+            "Sara", "Omar", "Hina", "Imran", "Noor", "Tariq", "Amna", "Kamran", "Sana", "Farhan", "Iqra", "Danish"};
+    private static final String[] LAST_NAMES = {"Khan", "Ahmed", "Shah", "Malik", "Hussain", "Qureshi", "Butt", "Raza",
+            "Iqbal", "Chaudhry", "Siddiqui", "Mirza", "Sheikh", "Javed", "Aslam"};
+    private static final String[] SPECIALIZATIONS = {"Cardiology", "General Medicine", "Pulmonology", "Endocrinology", "Geriatrics"};
+    private static final String[] MESSAGES = {"How are you feeling today?", "My readings look higher than usual.",
+            "Please keep taking your medication as prescribed.", "Can we move my appointment?",
+            "Your latest vitals look stable.", "I have a mild headache since morning.", "Please upload your readings tonight."};
+
+    private final int patientCount;
+    private final int doctorCount;
+    private final long intervalMillis;
+    private final double appointmentsPerDay;
+    private final double messagesPerDay;
+    private final long seed;
+    private List<Doctor> doctors;
+    private List<Patient> patients;
+    private LocalDate patientsFrom;
 
     /**
-     * Retrieves prescriptions for a patient from the database.
-     *
-     * @param patientId The ID of the patient.
-     * @return A list of prescriptions for the patient.
+     * @param patients          The number of patients.
+     * @param doctors           The number of doctors; each patient is assigned to one.
+     * @param readingsPerMinute How often each patient's device reports, e.g. 0.2 for every five minutes.
+     * @param appointmentsPerDay Appointment bookings per patient per day.
+     * @param messagesPerDay    Chat messages per patient per day, alternating between patient and doctor.
+     * @param seed              The seed for every random choice.
      */
-    public List<Prescription> getPrescriptionsForPatient(String patientId) {
-        List<Prescription> prescriptions = new ArrayList<>();
-        if (connection == null) return prescriptions;
-        try {
-            String sql = "SELECT * FROM prescriptions WHERE patient_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, patientId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        Prescription prescription = new Prescription(
-                                rs.getLong("prescription_id"),
-                                rs.getString("patient_id"),
-                                rs.getString("medication"),
-                                rs.getString("dosage"),
-                                rs.getString("schedule")
-                        );
-                        prescriptions.add(prescription);
-                    }
-                }
+    public PopulationGenerator(int patients, int doctors, double readingsPerMinute, double appointmentsPerDay,
+                               double messagesPerDay, long seed) {
+        if (patients < 1 || doctors < 1 || readingsPerMinute <= 0) {
+            throw new IllegalArgumentException("Patients, doctors and readings per minute must be positive.");
+        }
+        this.patientCount = patients;
+        this.doctorCount = doctors;
+        this.intervalMillis = Math.max(1000, Math.round(60_000 / readingsPerMinute));
+        this.appointmentsPerDay = appointmentsPerDay;
+        this.messagesPerDay = messagesPerDay;
+        this.seed = seed;
+    }
+
+    public synchronized List<Doctor> getDoctors() {
+        if (doctors == null) {
+            SplittableRandom random = new SplittableRandom(seed);
+            doctors = new ArrayList<>(doctorCount);
+            for (int d = 0; d < doctorCount; d++) {
+                String id = String.format("SD%04d", d + 1);
+                String name = "Dr. " + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                doctors.add(new Doctor(id, name, String.format("0300-%07d", d), id.toLowerCase() + "@rpms.example", "password",
+                        random.nextBoolean() ? "Female" : "Male", SPECIALIZATIONS[d % SPECIALIZATIONS.length],
+                        LocalDate.of(2005, 1, 1).plusDays(random.nextInt(6000))));
             }
-        } catch (SQLException e) {
-            System.out.println("Error retrieving prescriptions: " + e.getMessage());
         }
-        return prescriptions;
+        return doctors;
     }
 
     /**
-     * Adds a chat message to the database.
-     *
-     * @param senderId   The ID of the sender.
-     * @param receiverId The ID of the receiver.
-     * @param message    The message content.
+     * The patient cohort for a run starting at from. Admitted patients were admitted in the 30 days before
+     * from, so the cohort only depends on the seed and the start date, never on when it was generated.
      */
-    public void addMessage(String senderId, String receiverId, String message) {
-        if (connection == null) return;
-        try {
-            String sql = "INSERT INTO messages (sender_id, receiver_id, message) VALUES (?, ?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, senderId);
-                stmt.setString(2, receiverId);
-                stmt.setString(3, message);
-                stmt.executeUpdate();
+    public synchronized List<Patient> getPatients(LocalDateTime from) {
+        LocalDate startDate = from.toLocalDate();
+        if (patients == null || !startDate.equals(patientsFrom)) {
+            SplittableRandom random = new SplittableRandom(seed + 1);
+            patients = new ArrayList<>(patientCount);
+            for (int p = 0; p < patientCount; p++) {
+                String id = patientId(p);
+                String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                Patient patient = new Patient(id, name, String.format("0321-%07d", p), id.toLowerCase() + "@rpms.example", "password",
+                        random.nextBoolean() ? "Female" : "Male", LocalDate.of(1935, 1, 1).plusDays(random.nextInt(25_000)));
+                if (random.nextDouble() < ADMITTED_SHARE) patient.setAdmissionDate(startDate.minusDays(random.nextInt(30)));
+                patients.add(patient);
             }
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding message: " + e.getMessage());
+            patientsFrom = startDate;
         }
+        return patients;
+    }
+
+    static String patientId(int index) {
+        return String.format("SP%06d", index + 1);
+    }
+
+    // The doctor a patient is assigned to
+    public Doctor getDoctor(int patientIndex) {
+        return getDoctors().get(patientIndex % doctorCount);
+    }
+
+    public boolean isAtRisk(int patientIndex) {
+        return new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (patientIndex + 1))).nextDouble() < AT_RISK_SHARE;
     }
 
     /**
-     * Retrieves messages between two users from the database.
-     *
-     * @param user1 The ID of the first user.
-     * @param user2 The ID of the second user.
-     * @return A list of messages between the two users.
+     * Produces every event between from and from + span in time order. Each patient reports once per interval,
+     * at a fixed offset within it, so readings are spread evenly instead of arriving in bursts.
      */
-    public List<String> getMessagesBetween(String user1, String user2) {
-        List<String> messages = new ArrayList<>();
-        if (connection == null) return messages;
-        try {
-            String sql = "SELECT * FROM messages WHERE (sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?) ORDER BY timestamp";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, user1);
-                stmt.setString(2, user2);
-                stmt.setString(3, user2);
-                stmt.setString(4, user1);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        String sender = rs.getString("sender_id");
-                        String message = rs.getString("message");
-                        messages.add(sender + ": " + message);
-                    }
+    public void generate(LocalDateTime from, Duration span, Consumer<Event> sink) {
+        PatientModel[] models = new PatientModel[patientCount];
+        for (int p = 0; p < patientCount; p++) models[p] = new PatientModel(p);
+        SplittableRandom random = new SplittableRandom(seed + 2);
+        double appointmentChance = appointmentsPerDay * intervalMillis / 86_400_000.0;
+        double messageChance = messagesPerDay * intervalMillis / 86_400_000.0;
+        long ticks = span.toMillis() / intervalMillis;
+        for (long tick = 0; tick < ticks; tick++) {
+            for (int p = 0; p < patientCount; p++) {
+                LocalDateTime time = from.plus(tick * intervalMillis + p * intervalMillis / patientCount, ChronoUnit.MILLIS)
+                        .truncatedTo(ChronoUnit.SECONDS);
+                sink.accept(Event.vital(models[p].next(time)));
+                if (random.nextDouble() < appointmentChance) {
+                    LocalDateTime slot = time.toLocalDate().plusDays(1 + random.nextInt(14)).atTime(9 + random.nextInt(8), 0);
+                    sink.accept(Event.appointment(time, patientId(p), getDoctor(p).getUserID(), slot));
+                }
+                if (random.nextDouble() < messageChance) {
+                    boolean fromPatient = random.nextBoolean();
+                    String patient = patientId(p);
+                    String doctor = getDoctor(p).getUserID();
+                    sink.accept(Event.message(time, fromPatient ? patient : doctor, fromPatient ? doctor : patient,
+                            MESSAGES[random.nextInt(MESSAGES.length)]));
                 }
             }
-        } catch (SQLException e) {
-            System.out.println("Error retrieving messages: " + e.getMessage());
         }
-        return messages;
     }
 
-    /**
-     * Adds a video consultation to the database.
-     *
-     * @param videoCall The video call to add.
-     */
-    public void addVideoConsultation(VideoCall videoCall) {
-        if (connection == null) return;
-        try {
-            String sql = "INSERT INTO video_consultations (doctor_id, patient_id, scheduled_time, meeting_link) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setString(1, videoCall.getDoctorID());
-                stmt.setString(2, videoCall.getPatientID());
-                stmt.setTimestamp(3, Timestamp.valueOf(videoCall.getScheduledTime()));
-                stmt.setString(4, videoCall.getMeetingLink());
-                stmt.executeUpdate();
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    videoCall.setCallId(rs.getLong(1));
+    // Writes the event stream, one event per line; returns the number of events
+    public long writeEventStream(File file, LocalDateTime from, Duration span) throws IOException {
+        long[] count = new long[1];
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            try {
+                generate(from, span, event -> {
+                    try {
+                        writer.write(event.toLine());
+                        writer.newLine();
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return count[0];
+    }
+
+    // Writes one upload CSV per patient, in the format FileHandling.parseCSV reads; returns the number of readings
+    public long writeVitalsCsv(File directory, LocalDateTime from, Duration span) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Cannot create directory " + directory);
+        long ticks = span.toMillis() / intervalMillis;
+        for (int p = 0; p < patientCount; p++) {
+            PatientModel model = new PatientModel(p);
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(directory, patientId(p) + ".csv"), StandardCharsets.UTF_8))) {
+                writer.write("heart_rate,oxygen_level,blood_pressure,temperature,timestamp");
+                writer.newLine();
+                for (long tick = 0; tick < ticks; tick++) {
+                    LocalDateTime time = from.plus(tick * intervalMillis + p * intervalMillis / patientCount, ChronoUnit.MILLIS)
+                            .truncatedTo(ChronoUnit.SECONDS);
+                    VitalSign vital = model.next(time);
+                    writer.write(vital.getHeartRate() + "," + vital.getOxygenLevel() + "," + vital.getBloodPressure() + "," +
+                            vital.getBodyTemperature() + "," + time.format(ChatSearchIndex.TIMESTAMP_FORMAT));
+                    writer.newLine();
                 }
             }
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error adding video consultation: " + e.getMessage());
+        }
+        return ticks * patientCount;
+    }
+
+    // Writes the roster for a run starting at from: every user with their role, assigned doctor and cohort flags
+    public void writeRoster(File file, LocalDateTime from) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8)))) {
+            writer.println("user_id,role,name,email,doctor_id,admitted,at_risk");
+            for (Doctor doctor : getDoctors()) {
+                writer.println(doctor.getUserID() + ",DOCTOR," + doctor.getName() + "," + doctor.getEmail() + ",,,");
+            }
+            List<Patient> all = getPatients(from);
+            for (int p = 0; p < all.size(); p++) {
+                Patient patient = all.get(p);
+                writer.println(patient.getUserID() + ",PATIENT," + patient.getName() + "," + patient.getEmail() + "," +
+                        getDoctor(p).getUserID() + "," + (patient.getAdmissionDate() != null) + "," + isAtRisk(p));
+            }
         }
     }
 
     /**
-     * Removes a patient and their associated data from the database.
+     * Stores the cohort and its events through DataBase: users first, then readings in batches, appointments
+     * and messages. Messages are stamped by the database when they are stored, not with their event time.
+     * Events the database fails to store are not counted, so a result below the number of generated events
+     * means the seed is incomplete.
      *
-     * @param patientId The ID of the patient to remove.
+     * @return The number of events stored.
      */
-    public void removePatient(String patientId) {
-        if (connection == null) return;
-        try {
-            String[] deleteRelatedSqls = {
-                    "DELETE FROM vitals WHERE patient_id = ?",
-                    "DELETE FROM feedback WHERE patient_id = ?",
-                    "DELETE FROM prescriptions WHERE patient_id = ?",
-                    "DELETE FROM appointments WHERE patient_id = ?",
-                    "DELETE FROM messages WHERE sender_id = ? OR receiver_id = ?",
-                    "DELETE FROM video_consultations WHERE patient_id = ?"
-            };
-            for (String sql : deleteRelatedSqls) {
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, patientId);
-                    if (sql.contains("messages")) {
-                        stmt.setString(2, patientId);
+    public long seed(DataBase db, LocalDateTime from, Duration span) {
+        for (Doctor doctor : getDoctors()) db.addDoctor(doctor);
+        for (Patient patient : getPatients(from)) db.addPatient(patient);
+        Map<String, Doctor> doctorsById = new HashMap<>();
+        for (Doctor doctor : getDoctors()) doctorsById.put(doctor.getUserID(), doctor);
+        Map<String, Patient> patientsById = new HashMap<>();
+        for (Patient patient : getPatients(from)) patientsById.put(patient.getUserID(), patient);
+
+        List<VitalSign> batch = new ArrayList<>(1000);
+        long[] stored = new long[1];
+        generate(from, span, event -> {
+            switch (event.getType()) {
+                case Event.VITAL:
+                    batch.add(event.getVital());
+                    if (batch.size() == 1000) {
+                        if (db.addVitalSigns(batch)) stored[0] += batch.size();
+                        batch.clear();
                     }
-                    stmt.executeUpdate();
-                }
+                    break;
+                case Event.APPOINTMENT:
+                    Appointment appointment = new Appointment(0, event.getAppointmentTime(),
+                            patientsById.get(event.getPatientId()), doctorsById.get(event.getDoctorId()));
+                    db.addAppointment(appointment);
+                    if (appointment.getAppointmentID() > 0) stored[0]++;
+                    break;
+                case Event.MESSAGE:
+                    if (db.addMessage(event.getSenderId(), event.getReceiverId(), event.getText())) stored[0]++;
+                    break;
+                default:
+                    break;
             }
+        });
+        if (!batch.isEmpty() && db.addVitalSigns(batch)) stored[0] += batch.size();
+        return stored[0];
+    }
 
-            String deletePatientSql = "DELETE FROM patients WHERE user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deletePatientSql)) {
-                stmt.setString(1, patientId);
-                stmt.executeUpdate();
-            }
+    // One patient's vitals: baseline plus slowly drifting offsets, a day/night cycle, measurement noise and
+    // deterioration episodes (raised heart rate, blood pressure and temperature, falling oxygen)
+    private final class PatientModel {
+        private final String patientId;
+        private final SplittableRandom random;
+        private final boolean atRisk;
+        private final double[] baseline;
+        private final double[] drift = new double[4];
+        private LocalDateTime episodeEnd;
+
+        PatientModel(int index) {
+            this.patientId = patientId(index);
+            this.random = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (index + 1)));
+            this.atRisk = random.nextDouble() < AT_RISK_SHARE;
+            this.baseline = new double[]{66 + random.nextDouble() * 18, 105 + random.nextDouble() * 25,
+                    36.5 + random.nextDouble() * 0.4, 96.5 + random.nextDouble() * 2.5};
+        }
 
-            String deleteUserSql = "DELETE FROM users WHERE user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deleteUserSql)) {
-                stmt.setString(1, patientId);
-                stmt.executeUpdate();
-            }
+        VitalSign next(LocalDateTime time) {
+            double episodeChance = (atRisk ? 1.0 : 1.0 / 14) * intervalMillis / 86_400_000.0;
+            if (episodeEnd == null && random.nextDouble() < episodeChance) episodeEnd = time.plusMinutes(20 + random.nextInt(40));
+            boolean episode = episodeEnd != null && time.isBefore(episodeEnd);
+            if (episodeEnd != null && !episode) episodeEnd = null;
+
+            double[] noise = {3, 4, 0.08, 0.5};
+            for (int m = 0; m < 4; m++) drift[m] = 0.95 * drift[m] + random.nextGaussian() * noise[m] * 0.2;
+            double cycle = Math.sin(2 * Math.PI * (time.getHour() + time.getMinute() / 60.0 - 10) / 24);
+            double heartRate = baseline[0] + drift[0] + 6 * cycle + random.nextGaussian() * noise[0] + (episode ? 38 : 0);
+            double bloodPressure = baseline[1] + drift[1] + 5 * cycle + random.nextGaussian() * noise[1] + (episode ? 30 : 0);
+            double temperature = baseline[2] + drift[2] + 0.2 * cycle + random.nextGaussian() * noise[2] + (episode ? 1.3 : 0);
+            double oxygen = baseline[3] + drift[3] + random.nextGaussian() * noise[3] - (episode ? 7 : 0);
+            return new VitalSign(patientId, round(clamp(heartRate, 35, 200), 10), round(clamp(bloodPressure, 70, 220), 10),
+                    round(clamp(temperature, 34.5, 41.5), 100), round(clamp(oxygen, 75, 100), 10), time);
+        }
+    }
 
-            logAction("Removed patient " + patientId + " on " + LocalDate.now());
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
 
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error removing patient: " + e.getMessage());
-        }
+    private static double round(double value, int scale) {
+        return (double) Math.round(value * scale) / scale;
     }
 
-    public void removeDoctor(String doctorId) {
-        if (connection == null) return;
-        try {
-            String[] deleteRelatedSqls = {
-                    "DELETE FROM feedback WHERE doctor_id = ?",
-                    "DELETE FROM appointments WHERE doctor_id = ?",
-                    "DELETE FROM messages WHERE sender_id = ? OR receiver_id = ?",
-                    "DELETE FROM video_consultations WHERE doctor_id = ?"
-            };
-            for (String sql : deleteRelatedSqls) {
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, doctorId);
-                    if (sql.contains("messages")) {
-                        stmt.setString(2, doctorId);
-                    }
-                    stmt.executeUpdate();
-                }
-            }
+    /**
+     * One generated event. Each is written as one comma-separated line starting with its type:
+     * VITAL lines continue with a device reading in the ingestion endpoint's line format
+     * (patientId,heart_rate,oxygen_level,blood_pressure,temperature,timestamp),
+     * APPOINTMENT,time,patientId,doctorId,appointmentTime and MESSAGE,time,senderId,receiverId,text.
+     */
+    static final class Event {
+        static final String VITAL = "VITAL";
+        static final String APPOINTMENT = "APPOINTMENT";
+        static final String MESSAGE = "MESSAGE";
+
+        private final String type;
+        private final LocalDateTime time;
+        private final VitalSign vital;
+        private final String first;
+        private final String second;
+        private final LocalDateTime appointmentTime;
+        private final String text;
+
+        private Event(String type, LocalDateTime time, VitalSign vital, String first, String second,
+                      LocalDateTime appointmentTime, String text) {
+            this.type = type;
+            this.time = time;
+            this.vital = vital;
+            this.first = first;
+            this.second = second;
+            this.appointmentTime = appointmentTime;
+            this.text = text;
+        }
 
-            String deleteDoctorSql = "DELETE FROM doctors WHERE user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deleteDoctorSql)) {
-                stmt.setString(1, doctorId);
-                stmt.executeUpdate();
-            }
+        static Event vital(VitalSign vital) {
+            return new Event(VITAL, vital.getTimestamp(), vital, vital.getPatientID(), null, null, null);
+        }
 
-            String deleteUserSql = "DELETE FROM users WHERE user_id = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deleteUserSql)) {
-                stmt.setString(1, doctorId);
-                stmt.executeUpdate();
-            }
+        static Event appointment(LocalDateTime time, String patientId, String doctorId, LocalDateTime appointmentTime) {
+            return new Event(APPOINTMENT, time, null, patientId, doctorId, appointmentTime, null);
+        }
+
+        static Event message(LocalDateTime time, String senderId, String receiverId, String text) {
+            return new Event(MESSAGE, time, null, senderId, receiverId, null, text);
+        }
 
-            logAction("Removed doctor " + doctorId + " on " + LocalDate.now());
+        public String getType() { return type; }
 
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error removing doctor: " + e.getMessage());
+        public LocalDateTime getTime() { return time; }
+
+        public VitalSign getVital() { return vital; }
+
+        public String getPatientId() { return first; }
+
+        public String getDoctorId() { return second; }
+
+        public LocalDateTime getAppointmentTime() { return appointmentTime; }
+
+        public String getSenderId() { return first; }
+
+        public String getReceiverId() { return second; }
+
+        public String getText() { return text; }
+
+        // The reading as a line for the ingestion endpoint
+        public String toIngestionLine() {
+            return vital.getPatientID() + "," + vital.getHeartRate() + "," + vital.getOxygenLevel() + "," +
+                    vital.getBloodPressure() + "," + vital.getBodyTemperature() + "," + time.format(ChatSearchIndex.TIMESTAMP_FORMAT);
         }
-    }
 
-    public void logAction(String action) {
-        if (connection == null) return;
-        try {
-            String sql = "INSERT INTO system_logs (action, log_date) VALUES (?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, action);
-                stmt.setDate(2, java.sql.Date.valueOf(LocalDate.now()));
-                stmt.executeUpdate();
+        public String toLine() {
+            switch (type) {
+                case VITAL: return VITAL + "," + toIngestionLine();
+                case APPOINTMENT: return APPOINTMENT + "," + time.format(ChatSearchIndex.TIMESTAMP_FORMAT) + "," + first + "," +
+                        second + "," + appointmentTime.format(ChatSearchIndex.TIMESTAMP_FORMAT);
+                default: return MESSAGE + "," + time.format(ChatSearchIndex.TIMESTAMP_FORMAT) + "," + first + "," + second + "," + text;
             }
-            connection.commit();
-        } catch (SQLException e) {
-            try { connection.rollback(); } catch (SQLException ex) { System.out.println("Rollback failed: " + ex.getMessage()); }
-            System.out.println("Error logging action: " + e.getMessage());
         }
-    }
 
-    public List<String> getSystemLogs() {
-        List<String> logs = new ArrayList<>();
-        if (connection == null) return logs;
-        try {
-            String sql = "SELECT * FROM system_logs ORDER BY log_date DESC";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        String log = rs.getString("action") + " (Date: " + rs.getDate("log_date") + ")";
-                        logs.add(log);
-                    }
+        // Parses a line written by toLine; returns null if it is not a valid event
+        static Event parse(String line) {
+            if (line.startsWith(VITAL + ",")) {
+                VitalSign vital = VitalIngestionServer.parse(line.substring(VITAL.length() + 1));
+                return vital != null ? vital(vital) : null;
+            }
+            String[] fields = line.split(",", 5);
+            if (fields.length != 5) return null;
+            try {
+                LocalDateTime time = LocalDateTime.parse(fields[1], ChatSearchIndex.TIMESTAMP_FORMAT);
+                if (APPOINTMENT.equals(fields[0])) {
+                    return appointment(time, fields[2], fields[3], LocalDateTime.parse(fields[4], ChatSearchIndex.TIMESTAMP_FORMAT));
                 }
+                return MESSAGE.equals(fields[0]) ? message(time, fields[2], fields[3], fields[4]) : null;
+            } catch (DateTimeParseException e) {
+                return null;
             }
-        } catch (SQLException e) {
-            System.out.println("Error retrieving system logs: " + e.getMessage());
         }
-        return logs;
-    }
 
-    public boolean isConnected() {
-        try {
-            return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
-            return false;
+        // Reads an event stream file, passing each valid event to the sink in file order; returns the number read
+        static long replay(File file, Consumer<Event> sink) throws IOException {
+            long count = 0;
+            try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8), 1 << 16)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Event event = parse(line);
+                    if (event == null) continue;
+                    sink.accept(event);
+                    count++;
+                }
+            }
+            return count;
         }
     }
 }
 
-// Notifications and Reminders
-class ReminderService {
-    private final EmailNotification emailNotification;
+// Metrics
+// Per-operation call counts, errors, in-flight gauges and latency histograms for the hot paths: DataBase
+// operations, notification sends, CSV parsing and report generation. Recording is lock-free (LongAdder
+// buckets with fixed bounds), so an instrumented call costs two System.nanoTime() reads and a few adds.
+// Every operation is registered as an MXBean under com.example.oopproject:type=Operation, and
+// startHttpServer serves all of them in the Prometheus text format on the loopback interface.
+class Metrics {
+    // Histogram bucket upper bounds in seconds, the Prometheus client defaults extended down to 0.1 ms
+    private static final double[] BOUNDS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1,
+            0.25, 0.5, 1, 2.5, 5, 10};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+    private static final String[] BOUND_LABELS = new String[BOUNDS.length];
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = Math.round(BOUNDS[i] * 1e9);
+            BOUND_LABELS[i] = BigDecimal.valueOf(BOUNDS[i]).stripTrailingZeros().toPlainString();
+        }
+    }
 
-    public ReminderService(EmailNotification emailNotification) {
-        this.emailNotification = emailNotification != null ? emailNotification : new EmailNotification();
+    private Metrics() {}
+
+    // The timer for an operation, created and registered with JMX on first use
+    static Timer timer(String operation) {
+        Timer timer = timers.get(operation);
+        return timer != null ? timer : timers.computeIfAbsent(operation, Metrics::register);
     }
 
-    public void sendAppointmentReminder(Appointment appointment) {
-        if (appointment == null) return;
+    private static Timer register(String operation) {
+        Timer timer = new Timer(operation);
         try {
-            String message = "Reminder: Appointment with Dr. " + appointment.getDoctor().getName() +
-                    " on " + appointment.getAppointmentTime();
-            emailNotification.sendNotification(message, appointment.getPatient().getEmail());
-        } catch (NotificationException e) {
-            System.out.println("Error sending appointment reminder: " + e.getMessage());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(timer,
+                    new ObjectName("com.example.oopproject:type=Operation,name=" + ObjectName.quote(operation)));
+        } catch (JMException e) {
+            System.out.println("Error registering metrics for " + operation + ": " + e.getMessage());
         }
+        return timer;
     }
 
-    public void sendMedicationReminder(Prescription prescription) {
-        if (prescription == null) return;
+    /**
+     * Runs one call of an operation and times it. The call counts as failed if the work throws, and its
+     * latency is recorded however the work ends, including returns from inside it.
+     *
+     * @param operation The name of the operation, e.g. "database.getUser".
+     * @param work      The work to run.
+     * @return What the work returned.
+     */
+    static <T, E1 extends Exception, E2 extends Exception> T time(String operation, Work<T, E1, E2> work) throws E1, E2 {
+        Timer timer = timer(operation);
+        long started = timer.start();
         try {
-            DataBase db = DataBase.getInstance();
-            User patient = db.getUser(prescription.getPatientID());
-            String message = "Reminder: Take " + prescription.getMedication() +
-                    " (" + prescription.getDosage() + ") as per schedule: " + prescription.getSchedule();
-            emailNotification.sendNotification(message, patient.getEmail());
-        } catch (NotificationException e) {
-            System.out.println("Error sending medication reminder: " + e.getMessage());
+            return work.run();
+        } catch (Throwable e) {
+            timer.fail();
+            throw e;
+        } finally {
+            timer.stop(started);
         }
     }
-}
 
-// Health Trends Visualization Class
-class HealthTrendsVisualizer {
-    public LineChart<Number, Number> generateVitalTrendsChart(String patientId, DataBase db) {
-        if (patientId == null || db == null) return null;
+    // time for work without a result
+    static <E1 extends Exception, E2 extends Exception> void time(String operation, Action<E1, E2> action) throws E1, E2 {
+        Metrics.<Void, E1, E2>time(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
 
-        NumberAxis xAxis = new NumberAxis();
-        NumberAxis yAxis = new NumberAxis();
-        xAxis.setLabel("Measurement Number");
-        yAxis.setLabel("Value");
+    /**
+     * Timed work. The two exception types are inferred as the same type when the work throws one kind of
+     * checked exception; work that throws two kinds names them, e.g. {@code Metrics.<Integer, SQLException,
+     * IOException>time(...)}.
+     */
+    interface Work<T, E1 extends Exception, E2 extends Exception> {
+        T run() throws E1, E2;
+    }
 
-        LineChart<Number, Number> lineChart = new LineChart<>(xAxis, yAxis);
-        lineChart.setTitle("Vital Signs Trends for Patient " + patientId);
+    interface Action<E1 extends Exception, E2 extends Exception> {
+        void run() throws E1, E2;
+    }
 
-        List<VitalSign> vitals = db.getVitalSigns(patientId);
-        if (vitals.isEmpty()) return lineChart;
+    /**
+     * Writes every operation's metrics in the Prometheus text exposition format.
+     *
+     * @return The metrics as text.
+     */
+    static String toPrometheus() {
+        List<Timer> sorted = new ArrayList<>(timers.values());
+        sorted.sort(Comparator.comparing(Timer::getOperation));
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP rpms_operation_seconds Latency of RPMS operations.\n");
+        out.append("# TYPE rpms_operation_seconds histogram\n");
+        for (Timer timer : sorted) {
+            String label = "operation=\"" + timer.operation + "\"";
+            long[] counts = timer.bucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                cumulative += counts[i];
+                out.append("rpms_operation_seconds_bucket{").append(label).append(",le=\"").append(BOUND_LABELS[i]).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += counts[BOUNDS.length];
+            out.append("rpms_operation_seconds_bucket{").append(label).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+            out.append("rpms_operation_seconds_sum{").append(label).append("} ").append(timer.totalNanos.sum() / 1e9).append('\n');
+            out.append("rpms_operation_seconds_count{").append(label).append("} ").append(cumulative).append('\n');
+        }
+        out.append("# HELP rpms_operation_errors_total Failed RPMS operations.\n");
+        out.append("# TYPE rpms_operation_errors_total counter\n");
+        for (Timer timer : sorted) {
+            out.append("rpms_operation_errors_total{operation=\"").append(timer.operation).append("\"} ").append(timer.getErrors()).append('\n');
+        }
+        out.append("# HELP rpms_operation_in_flight RPMS operations currently running.\n");
+        out.append("# TYPE rpms_operation_in_flight gauge\n");
+        for (Timer timer : sorted) {
+            out.append("rpms_operation_in_flight{operation=\"").append(timer.operation).append("\"} ").append(timer.getInFlight()).append('\n');
+        }
+        return out.toString();
+    }
 
-        XYChart.Series<Number, Number> heartRateSeries = new XYChart.Series<>();
-        heartRateSeries.setName("Heart Rate");
-        XYChart.Series<Number, Number> bloodPressureSeries = new XYChart.Series<>();
-        bloodPressureSeries.setName("Blood Pressure");
-        XYChart.Series<Number, Number> temperatureSeries = new XYChart.Series<>();
-        temperatureSeries.setName("Temperature");
-        XYChart.Series<Number, Number> oxygenLevelSeries = new XYChart.Series<>();
-        oxygenLevelSeries.setName("Oxygen Level");
+    /**
+     * Serves the metrics at http://localhost:port/metrics for a Prometheus scraper or curl.
+     *
+     * @param port The port to listen on.
+     * @return The started server; stop it with {@code stop(0)}.
+     * @throws IOException If the port cannot be bound.
+     */
+    static HttpServer startHttpServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return server;
+    }
 
-        for (int i = 0; i < vitals.size(); i++) {
-            VitalSign vital = vitals.get(i);
-            heartRateSeries.getData().add(new XYChart.Data<>(i + 1, vital.getHeartRate()));
-            bloodPressureSeries.getData().add(new XYChart.Data<>(i + 1, vital.getBloodPressure()));
-            temperatureSeries.getData().add(new XYChart.Data<>(i + 1, vital.getBodyTemperature()));
-            oxygenLevelSeries.getData().add(new XYChart.Data<>(i + 1, vital.getOxygenLevel()));
+    // Starts the HTTP endpoint when the "rpms.metrics.port" system property is set; returns null otherwise
+    static HttpServer startConfiguredHttpServer() {
+        String port = System.getProperty("rpms.metrics.port");
+        if (port == null || port.trim().isEmpty()) return null;
+        try {
+            HttpServer server = startHttpServer(Integer.parseInt(port.trim()));
+            System.out.println("Metrics available at http://localhost:" + server.getAddress().getPort() + "/metrics");
+            return server;
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Error starting metrics endpoint: " + e.getMessage());
+            return null;
         }
+    }
 
-        lineChart.getData().addAll(heartRateSeries, bloodPressureSeries, temperatureSeries, oxygenLevelSeries);
-        return lineChart;
+    /**
+     * The JMX view of one operation. Latencies are in milliseconds; percentiles are interpolated within the
+     * histogram buckets.
+     */
+    public interface OperationMXBean {
+        String getOperation();
+
+        long getCount();
+
+        long getErrors();
+
+        long getInFlight();
+
+        double getMeanMillis();
+
+        double getMaxMillis();
+
+        double getP50Millis();
+
+        double getP90Millis();
+
+        double getP99Millis();
     }
-}
 
-// Report Generation Class
-class ReportGenerator {
-    public void generateAndSaveReport(String patientId, DataBase db, String filePath) {
-        if (patientId == null || db == null || filePath == null) {
-            System.out.println("Error: Invalid input parameters for report generation.");
-            return;
+    /**
+     * Records the calls of one operation, usually through {@link Metrics#time}, or directly:
+     * <pre>
+     * long started = timer.start();
+     * try { ... } catch (...) { timer.fail(); ... } finally { timer.stop(started); }
+     * </pre>
+     */
+    static final class Timer implements OperationMXBean {
+        private final String operation;
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Timer(String operation) {
+            this.operation = operation;
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
         }
 
-        // Ensure the parent directory exists
-        File directory = new File(filePath).getParentFile();
-        if (directory != null && !directory.exists()) {
-            directory.mkdirs();
+        // Marks a call as started and returns its start time for stop
+        long start() {
+            inFlight.increment();
+            return System.nanoTime();
         }
 
-        // Use the provided filePath directly
-        try (PrintWriter writer = new PrintWriter(filePath)) {
-            writer.println("Health Report for Patient " + patientId);
-            writer.println("Generated on: " + LocalDate.now());
-            writer.println("----------------------------------------");
-
-            List<VitalSign> vitals = db.getVitalSigns(patientId);
-            writer.println("\nVitals History:");
-            writer.println("----------------------------------------");
-            for (VitalSign vital : vitals) {
-                writer.println(vital);
-            }
+        void stop(long started) {
+            long nanos = System.nanoTime() - started;
+            inFlight.decrement();
+            int bucket = 0;
+            while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) bucket++;
+            buckets[bucket].increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get()) maxNanos.accumulateAndGet(nanos, Math::max);
+        }
 
-            List<Feedback> feedbacks = db.getFeedbacksForPatient(patientId);
-            writer.println("\nFeedback History:");
-            writer.println("----------------------------------------");
-            for (Feedback feedback : feedbacks) {
-                writer.println(feedback);
-            }
+        // Counts the current call as failed; it is still timed by stop
+        void fail() {
+            errors.increment();
+        }
 
-            List<Prescription> prescriptions = db.getPrescriptionsForPatient(patientId);
-            writer.println("\nPrescription History:");
-            writer.println("----------------------------------------");
-            for (Prescription prescription : prescriptions) {
-                writer.println(prescription);
-            }
+        private long[] bucketCounts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) counts[i] = buckets[i].sum();
+            return counts;
+        }
 
-            writer.println("\nDoctor Recommendations:");
-            writer.println("----------------------------------------");
-            if (vitals.isEmpty()) {
-                writer.println("No vital signs data available for recommendations.");
-            } else {
-                VitalSign latestVital = vitals.get(0);
-                if (latestVital.getHeartRate() > 100) {
-                    writer.println("- High heart rate detected. Recommend immediate rest and consultation.");
-                }
-                if (latestVital.getBloodPressure() > 140) {
-                    writer.println("- High blood pressure detected. Recommend monitoring and possible medication adjustment.");
-                }
-                if (latestVital.getBodyTemperature() > 37.2) {
-                    writer.println("- Elevated temperature detected. Recommend fever management and monitoring.");
-                }
-                if (latestVital.getOxygenLevel() < 95) {
-                    writer.println("- Low oxygen level detected. Recommend oxygen therapy and immediate consultation.");
-                }
-                if (EmergencyAlert.isWithinThreshold(latestVital)) {
-                    writer.println("- All vital signs within normal range. Continue regular monitoring.");
+        private double percentileMillis(double percentile) {
+            long[] counts = bucketCounts();
+            long total = 0;
+            for (long count : counts) total += count;
+            if (total == 0) return 0;
+            double rank = percentile / 100 * total;
+            long below = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                if (below + counts[i] >= rank) {
+                    double lower = i == 0 ? 0 : BOUNDS[i - 1];
+                    return Math.min(getMaxMillis(), (lower + (BOUNDS[i] - lower) * (rank - below) / counts[i]) * 1000);
                 }
+                below += counts[i];
             }
+            return getMaxMillis();
+        }
 
-            System.out.println("Report generated and saved: " + filePath);
-        } catch (IOException e) {
-            System.out.println("Error generating report: " + e.getMessage());
-            throw new RuntimeException("Failed to generate report: " + e.getMessage(), e);
+        @Override
+        public String getOperation() { return operation; }
+
+        @Override
+        public long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets) count += bucket.sum();
+            return count;
+        }
+
+        @Override
+        public long getErrors() { return errors.sum(); }
+
+        @Override
+        public long getInFlight() { return inFlight.sum(); }
+
+        @Override
+        public double getMeanMillis() {
+            long count = getCount();
+            return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+        }
+
+        @Override
+        public double getMaxMillis() { return maxNanos.get() / 1e6; }
+
+        @Override
+        public double getP50Millis() { return percentileMillis(50); }
+
+        @Override
+        public double getP90Millis() { return percentileMillis(90); }
+
+        @Override
+        public double getP99Millis() { return percentileMillis(99); }
+    }
+}
+
+// Startup Timing
+// Records how long each startup phase takes, so regressions in time-to-login-screen show up in the log.
+// The database connects on its own thread while the UI loads, so phases are recorded from several threads.
+class StartupTimer {
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private StartupTimer() {}
+
+    // Records a phase that started at the given System.nanoTime()
+    static synchronized void record(String phase, long startNanos) {
+        phases.put(phase, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    // Milliseconds since the JVM process started, or -1 if the platform does not report it
+    static long sinceProcessStart() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElse(-1L);
+    }
+
+    static synchronized String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            if (summary.length() > 0) summary.append(", ");
+            summary.append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
         }
+        return summary.toString();
     }
 }
 
@@ -2278,39 +7844,63 @@ Main Class
 of the application
 */
 public class RPMSMain extends Application {
-    private static DataBase db;
-    private static ChatServer chatServer;
-    private static EmailNotification emailNotification;
-    private static SMSNotification smsNotification;
-    private static ReminderService reminderService;
-    private static FileHandling fileHandling;
-    private static ReportGenerator reportGenerator;
-    private static HealthTrendsVisualizer trendsVisualizer;
-    private static Scanner scanner;
+    private static VitalAlertDispatcher alertDispatcher;
+    private static VitalIngestionServer ingestionServer;
+    private static HttpServer metricsServer;
 
+    // Starts the database connect in the background; every other service is created on first use
     private static void initializeSystem() {
-        scanner = new Scanner(System.in);
-        db = DataBase.getInstance();
-        chatServer = new ChatServer(db);
-        emailNotification = new EmailNotification();
-        smsNotification = new SMSNotification();
-        reminderService = new ReminderService(emailNotification);
-        fileHandling = new FileHandling();
-        reportGenerator = new ReportGenerator();
-        trendsVisualizer = new HealthTrendsVisualizer();
+        long start = System.nanoTime();
+        metricsServer = Metrics.startConfiguredHttpServer();
+        DataBase.connectInBackground().thenAccept(db -> {
+            System.out.println("Database ready: " + StartupTimer.summary());
+            startIngestionServer(db);
+        });
+        StartupTimer.record("initialize", start);
         System.out.println("System initialized successfully.\n");
     }
 
+    // Starts the device ingestion endpoint when the "rpms.ingest.port" system property is set
+    private static void startIngestionServer(DataBase db) {
+        String port = System.getProperty("rpms.ingest.port");
+        if (port == null || port.trim().isEmpty() || !db.isConnected()) return;
+        try {
+            alertDispatcher = new VitalAlertDispatcher(db, new EmailNotification());
+            ingestionServer = new VitalIngestionServer(Integer.parseInt(port.trim()), db, alertDispatcher);
+            ingestionServer.start();
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Error starting vital ingestion server: " + e.getMessage());
+            ingestionServer = null;
+        }
+    }
+
     @Override
     public void start(Stage primaryStage) throws Exception {
+        long launched = StartupTimer.sinceProcessStart();
         initializeSystem();
 
+        long start = System.nanoTime();
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/oopproject/MainUI.fxml"));
         Scene scene = new Scene(loader.load(), 800, 600);
         scene.getStylesheets().add(getClass().getResource("/com/example/oopproject/styles.css").toExternalForm());
+        StartupTimer.record("load UI", start);
+        start = System.nanoTime();
         primaryStage.setTitle("Remote Patient Monitoring System");
         primaryStage.setScene(scene);
         primaryStage.show();
+        StartupTimer.record("show stage", start);
+        System.out.println("Login screen shown " + StartupTimer.sinceProcessStart() + " ms after process start (JVM and FX launch " +
+                launched + " ms; " + StartupTimer.summary() + ")");
+
+        // Training and measurement runs for the class data sharing archive stop at the login screen
+        if (Boolean.getBoolean("rpms.startup.exit")) Platform.runLater(Platform::exit);
+    }
+
+    @Override
+    public void stop() {
+        if (ingestionServer != null) ingestionServer.close();
+        if (alertDispatcher != null) alertDispatcher.close();
+        if (metricsServer != null) metricsServer.stop(0);
     }
 
     public static void main(String[] args) {
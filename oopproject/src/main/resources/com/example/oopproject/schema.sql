@@ -0,0 +1,124 @@
+-- RPMS database schema. Written in the subset shared by MySQL and H2's MySQL mode, so it creates a
+-- fresh MySQL database and also initialises the embedded database (see DataBase, -Drpms.db=embedded).
+-- Every statement is idempotent because the embedded database runs this script on each new connection.
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id VARCHAR(50) NOT NULL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    contact_info VARCHAR(100),
+    gender VARCHAR(10),
+    role VARCHAR(10) NOT NULL,
+    email VARCHAR(100)
+);
+
+CREATE TABLE IF NOT EXISTS patients (
+    user_id VARCHAR(50) NOT NULL PRIMARY KEY,
+    birth_date DATE,
+    admission_date DATE,
+    email VARCHAR(100),
+    password VARCHAR(100),
+    FOREIGN KEY (user_id) REFERENCES users (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS doctors (
+    user_id VARCHAR(50) NOT NULL PRIMARY KEY,
+    joining_date DATE,
+    specialization VARCHAR(100),
+    email VARCHAR(100),
+    password VARCHAR(100),
+    FOREIGN KEY (user_id) REFERENCES users (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS administrators (
+    user_id VARCHAR(50) NOT NULL PRIMARY KEY,
+    password VARCHAR(100),
+    joining_date DATE,
+    FOREIGN KEY (user_id) REFERENCES users (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS appointments (
+    appointment_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    appointment_time DATETIME NOT NULL,
+    patient_id VARCHAR(50) NOT NULL,
+    doctor_id VARCHAR(50) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    INDEX idx_appointments_doctor_time (doctor_id, appointment_time),
+    INDEX idx_appointments_patient (patient_id)
+);
+
+CREATE TABLE IF NOT EXISTS vitals (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    patient_id VARCHAR(50) NOT NULL,
+    checkup_date DATE NOT NULL,
+    ts DATETIME,
+    heart_rate DOUBLE,
+    blood_pressure DOUBLE,
+    body_temperature DOUBLE,
+    oxygen_level DOUBLE,
+    severity VARCHAR(10) NOT NULL DEFAULT 'NORMAL',
+    INDEX idx_vitals_patient_ts (patient_id, ts),
+    INDEX idx_vitals_severity_ts (severity, ts)
+);
+
+CREATE TABLE IF NOT EXISTS vitals_rollup (
+    patient_id VARCHAR(50) NOT NULL,
+    resolution VARCHAR(8) NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    reading_count INT NOT NULL,
+    hr_min DOUBLE, hr_max DOUBLE, hr_sum DOUBLE,
+    bp_min DOUBLE, bp_max DOUBLE, bp_sum DOUBLE,
+    temp_min DOUBLE, temp_max DOUBLE, temp_sum DOUBLE,
+    o2_min DOUBLE, o2_max DOUBLE, o2_sum DOUBLE,
+    PRIMARY KEY (patient_id, resolution, bucket_start)
+);
+
+CREATE TABLE IF NOT EXISTS vital_alerts (
+    patient_id VARCHAR(50) NOT NULL,
+    ts DATETIME NOT NULL,
+    alerted_at DATETIME NOT NULL,
+    PRIMARY KEY (patient_id, ts)
+);
+
+CREATE TABLE IF NOT EXISTS feedback (
+    feedback_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    patient_id VARCHAR(50) NOT NULL,
+    doctor_id VARCHAR(50) NOT NULL,
+    date DATE,
+    comments TEXT,
+    INDEX idx_feedback_patient (patient_id),
+    INDEX idx_feedback_doctor (doctor_id)
+);
+
+CREATE TABLE IF NOT EXISTS prescriptions (
+    prescription_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    patient_id VARCHAR(50) NOT NULL,
+    medication VARCHAR(100),
+    dosage VARCHAR(50),
+    schedule VARCHAR(100),
+    INDEX idx_prescriptions_patient (patient_id)
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    message_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    sender_id VARCHAR(50) NOT NULL,
+    receiver_id VARCHAR(50) NOT NULL,
+    message TEXT,
+    timestamp DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_messages_pair (sender_id, receiver_id),
+    INDEX idx_messages_timestamp (timestamp)
+);
+
+CREATE TABLE IF NOT EXISTS video_consultations (
+    call_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    doctor_id VARCHAR(50) NOT NULL,
+    patient_id VARCHAR(50) NOT NULL,
+    scheduled_time DATETIME NOT NULL,
+    meeting_link VARCHAR(255),
+    INDEX idx_video_doctor_time (doctor_id, scheduled_time)
+);
+
+CREATE TABLE IF NOT EXISTS system_logs (
+    log_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    action VARCHAR(255),
+    log_date DATE
+);
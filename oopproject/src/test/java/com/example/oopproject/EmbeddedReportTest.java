@@ -0,0 +1,54 @@
+package com.example.oopproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedReportTest {
+    static {
+        // DataBase picks its URL when the class loads, so this has to run first
+        System.setProperty("rpms.db", "embedded");
+    }
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 1, 8, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reportStreamsEverySectionFromTheEmbeddedDatabase() throws Exception {
+        DataBase db = DataBase.getInstance();
+        assertTrue(db.isConnected(), "embedded database should connect");
+        assertTrue(db.getConnection().getMetaData().getURL().startsWith("jdbc:h2:"), "should run on H2");
+
+        String patientId = "RPT001";
+        db.addPatient(new Patient(patientId, "Report Patient", "0300-0000000", "rpt001@rpms.example",
+                "password", "Female", LocalDate.of(1970, 1, 1)));
+        List<VitalSign> vitals = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            vitals.add(new VitalSign(patientId, 70 + i % 5, 120, 36.8, 97, START.plusMinutes(i)));
+        }
+        assertTrue(db.addVitalSigns(vitals), "vitals should be stored");
+        db.addFeedback(new Feedback(0, patientId, "DOC001", LocalDate.of(2025, 5, 2), "Keep walking daily"));
+        db.addPrescription(new Prescription(0, patientId, "Metformin", "500mg", "Twice daily"));
+
+        Path report = directory.resolve("report.txt");
+        new ReportGenerator().generateAndSaveReport(patientId, db, report.toString());
+
+        String text = Files.readString(report, StandardCharsets.UTF_8);
+        assertTrue(text.contains("Health Report for Patient " + patientId), text);
+        assertTrue(text.contains("Vitals History:"), text);
+        assertTrue(text.contains(vitals.get(vitals.size() - 1).toString()), "newest reading should be listed");
+        assertTrue(text.contains("Keep walking daily"), "feedback should be listed");
+        assertTrue(text.contains("Metformin"), "prescription should be listed");
+    }
+}
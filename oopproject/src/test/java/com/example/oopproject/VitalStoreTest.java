@@ -0,0 +1,152 @@
+package com.example.oopproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VitalStoreTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 1, 8, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void timestampsRoundTripThroughEveryDeltaOfDeltaWidth() {
+        long base = 1_746_086_400_000L;
+        // Regular readings, jitter in each bucket width, a long gap, a step back in time and a repeat
+        long[] millis = {base, base + 60_000, base + 120_000, base + 180_050, base + 240_000, base + 300_200,
+                base + 360_000, base + 421_500, base + 480_000, base + 86_400_000L * 30, base + 86_400_000L * 30 + 60_000,
+                base + 1_000, base + 1_000, base + 1_000, Long.MAX_VALUE / 4};
+        for (int count = 1; count <= millis.length; count++) {
+            VitalStore.BitWriter bits = new VitalStore.BitWriter();
+            VitalStore.encodeTimestamps(bits, millis, count);
+            long[] decoded = VitalStore.decodeTimestamps(reader(bits), count);
+            for (int i = 0; i < count; i++) assertEquals(millis[i], decoded[i], "timestamp " + i + " of " + count);
+        }
+    }
+
+    @Test
+    void valuesRoundTripBitForBit() {
+        double[] values = {72.0, 72.0, 72.5, 73.0, 98.6, -0.0, 0.0, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, 36.6, 36.7, 1e-300, -1e300, 36.6};
+        assertValuesRoundTrip(values);
+
+        Random random = new Random(7);
+        double[] noisy = new double[VitalStore.CHUNK_SIZE];
+        for (int i = 0; i < noisy.length; i++) {
+            noisy[i] = i % 50 == 0 ? Double.longBitsToDouble(random.nextLong()) : 120 + random.nextGaussian() * 8;
+        }
+        assertValuesRoundTrip(noisy);
+    }
+
+    @Test
+    void sealedChunksReadBackAfterReopening() throws IOException {
+        List<VitalSign> written = readings("P1", 2 * VitalStore.CHUNK_SIZE + 10);
+        VitalStore store = new VitalStore(directory.toFile());
+        store.append(written);
+        store.close();
+
+        List<VitalSign> read = new VitalStore(directory.toFile()).read("P1", null, null, false);
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) assertSameReading(written.get(i), read.get(i));
+    }
+
+    @Test
+    void replayAfterCrashDuringSealDoesNotDuplicateReadings() throws IOException {
+        List<VitalSign> written = readings("P1", VitalStore.CHUNK_SIZE);
+        File head = new File(directory.toFile(), "P1.head");
+        Path saved = directory.resolve("saved.head");
+
+        VitalStore store = new VitalStore(directory.toFile());
+        store.append(written.subList(0, VitalStore.CHUNK_SIZE - 1));
+        Files.copy(head.toPath(), saved);
+        store.append(written.get(VitalStore.CHUNK_SIZE - 1));
+        store.close();
+        // The chunk is on disk but the head log still holds its readings, as after a crash before truncation
+        Files.copy(saved, head.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        store = new VitalStore(directory.toFile());
+        assertEquals(VitalStore.CHUNK_SIZE, store.read("P1", null, null, false).size());
+        store.append(readings("P1", 1).get(0));
+        store.close();
+        assertEquals(VitalStore.CHUNK_SIZE + 1, new VitalStore(directory.toFile()).read("P1", null, null, false).size());
+    }
+
+    @Test
+    void patientIdsIncludeEveryStoredPatient() throws IOException {
+        VitalStore store = new VitalStore(directory.toFile());
+        store.append(readings("P2", 3));
+        store.append(readings("P 1/a", 3));
+        store.close();
+        assertEquals(List.of("P 1/a", "P2"), new VitalStore(directory.toFile()).patientIds());
+    }
+
+    @Test
+    void evictedSeriesReopenWithTheirReadings() throws IOException {
+        VitalStore store = new VitalStore(directory.toFile(), 2);
+        List<List<VitalSign>> written = new ArrayList<>();
+        for (int p = 0; p < 5; p++) {
+            written.add(readings("P" + p, VitalStore.CHUNK_SIZE + 3));
+            store.append(written.get(p).subList(0, VitalStore.CHUNK_SIZE));
+        }
+        assertEquals(2, store.openSeries());
+        // Each patient's head log is replayed when the series is reopened, so appends continue its sequence
+        for (int p = 0; p < 5; p++) store.append(written.get(p).subList(VitalStore.CHUNK_SIZE, VitalStore.CHUNK_SIZE + 3));
+        for (int p = 0; p < 5; p++) {
+            List<VitalSign> read = store.read("P" + p, null, null, false);
+            assertEquals(written.get(p).size(), read.size());
+            for (int i = 0; i < read.size(); i++) assertSameReading(written.get(p).get(i), read.get(i));
+        }
+        assertEquals(2, store.openSeries());
+        store.close();
+    }
+
+    private static void assertValuesRoundTrip(double[] values) {
+        VitalStore.BitWriter bits = new VitalStore.BitWriter();
+        VitalStore.encodeValues(bits, values, values.length);
+        double[] decoded = VitalStore.decodeValues(reader(bits), values.length);
+        long[] expected = new long[values.length];
+        long[] actual = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            expected[i] = Double.doubleToRawLongBits(values[i]);
+            actual[i] = Double.doubleToRawLongBits(decoded[i]);
+        }
+        assertArrayEquals(expected, actual);
+    }
+
+    private static VitalStore.BitReader reader(VitalStore.BitWriter bits) {
+        return new VitalStore.BitReader(ByteBuffer.wrap(bits.toByteArray()), 0);
+    }
+
+    private static List<VitalSign> readings(String patientId, int count) {
+        Random random = new Random(patientId.hashCode());
+        List<VitalSign> vitals = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vitals.add(new VitalSign(patientId, 60 + random.nextInt(40), 110 + random.nextInt(30),
+                    36 + random.nextInt(20) / 10.0, 94 + random.nextInt(6), START.plusSeconds(60L * i + random.nextInt(5))));
+        }
+        return vitals;
+    }
+
+    private static void assertSameReading(VitalSign expected, VitalSign actual) {
+        assertEquals(expected.getPatientID(), actual.getPatientID());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getHeartRate(), actual.getHeartRate());
+        assertEquals(expected.getBloodPressure(), actual.getBloodPressure());
+        assertEquals(expected.getBodyTemperature(), actual.getBodyTemperature());
+        assertEquals(expected.getOxygenLevel(), actual.getOxygenLevel());
+    }
+}